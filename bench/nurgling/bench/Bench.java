@@ -0,0 +1,106 @@
+package nurgling.bench;
+
+import java.util.*;
+
+/**
+ * One benchmark of the offline suite. Like a JMH benchmark method in
+ * average-time mode: {@link #op()} is invoked repeatedly for a fixed time
+ * per iteration, and the result is reported in nanoseconds per call.
+ * Return values are folded into a sink so that the JIT cannot drop the
+ * work as dead code.
+ */
+public abstract class Bench
+{
+    public final String name;
+
+    protected Bench(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Prepares the fixtures; called once, outside of measurement
+     */
+    public void setup() throws Exception
+    {
+    }
+
+    /**
+     * One operation of the benchmark
+     */
+    public abstract Object op() throws Exception;
+
+    public static class Result
+    {
+        public final Bench bench;
+        public final int warmups;
+        public final double[] raw;
+
+        Result(Bench bench, int warmups, double[] raw)
+        {
+            this.bench = bench;
+            this.warmups = warmups;
+            this.raw = raw;
+        }
+
+        public double score()
+        {
+            double sum = 0;
+            for (double v : raw)
+                sum += v;
+            return sum / raw.length;
+        }
+
+        /**
+         * Half-width of the 99.9% confidence interval, as JMH reports it
+         */
+        public double error()
+        {
+            int n = raw.length;
+            if (n < 2)
+                return Double.NaN;
+            double mean = score(), ss = 0;
+            for (double v : raw)
+                ss += (v - mean) * (v - mean);
+            return student(n - 1) * Math.sqrt(ss / (n - 1)) / Math.sqrt(n);
+        }
+    }
+
+    /* Two-sided 99.9% quantiles of Student's t distribution */
+    private static final double[] T999 = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587};
+
+    private static double student(int df)
+    {
+        return (df <= T999.length) ? T999[df - 1] : 3.291;
+    }
+
+    public static volatile int sink;
+
+    private static void consume(Object o)
+    {
+        if (o != null)
+            sink ^= System.identityHashCode(o);
+    }
+
+    private double iteration(long nanos) throws Exception
+    {
+        long ops = 0, start = System.nanoTime(), now;
+        do
+        {
+            consume(op());
+            ops++;
+        }
+        while ((now = System.nanoTime()) - start < nanos);
+        return (double) (now - start) / ops;
+    }
+
+    public Result measure(int warmups, long warmupNanos, int iterations, long iterationNanos) throws Exception
+    {
+        for (int i = 0; i < warmups; i++)
+            iteration(warmupNanos);
+        double[] raw = new double[iterations];
+        for (int i = 0; i < iterations; i++)
+            raw[i] = iteration(iterationNanos);
+        return new Result(this, warmups, raw);
+    }
+}
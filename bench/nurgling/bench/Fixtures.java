@@ -0,0 +1,225 @@
+package nurgling.bench;
+
+import haven.*;
+import nurgling.pf.NPFMap;
+import nurgling.tools.InventoryGrid;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Offline inputs of the benchmarks. Everything synthetic is generated from
+ * fixed seeds, so that runs on different builds measure the same work.
+ */
+public class Fixtures
+{
+    public static final long SEED = 0x6e75726cL;
+
+    /**
+     * Synthetic obstacle grid: rectangles of hitbox-like sizes scattered over
+     * an otherwise free map
+     */
+    public static NPFMap obstacles(int size, double density, long seed)
+    {
+        Random rnd = new Random(seed);
+        short[][] vals = new short[size][size];
+        int covered = 0;
+        while (covered < size * size * density)
+        {
+            int w = 1 + rnd.nextInt(8), h = 1 + rnd.nextInt(8);
+            int x = rnd.nextInt(size - w), y = rnd.nextInt(size - h);
+            for (int i = x; i < x + w; i++)
+            {
+                for (int j = y; j < y + h; j++)
+                {
+                    if (vals[i][j] == 0)
+                    {
+                        vals[i][j] = 1;
+                        covered++;
+                    }
+                }
+            }
+        }
+        return new NPFMap(Coord.z, vals);
+    }
+
+    /**
+     * Maps recorded by the client's path finder debug view, from the
+     * directory named by the bench.pfmaps property
+     */
+    public static Map<String, NPFMap> recorded() throws IOException
+    {
+        Map<String, NPFMap> ret = new TreeMap<>();
+        Path dir = Paths.get(System.getProperty("bench.pfmaps", "bench/fixtures"));
+        if (!Files.isDirectory(dir))
+            return ret;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.pfmap"))
+        {
+            for (Path file : files)
+            {
+                String nm = file.getFileName().toString();
+                ret.put(nm.substring(0, nm.length() - ".pfmap".length()), NPFMap.read(file));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Two distant free cells of the map, as indices into its cells
+     */
+    public static Coord[] endpoints(NPFMap map, long seed)
+    {
+        Random rnd = new Random(seed);
+        NPFMap.Cell[][] cells = map.getCells();
+        int size = map.getSize();
+        Coord[] ret = null;
+        double best = -1;
+        for (int n = 0; n < 64; n++)
+        {
+            Coord a = new Coord(rnd.nextInt(size), rnd.nextInt(size));
+            Coord b = new Coord(rnd.nextInt(size), rnd.nextInt(size));
+            if (cells[a.x][a.y].val != 0 || cells[b.x][b.y].val != 0)
+                continue;
+            if (a.dist(b) > best)
+            {
+                best = a.dist(b);
+                ret = new Coord[]{a, b};
+            }
+        }
+        if (ret == null)
+            throw new IllegalStateException("No free cells in map");
+        return ret;
+    }
+
+    /**
+     * Inventory occupancy matrix, rows by columns, with the given share of
+     * cells taken by items of sizes 1x1 to 2x2
+     */
+    public static short[][] inventory(Coord isz, double fill, long seed)
+    {
+        Random rnd = new Random(seed);
+        short[][] ret = new short[isz.y][isz.x];
+        for (int n = 0; n < isz.x * isz.y * fill; n++)
+        {
+            int w = 1 + rnd.nextInt(2), h = 1 + rnd.nextInt(2);
+            int x = rnd.nextInt(isz.x - w + 1), y = rnd.nextInt(isz.y - h + 1);
+            for (int i = y; i < y + h; i++)
+                for (int j = x; j < x + w; j++)
+                    ret[i][j] = 1;
+        }
+        return ret;
+    }
+
+    /**
+     * Occupancy grid of an inventory matrix, with one item per taken cell
+     */
+    public static InventoryGrid occupancy(short[][] m)
+    {
+        InventoryGrid ret = new InventoryGrid();
+        ret.reset(new Coord(m[0].length, m.length), null);
+        for (int y = 0; y < m.length; y++)
+        {
+            for (int x = 0; x < m[y].length; x++)
+            {
+                if (m[y][x] != 0)
+                    ret.add(y * m[y].length + x, new Coord(x, y), new Coord(1, 1));
+            }
+        }
+        return ret;
+    }
+
+    public static short[][] copy(short[][] m)
+    {
+        short[][] ret = new short[m.length][];
+        for (int i = 0; i < m.length; i++)
+            ret[i] = m[i].clone();
+        return ret;
+    }
+
+    /**
+     * Map file storage kept in memory
+     */
+    public static class MemCache implements ResCache
+    {
+        public final Map<String, byte[]> files = new HashMap<>();
+
+        public OutputStream store(String name)
+        {
+            return new ByteArrayOutputStream()
+            {
+                public void close()
+                {
+                    files.put(name, toByteArray());
+                }
+            };
+        }
+
+        public InputStream fetch(String name) throws IOException
+        {
+            byte[] data = files.get(name);
+            if (data == null)
+                throw new FileNotFoundException(name);
+            return new ByteArrayInputStream(data);
+        }
+    }
+
+    /**
+     * Map grid with noise-like tiles and heights and one overlay
+     */
+    public static MapFile.Grid grid(long id, long seed)
+    {
+        Random rnd = new Random(seed);
+        Coord cm = MCache.cmaps;
+        String[] names = {"gfx/tiles/grass", "gfx/tiles/dirt", "gfx/tiles/water", "gfx/tiles/deep", "gfx/tiles/rocks/granite", "gfx/tiles/moor"};
+        MapFile.TileInfo[] sets = new MapFile.TileInfo[names.length];
+        for (int i = 0; i < names.length; i++)
+            sets[i] = new MapFile.TileInfo(new Resource.Saved(Resource.remote(), names[i], 1), i);
+        int[] tiles = new int[cm.x * cm.y];
+        float[] zmap = new float[cm.x * cm.y];
+        boolean[] ol = new boolean[cm.x * cm.y];
+        for (int y = 0; y < cm.y; y++)
+        {
+            for (int x = 0; x < cm.x; x++)
+            {
+                int i = x + y * cm.x;
+                tiles[i] = ((x / 10) + (y / 10) + rnd.nextInt(2)) % sets.length;
+                zmap[i] = (float) (Math.sin(x * 0.1) * Math.cos(y * 0.07) * 40 + rnd.nextGaussian());
+                ol[i] = (x > 20) && (x < 40) && (y > 30) && (y < 60);
+            }
+        }
+        MapFile.Grid ret = new MapFile.Grid(id, sets, tiles, zmap, 0);
+        ret.ols.add(new MapFile.Overlay(new Resource.Saved(Resource.remote(), "gfx/tiles/ols/claim", 1), ol));
+        return ret;
+    }
+
+    /**
+     * Raw resources of a resource jar, by resource name
+     */
+    public static Map<String, byte[]> resources(int max) throws IOException
+    {
+        Map<String, byte[]> ret = new TreeMap<>();
+        File jar = new File(System.getProperty("bench.resjar", "lib/ext/hafen-res.jar"));
+        if (!jar.isFile())
+            return ret;
+        try (JarFile fp = new JarFile(jar))
+        {
+            for (Enumeration<JarEntry> e = fp.entries(); e.hasMoreElements() && (ret.size() < max); )
+            {
+                JarEntry ent = e.nextElement();
+                String nm = ent.getName();
+                if (!nm.endsWith(".res"))
+                    continue;
+                if (nm.startsWith("res/"))
+                    nm = nm.substring(4);
+                try (InputStream in = fp.getInputStream(ent))
+                {
+                    ret.put(nm.substring(0, nm.length() - 4), Utils.readall(in));
+                }
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,284 @@
+package nurgling.bench;
+
+import haven.*;
+import nurgling.pf.Graph;
+import nurgling.pf.NPFMap;
+import nurgling.tools.InventoryGrid;
+import nurgling.tools.NAlias;
+import nurgling.tools.NClassifier;
+import nurgling.tools.NParser;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Offline benchmarks of the path finder, inventory packing, the map file
+ * grid codec, resource decoding and alias matching. Needs neither a server
+ * nor a display; results are written as JSON in the layout JMH uses, so
+ * they can be compared between builds with the usual JMH tooling.
+ * <p>
+ * Usage: nurgling.bench.Suite [-o FILE] [-w N] [-i N] [-t MS] [REGEX]
+ */
+public class Suite
+{
+    private static List<Bench> benches() throws IOException
+    {
+        List<Bench> ret = new ArrayList<>();
+
+        Map<String, NPFMap> maps = new LinkedHashMap<>();
+        maps.put("synthetic-128", Fixtures.obstacles(128, 0.25, Fixtures.SEED));
+        maps.put("synthetic-256", Fixtures.obstacles(256, 0.25, Fixtures.SEED + 1));
+        for (Map.Entry<String, NPFMap> e : Fixtures.recorded().entrySet())
+            maps.put("recorded-" + e.getKey(), e.getValue());
+        for (Map.Entry<String, NPFMap> e : maps.entrySet())
+        {
+            NPFMap map = e.getValue();
+            ret.add(new Bench("pf.Graph.run:" + e.getKey())
+            {
+                Coord[] ends;
+
+                public void setup()
+                {
+                    ends = Fixtures.endpoints(map, Fixtures.SEED);
+                }
+
+                public Object op()
+                {
+                    Graph g = new Graph(map, ends[0], ends[1]);
+                    g.run();
+                    return g.path;
+                }
+            });
+        }
+
+        for (Coord isz : new Coord[]{new Coord(8, 4), new Coord(16, 16)})
+        {
+            for (double fill : new double[]{0.3, 0.8})
+            {
+                String id = String.format("%dx%d-%d%%", isz.x, isz.y, (int) (fill * 100));
+                short[][] inv = Fixtures.inventory(isz, fill, Fixtures.SEED);
+                ret.add(new Bench("InventoryGrid.findFreeCoord:" + id)
+                {
+                    public Object op()
+                    {
+                        return InventoryGrid.findFreeCoord(inv, new Coord(2, 2));
+                    }
+                });
+                /* Placing items fills the matrix in, so each call works on a
+                 * fresh copy; the copy is part of the measured time. */
+                ret.add(new Bench("InventoryGrid.calcNumberFreeCoord:" + id)
+                {
+                    public Object op()
+                    {
+                        return InventoryGrid.calcNumberFreeCoord(Fixtures.copy(inv), new Coord(1, 1));
+                    }
+                });
+                InventoryGrid occ = Fixtures.occupancy(inv);
+                ret.add(new Bench("InventoryGrid.find:" + id)
+                {
+                    public Object op()
+                    {
+                        return occ.find(new Coord(2, 2));
+                    }
+                });
+                ret.add(new Bench("InventoryGrid.count:" + id)
+                {
+                    public Object op()
+                    {
+                        return occ.count(new Coord(1, 1));
+                    }
+                });
+            }
+        }
+
+        ret.add(new Bench("MapFile.Grid.save")
+        {
+            MapFile file;
+            MapFile.Grid grid;
+
+            public void setup() throws IOException
+            {
+                file = MapFile.load(new Fixtures.MemCache(), "");
+                grid = Fixtures.grid(1, Fixtures.SEED);
+            }
+
+            public Object op()
+            {
+                grid.save(file);
+                return file;
+            }
+        });
+        ret.add(new Bench("MapFile.Grid.load")
+        {
+            MapFile file;
+
+            public void setup() throws IOException
+            {
+                file = MapFile.load(new Fixtures.MemCache(), "");
+                Fixtures.grid(1, Fixtures.SEED).save(file);
+            }
+
+            public Object op()
+            {
+                return MapFile.Grid.load(file, 1);
+            }
+        });
+
+        Map<String, byte[]> res = Fixtures.resources(Integer.getInteger("bench.resmax", 2000));
+        if (!res.isEmpty())
+        {
+            ret.add(new Bench("Resource.decode:jar")
+            {
+                final List<Map.Entry<String, byte[]>> ok = new ArrayList<>();
+                int next = 0;
+
+                /* Resources whose layers cannot be decoded without a
+                 * running client are left out. */
+                public void setup()
+                {
+                    Resource.Pool pool = new Resource.Pool();
+                    for (Map.Entry<String, byte[]> e : res.entrySet())
+                    {
+                        try
+                        {
+                            pool.decode(e.getKey(), new MessageBuf(e.getValue()));
+                            ok.add(e);
+                        }
+                        catch (RuntimeException | LinkageError ex)
+                        {
+                        }
+                    }
+                    if (ok.isEmpty())
+                        throw new IllegalStateException("No decodable resources");
+                }
+
+                public Object op()
+                {
+                    Map.Entry<String, byte[]> e = ok.get(next);
+                    next = (next + 1) % ok.size();
+                    return new Resource.Pool().decode(e.getKey(), new MessageBuf(e.getValue()));
+                }
+            });
+        }
+        else
+        {
+            System.err.println("No resource jar found; skipping resource decoding (set bench.resjar)");
+        }
+
+        String[] names = {
+                "gfx/terobjs/trees/oak", "gfx/terobjs/trees/oaklog", "gfx/terobjs/bushes/arrowwood",
+                "gfx/terobjs/bumlings/granite", "gfx/terobjs/chest", "gfx/terobjs/cupboard",
+                "gfx/terobjs/plants/carrot", "gfx/kritter/cattle/cattle", "gfx/borka/body",
+                "gfx/terobjs/vehicle/wagon", "gfx/terobjs/arch/palisadeseg", "gfx/terobjs/minebeam",
+                "gfx/terobjs/stockpile-board", "gfx/invobjs/small/bone", "gfx/terobjs/dframe"
+        };
+        List<NAlias> aliases = new ArrayList<>();
+        for (NClassifier.Category cat : NClassifier.Category.values())
+            aliases.add(NClassifier.definition(cat));
+        ret.add(new Bench("NParser.checkName:classifier")
+        {
+            int next = 0;
+
+            public Object op()
+            {
+                String nm = names[next];
+                next = (next + 1) % names.length;
+                int ret = 0;
+                for (NAlias alias : aliases)
+                    ret = (ret << 1) | (NParser.checkName(nm, alias) ? 1 : 0);
+                return ret;
+            }
+        });
+        return ret;
+    }
+
+    private static JSONObject json(Bench.Result r, int iterations)
+    {
+        JSONObject metric = new JSONObject();
+        double score = r.score(), err = r.error();
+        metric.put("score", score);
+        metric.put("scoreError", Double.isNaN(err) ? "NaN" : err);
+        metric.put("scoreConfidence", new JSONArray(Arrays.asList(score - (Double.isNaN(err) ? 0 : err), score + (Double.isNaN(err) ? 0 : err))));
+        metric.put("scoreUnit", "ns/op");
+        JSONArray raw = new JSONArray();
+        for (double v : r.raw)
+            raw.put(v);
+        metric.put("rawData", new JSONArray().put(raw));
+        JSONObject ret = new JSONObject();
+        ret.put("benchmark", r.bench.name);
+        ret.put("mode", "avgt");
+        ret.put("threads", 1);
+        ret.put("forks", 0);
+        ret.put("jvm", System.getProperty("java.home"));
+        ret.put("vmVersion", System.getProperty("java.vm.version"));
+        ret.put("warmupIterations", r.warmups);
+        ret.put("measurementIterations", iterations);
+        ret.put("primaryMetric", metric);
+        return ret;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        System.setProperty("java.awt.headless", "true");
+        PosixArgs opt = PosixArgs.getopt(args, "ho:w:i:t:");
+        if ((opt == null) || (opt.rest.length > 1))
+        {
+            System.err.println("usage: nurgling.bench.Suite [-o FILE] [-w WARMUPS] [-i ITERATIONS] [-t MILLIS] [REGEX]");
+            System.exit(1);
+        }
+        Path out = null;
+        int warmups = 5, iterations = 5;
+        long millis = 500;
+        for (char c : opt.parsed())
+        {
+            switch (c)
+            {
+                case 'o':
+                    out = Paths.get(opt.arg);
+                    break;
+                case 'w':
+                    warmups = Integer.parseInt(opt.arg);
+                    break;
+                case 'i':
+                    iterations = Integer.parseInt(opt.arg);
+                    break;
+                case 't':
+                    millis = Long.parseLong(opt.arg);
+                    break;
+                case 'h':
+                    System.err.println("usage: nurgling.bench.Suite [-o FILE] [-w WARMUPS] [-i ITERATIONS] [-t MILLIS] [REGEX]");
+                    System.exit(0);
+            }
+        }
+        Pattern filter = (opt.rest.length > 0) ? Pattern.compile(opt.rest[0]) : null;
+        JSONArray results = new JSONArray();
+        for (Bench b : benches())
+        {
+            if ((filter != null) && !filter.matcher(b.name).find())
+                continue;
+            try
+            {
+                b.setup();
+                Bench.Result r = b.measure(warmups, millis * 400000, iterations, millis * 1000000);
+                System.out.printf("%-48s %14.1f +- %10.1f ns/op%n", b.name, r.score(), r.error());
+                results.put(json(r, iterations));
+            }
+            catch (Exception | LinkageError e)
+            {
+                System.err.printf("%s: failed: %s%n", b.name, e);
+            }
+        }
+        if (out != null)
+        {
+            if (out.getParent() != null)
+                Files.createDirectories(out.getParent());
+            Files.write(out, results.toString(2).getBytes(StandardCharsets.UTF_8));
+        }
+        System.exit(0);
+    }
+}
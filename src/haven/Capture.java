@@ -0,0 +1,338 @@
+/*
+ *  This file is part of the Haven & Hearth game client.
+ *  Copyright (C) 2009 Fredrik Tolf <fredrik@dolda2000.com>, and
+ *                     Björn Johannessen <johannessen.bjorn@gmail.com>
+ *
+ *  Redistribution and/or modification of this file is subject to the
+ *  terms of the GNU Lesser General Public License, version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  Other parts of this source tree adhere to other copying
+ *  rights. Please see the file `COPYING' in the root directory of the
+ *  source tree for details.
+ *
+ *  A copy the GNU Lesser General Public License is distributed along
+ *  with the source in the file `COPYING'.
+ *
+ *  Additionally, as a special exception, the copyright holders of
+ *  this program give you permission to combine this program with
+ *  non-free libraries and use them in the same program, as well as to
+ *  convey the resulting program, under the terms of the GNU Lesser
+ *  General Public License, version 3, and the terms of the licenses
+ *  of the non-free libraries.
+ */
+
+package haven;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+
+/* Binary capture of the traffic a session receives, and a headless
+ * player for it. Unlike Connection.Callback.Dumper, the recorder
+ * only copies message bodies into a buffered stream, so it is cheap
+ * enough to leave on; and captures can be fed back into a Session,
+ * its OCache and its MCache without a server or a GPU, which gives
+ * a reproducible benchmark of message decoding, object delta
+ * application and map grid loading.
+ *
+ * A capture begins with the magic and version, followed by records
+ * of a one-byte kind, the time since the previous record in
+ * microseconds as a varint, and a kind-specific body. */
+public class Capture {
+    public static final Config.Variable<Path> dir = Config.Variable.propp("haven.capture", "");
+    public static final int MAGIC = 0x48436170;
+    public static final int VERSION = 1;
+    public static final int REC_REL = 1, REC_OBJD = 2, REC_MAP = 3, REC_CLOSE = 4;
+
+    private static void uvar(DataOutputStream out, long v) throws IOException {
+	while((v & ~0x7fL) != 0) {
+	    out.writeByte((int)((v & 0x7f) | 0x80));
+	    v >>>= 7;
+	}
+	out.writeByte((int)v);
+    }
+
+    private static long uvar(DataInputStream in) throws IOException {
+	long ret = 0;
+	for(int sh = 0;; sh += 7) {
+	    int b = in.readUnsignedByte();
+	    ret |= (long)(b & 0x7f) << sh;
+	    if((b & 0x80) == 0)
+		return(ret);
+	}
+    }
+
+    private static void blob(DataOutputStream out, byte[] data) throws IOException {
+	uvar(out, data.length);
+	out.write(data);
+    }
+
+    private static byte[] blob(DataInputStream in) throws IOException {
+	byte[] ret = new byte[(int)uvar(in)];
+	in.readFully(ret);
+	return(ret);
+    }
+
+    public static class Recorder implements Connection.Callback {
+	private static final double FLUSH = 1.0;
+	public final DataOutputStream out;
+	private long last;
+	private double lflush;
+	private boolean broken = false;
+
+	public Recorder(OutputStream out) throws IOException {
+	    this.out = new DataOutputStream(new BufferedOutputStream(out, 65536));
+	    this.out.writeInt(MAGIC);
+	    this.out.writeByte(VERSION);
+	    this.last = System.nanoTime();
+	    this.lflush = Utils.rtime();
+	}
+
+	/* Creates a recorder writing to a new, timestamped file in
+	 * the given directory. */
+	public static Recorder todir(Path dir) throws IOException {
+	    Files.createDirectories(dir);
+	    String nm = "session-" + DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").format(LocalDateTime.now()) + ".hcap";
+	    return(new Recorder(Files.newOutputStream(dir.resolve(nm))));
+	}
+
+	private void head(int kind) throws IOException {
+	    long now = System.nanoTime();
+	    out.writeByte(kind);
+	    uvar(out, Math.max((now - last) / 1000, 0));
+	    last = now;
+	}
+
+	private void done() throws IOException {
+	    double now = Utils.rtime();
+	    if(now - lflush > FLUSH) {
+		out.flush();
+		lflush = now;
+	    }
+	}
+
+	private void fail(IOException e) {
+	    if(!broken) {
+		broken = true;
+		new Warning(e, "session capture stopped").issue();
+	    }
+	}
+
+	public void handle(PMessage msg) {
+	    if(broken)
+		return;
+	    try {
+		head(REC_REL);
+		out.writeByte(msg.type);
+		blob(out, msg.bytes());
+		done();
+	    } catch(IOException e) {
+		fail(e);
+	    }
+	}
+
+	public void handle(OCache.ObjDelta delta) {
+	    if(broken)
+		return;
+	    try {
+		head(REC_OBJD);
+		out.writeByte(delta.fl);
+		out.writeInt((int)delta.id);
+		out.writeInt(delta.frame);
+		out.writeInt(delta.initframe);
+		out.writeBoolean(delta.rem);
+		uvar(out, delta.attrs.size());
+		for(OCache.AttrDelta attr : delta.attrs) {
+		    out.writeByte(attr.type);
+		    blob(out, attr.bytes());
+		}
+		done();
+	    } catch(IOException e) {
+		fail(e);
+	    }
+	}
+
+	public void mapdata(Message msg) {
+	    if(broken)
+		return;
+	    try {
+		head(REC_MAP);
+		blob(out, msg.bytes());
+		done();
+	    } catch(IOException e) {
+		fail(e);
+	    }
+	}
+
+	public void closed() {
+	    try {
+		if(!broken)
+		    head(REC_CLOSE);
+		out.close();
+	    } catch(IOException e) {
+		fail(e);
+	    }
+	}
+    }
+
+    public static class Stats {
+	public long rel, objd, attrs, map, bytes;
+	public double time;
+
+	public String toString() {
+	    double t = Math.max(time, 1e-6);
+	    long n = rel + objd + map;
+	    return(String.format("%,d records (%,d rel, %,d objd with %,d attrs, %,d map), %,d bytes in %.3f s: %,.0f records/s, %,.1f MB/s",
+				 n, rel, objd, attrs, map, bytes, time, n / t, bytes / t / 1e6));
+	}
+    }
+
+    /* Plays a capture back into a callback, such as the one returned
+     * by Connection.injector(). At a speed of zero, records are
+     * played as fast as the callback accepts them; otherwise at that
+     * multiple of their recorded pace. */
+    public static class Player {
+	public final DataInputStream in;
+	public final double speed;
+	public final Stats stats = new Stats();
+
+	public Player(InputStream in, double speed) throws IOException {
+	    this.in = new DataInputStream(new BufferedInputStream(in, 65536));
+	    this.speed = speed;
+	    if(this.in.readInt() != MAGIC)
+		throw(new IOException("not a session capture"));
+	    int ver = this.in.readUnsignedByte();
+	    if(ver != VERSION)
+		throw(new IOException("unsupported capture version: " + ver));
+	}
+
+	public void play(Connection.Callback cb) throws IOException, InterruptedException {
+	    long start = System.nanoTime(), rt = 0;
+	    try {
+		while(true) {
+		    int kind;
+		    try {
+			kind = in.readUnsignedByte();
+		    } catch(EOFException e) {
+			break;
+		    }
+		    rt += uvar(in);
+		    if(speed > 0) {
+			long wait = (long)(rt * 1000 / speed) - (System.nanoTime() - start);
+			if(wait > 0)
+			    Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+		    }
+		    if(kind == REC_CLOSE)
+			break;
+		    play(kind, cb);
+		}
+	    } catch(EOFException e) {
+		/* A capture that was cut short ends with a partial
+		 * record, which is simply left out. */
+	    } finally {
+		stats.time = (System.nanoTime() - start) / 1e9;
+		cb.closed();
+	    }
+	}
+
+	private void play(int kind, Connection.Callback cb) throws IOException {
+	    switch(kind) {
+	    case REC_REL: {
+		int type = in.readUnsignedByte();
+		byte[] data = blob(in);
+		stats.rel++;
+		stats.bytes += data.length;
+		cb.handle(new PMessage(type, data));
+		break;
+	    }
+	    case REC_OBJD: {
+		int fl = in.readUnsignedByte();
+		long id = in.readInt() & 0xffffffffL;
+		int frame = in.readInt();
+		OCache.ObjDelta delta = new OCache.ObjDelta(fl, id, frame);
+		delta.initframe = in.readInt();
+		delta.rem = in.readBoolean();
+		for(int i = 0, n = (int)uvar(in); i < n; i++) {
+		    int type = in.readUnsignedByte();
+		    byte[] data = blob(in);
+		    delta.attrs.add(new OCache.AttrDelta(delta, type, new MessageBuf(data), data.length));
+		    stats.attrs++;
+		    stats.bytes += data.length;
+		}
+		stats.objd++;
+		cb.handle(delta);
+		break;
+	    }
+	    case REC_MAP: {
+		byte[] data = blob(in);
+		stats.map++;
+		stats.bytes += data.length;
+		cb.mapdata(new MessageBuf(data));
+		break;
+	    }
+	    default:
+		throw(new IOException("unknown capture record: " + kind));
+	    }
+	}
+    }
+
+    /* Headless replay of a capture into an offline session, printing
+     * throughput figures. Object deltas are applied and map grids
+     * decoded as in the client, but no UI is created, so UI messages
+     * are only counted. */
+    public static void main(String[] args) throws Exception {
+	System.setProperty("java.awt.headless", "true");
+	PosixArgs opt = PosixArgs.getopt(args, "hs:");
+	if((opt == null) || (opt.rest.length != 1)) {
+	    System.err.println("usage: haven.Capture [-s SPEED] CAPTURE-FILE");
+	    System.exit(1);
+	}
+	double speed = 0;
+	for(char c : opt.parsed()) {
+	    switch(c) {
+	    case 's':
+		speed = Double.parseDouble(opt.arg);
+		break;
+	    case 'h':
+		System.err.println("usage: haven.Capture [-s SPEED] CAPTURE-FILE");
+		System.exit(0);
+	    }
+	}
+	Connection conn = Connection.offline();
+	Session sess = new Session(conn, new Session.User("replay"));
+	Player player;
+	try(InputStream fp = Files.newInputStream(Utils.path(opt.rest[0]))) {
+	    player = new Player(fp, speed);
+	    Thread drain = new HackThread(() -> {
+		    try {
+			while(sess.getuimsg() != null);
+		    } catch(InterruptedException e) {
+		    }
+	    }, "Capture UI message drain");
+	    drain.setDaemon(true);
+	    drain.start();
+	    player.play(conn.injector());
+	}
+	System.out.println(player.stats);
+	int gobs = 0;
+	synchronized(sess.glob.oc) {
+	    for(Gob gob : sess.glob.oc)
+		gobs++;
+	}
+	int grids;
+	synchronized(sess.glob.map.grids) {
+	    grids = sess.glob.map.grids.size();
+	}
+	System.out.printf("%,d objects, %,d map grids; loader: %s%n", gobs, grids, sess.glob.loader.stats());
+	System.exit(0);
+    }
+}
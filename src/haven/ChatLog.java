@@ -0,0 +1,226 @@
+package haven;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import static haven.Utils.pj;
+
+/* Append-only log of the chat messages that have fallen out of a
+ * channel's in-memory history. One line is kept per message, and
+ * the file is divided into blocks of a fixed number of lines, each
+ * summarized by a small bit signature of the words it contains, so
+ * that searching only needs to read the blocks that may match. The
+ * signatures are built from the file the first time it is searched,
+ * and kept up to date as lines are appended after that. */
+public class ChatLog {
+    public static final Config.Variable<Boolean> enabled = Config.Variable.propb("haven.chatlog", true);
+    private static final int BLOCKLINES = 64;
+    private static final int SIGWORDS = 4;
+    private static final DateTimeFormatter tfmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Map<Path, ChatLog> open = new HashMap<>();
+    public final Path path;
+    private final Collection<String> pending = new ArrayList<>();
+    private boolean flushing = false;
+    private List<Block> blocks = null;
+    private long end = 0;
+
+    private static class Block {
+	final long off;
+	long len = 0;
+	int lines = 0;
+	final long[] sig = new long[SIGWORDS];
+
+	Block(long off) {this.off = off;}
+
+	void add(String line, long len) {
+	    for(String w : words(line))
+		mark(sig, w);
+	    this.len += len;
+	    this.lines++;
+	}
+    }
+
+    private ChatLog(Path path) {
+	this.path = path;
+    }
+
+    public static ChatLog get(Path path) {
+	synchronized(open) {
+	    return(open.computeIfAbsent(path, ChatLog::new));
+	}
+    }
+
+    private static String fsname(String nm) {
+	StringBuilder buf = new StringBuilder();
+	for(int i = 0; i < nm.length(); i++) {
+	    char c = nm.charAt(i);
+	    buf.append((Character.isLetterOrDigit(c) || (c == '-') || (c == ' ')) ? c : '_');
+	}
+	return((buf.length() == 0) ? "_" : buf.toString());
+    }
+
+    public static ChatLog forchan(String owner, String chan) {
+	Path dir = pj(HashDirCache.findbase(), "chatlog");
+	if((owner != null) && !owner.isEmpty())
+	    dir = pj(dir, fsname(owner));
+	return(get(pj(dir, fsname(chan) + ".log")));
+    }
+
+    public static String format(double time, String text) {
+	LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli((long)(time * 1000)), ZoneId.systemDefault());
+	return(tfmt.format(t) + "\t" + text.replace('\n', ' ').replace('\r', ' '));
+    }
+
+    static List<String> words(String text) {
+	List<String> ret = new ArrayList<>();
+	int s = -1;
+	for(int i = 0; i <= text.length(); i++) {
+	    boolean w = (i < text.length()) && Character.isLetterOrDigit(text.charAt(i));
+	    if(w && (s < 0)) {
+		s = i;
+	    } else if(!w && (s >= 0)) {
+		ret.add(text.substring(s, i).toLowerCase());
+		s = -1;
+	    }
+	}
+	return(ret);
+    }
+
+    private static void mark(long[] sig, String w) {
+	int h = w.hashCode();
+	int a = h & 0xff, b = (h >>> 8) & 0xff;
+	sig[a >> 6] |= 1L << (a & 63);
+	sig[b >> 6] |= 1L << (b & 63);
+    }
+
+    private static boolean covers(long[] sig, long[] q) {
+	for(int i = 0; i < SIGWORDS; i++) {
+	    if((sig[i] & q[i]) != q[i])
+		return(false);
+	}
+	return(true);
+    }
+
+    /* Queues lines for writing; the file itself is written in the
+     * background, in the order lines were queued. */
+    public void append(Collection<String> lines) {
+	synchronized(this) {
+	    pending.addAll(lines);
+	    if(flushing)
+		return;
+	    flushing = true;
+	}
+	Defer.later(this::flush, null);
+    }
+
+    private void flush() {
+	while(true) {
+	    List<String> lines;
+	    synchronized(this) {
+		if(pending.isEmpty()) {
+		    flushing = false;
+		    return;
+		}
+		lines = new ArrayList<>(pending);
+		pending.clear();
+	    }
+	    synchronized(path) {
+		write(lines);
+	    }
+	}
+    }
+
+    private void write(List<String> lines) {
+	try {
+	    Files.createDirectories(path.getParent());
+	    try(OutputStream fp = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+		for(String line : lines) {
+		    byte[] data = (line + "\n").getBytes(StandardCharsets.UTF_8);
+		    fp.write(data);
+		    synchronized(this) {
+			if(blocks != null)
+			    index(line, data.length);
+		    }
+		}
+	    }
+	} catch(IOException e) {
+	    new Warning(e, "could not write chat log " + path).issue();
+	}
+    }
+
+    private void index(String line, long len) {
+	Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+	if((last == null) || (last.lines >= BLOCKLINES))
+	    blocks.add(last = new Block(end));
+	last.add(line, len);
+	end += len;
+    }
+
+    private void scan() throws IOException {
+	blocks = new ArrayList<>();
+	end = 0;
+	if(!Files.exists(path))
+	    return;
+	try(InputStream fp = new BufferedInputStream(Files.newInputStream(path))) {
+	    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+	    int c;
+	    while((c = fp.read()) >= 0) {
+		buf.write(c);
+		if(c == '\n') {
+		    index(new String(buf.toByteArray(), StandardCharsets.UTF_8), buf.size());
+		    buf.reset();
+		}
+	    }
+	}
+    }
+
+    private List<String> read(Block blk) throws IOException {
+	byte[] data = new byte[(int)blk.len];
+	try(RandomAccessFile fp = new RandomAccessFile(path.toFile(), "r")) {
+	    fp.seek(blk.off);
+	    fp.readFully(data);
+	}
+	return(Arrays.asList(new String(data, StandardCharsets.UTF_8).split("\n")));
+    }
+
+    /* Returns the logged lines containing all the words of the query
+     * (case-insensitively), oldest first, at most the last max of
+     * them. */
+    public List<String> search(String query, int max) {
+	List<String> qw = words(query);
+	if(qw.isEmpty())
+	    return(Collections.emptyList());
+	long[] qs = new long[SIGWORDS];
+	for(String w : qw)
+	    mark(qs, w);
+	LinkedList<String> ret = new LinkedList<>();
+	synchronized(path) {
+	    try {
+		List<Block> cand = new ArrayList<>();
+		synchronized(this) {
+		    if(blocks == null)
+			scan();
+		    for(Block blk : blocks) {
+			if(covers(blk.sig, qs))
+			    cand.add(blk);
+		    }
+		}
+		for(Block blk : cand) {
+		    for(String line : read(blk)) {
+			if(words(line).containsAll(qw)) {
+			    ret.add(line);
+			    if(ret.size() > max)
+				ret.removeFirst();
+			}
+		    }
+		}
+	    } catch(IOException e) {
+		new Warning(e, "could not search chat log " + path).issue();
+	    }
+	}
+	return(ret);
+    }
+}
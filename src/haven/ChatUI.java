@@ -43,7 +43,7 @@ import java.util.regex.*;
 import java.io.IOException;
 import java.awt.datatransfer.*;
 
-public class ChatUI extends Widget
+public class ChatUI extends Widget implements Console.Directory
 {
     public static final RichText.Foundry fnd = new RichText.Foundry(new ChatParser(TextAttribute.FONT, Text.dfont.deriveFont(UI.scale(14f)), TextAttribute.FOREGROUND, Color.BLACK)).aa(true);
     public static final Text.Foundry qfnd = new Text.Foundry(Text.dfont, 12, new java.awt.Color(192, 255, 192));
@@ -76,6 +76,24 @@ public class ChatUI extends Widget
 	resize(this.sz);
     }
 
+    private final Map<String, Console.Command> cmdmap = new TreeMap<String, Console.Command>();
+    {
+	cmdmap.put("chatfind", new Console.Command() {
+		public void run(Console cons, String[] args) throws Exception {
+		    if(args.length < 2)
+			throw(new Exception("usage: chatfind WORDS..."));
+		    if(sel == null)
+			throw(new Exception("No channel selected"));
+		    String q = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+		    for(String line : sel.search(q, 100))
+			cons.out.println(line);
+		}
+	    });
+    }
+    public Map<String, Console.Command> findcmds() {
+	return(cmdmap);
+    }
+
     public static class ChatAttribute extends Attribute {
 	private ChatAttribute(String name) {
 	    super(name);
@@ -127,7 +145,12 @@ public class ChatUI extends Widget
     }
 
     public static abstract class Channel extends Widget {
+	/* Number of messages kept in memory per channel; older ones
+	 * are dropped, in chunks, into the channel's ChatLog. */
+	public static final Config.Variable<Integer> histlen = Config.Variable.propi("haven.chathistory", 1000);
 	public final List<RenderedMessage> rmsgs = new ArrayList<>();
+	private int nextidx = 0;
+	private ChatLog log = null;
 	public int urgency = 0;
 	private final Scrollbar sb;
 	private final IButton cb;
@@ -235,6 +258,9 @@ public class ChatUI extends Widget
 	    public boolean valid(Indir<Text> prev) {
 		return(true);
 	    }
+	    /* Plain text of the message for the channel log, or null
+	     * if it should not be logged. */
+	    public String logtext() {return(null);}
 	    public boolean mousedown(Channel chan, CharPos pos, Coord c, int btn) {return(false);}
 	    public boolean mouseup(Channel chan, CharPos pos, Coord c, int btn) {return(false);}
 	    public boolean clicked(Channel chan, CharPos pos, Coord c, int btn) {return(false);}
@@ -298,10 +324,19 @@ public class ChatUI extends Widget
 		return(text);
 	    }
 
+	    /* Measuring a message does not keep its rendering around;
+	     * only messages actually drawn hold on to their text. */
 	    private Coord sz = null;
 	    public int h() {
-		if(sz == null)
-		    sz = text().sz();
+		if(sz == null) {
+		    if(text != null) {
+			sz = text.sz();
+		    } else {
+			Text t = data().get();
+			sz = t.sz();
+			t.dispose();
+		    }
+		}
 		return(sz.y);
 	    }
 
@@ -351,6 +386,7 @@ public class ChatUI extends Widget
 	public static class SimpleMessage extends Message {
 	    public String text;
 	    public final Color col;
+	    private boolean stamped = false;
 
 	    public SimpleMessage(String text, Color col) {
 		this.text = text;
@@ -358,12 +394,20 @@ public class ChatUI extends Widget
 	    }
 
 	    public Indir<Text> render(int w) {
-		text = NUtils.timestamp(text);
+		if(!stamped) {
+		    text = NUtils.timestamp(text);
+		    stamped = true;
+		}
+		String text = this.text;
 		if(col == null)
 		    return(() -> fnd.render(RichText.Parser.quote(text), w));
 		else
 		    return(() -> fnd.render(RichText.Parser.quote(text), w, TextAttribute.FOREGROUND, col));
 	    }
+
+	    public String logtext() {
+		return(text);
+	    }
 	}
 
 	public Channel(boolean closable) {
@@ -374,9 +418,82 @@ public class ChatUI extends Widget
 		cb = null;
 	}
 
+	private void spill(List<RenderedMessage> old) {
+	    if(!ChatLog.enabled.get())
+		return;
+	    if(log == null) {
+		GameUI gui = getparent(GameUI.class);
+		log = ChatLog.forchan((gui == null) ? null : gui.chrid, name());
+	    }
+	    List<String> lines = new ArrayList<>();
+	    for(RenderedMessage rm : old) {
+		String text = rm.msg.logtext();
+		if(text != null)
+		    lines.add(ChatLog.format(rm.msg.time, text));
+	    }
+	    if(!lines.isEmpty())
+		log.append(lines);
+	}
+
+	/* Drops the oldest eighth of the history once it is full, so
+	 * that the shifting of the remaining messages is amortized. */
+	private void trimhist() {
+	    int max = histlen.get();
+	    if((max <= 0) || (rmsgs.size() < max))
+		return;
+	    int n = Math.max(rmsgs.size() - max + 1, max / 8);
+	    List<RenderedMessage> old = rmsgs.subList(0, n);
+	    try {
+		spill(old);
+	    } catch(RuntimeException e) {
+		new Warning(e, "could not log chat history").issue();
+	    }
+	    for(RenderedMessage rm : old)
+		rm.invalidate();
+	    if((selstart != null) && (selstart.rm.idx <= old.get(n - 1).idx))
+		selstart = selend = null;
+	    old.clear();
+	    if(!rmsgs.isEmpty()) {
+		int dy = rmsgs.get(0).y;
+		for(RenderedMessage rm : rmsgs)
+		    rm.y -= dy;
+		sb.max -= dy;
+		sb.val = Math.max(sb.val - dy, sb.min);
+		this.dy = Math.max(this.dy - dy, 0);
+	    }
+	}
+
+	private RenderedMessage msgbyidx(int idx) {
+	    int i = idx - rmsgs.get(0).idx;
+	    return(((i < 0) || (i >= rmsgs.size())) ? null : rmsgs.get(i));
+	}
+
+	/* Returns the lines of the channel history containing all the
+	 * words of the query, oldest first, including those already
+	 * dropped from memory into the channel log. */
+	public List<String> search(String query, int max) {
+	    LinkedList<String> ret = new LinkedList<>();
+	    if(log != null)
+		ret.addAll(log.search(query, max));
+	    List<String> qw = ChatLog.words(query);
+	    if(qw.isEmpty())
+		return(ret);
+	    synchronized(rmsgs) {
+		for(RenderedMessage rm : rmsgs) {
+		    String text = rm.msg.logtext();
+		    if((text != null) && ChatLog.words(text).containsAll(qw))
+			ret.add(ChatLog.format(rm.msg.time, text));
+		}
+	    }
+	    while(ret.size() > max)
+		ret.removeFirst();
+	    return(ret);
+	}
+
 	public void append(Message msg, int urgency) {
 	    synchronized(rmsgs) {
-		RenderedMessage rm = new RenderedMessage(msg, rmsgs.size(), iw());
+		trimhist();
+		RenderedMessage rm = new RenderedMessage(msg, nextidx++, iw());
 		if(rmsgs.isEmpty()) {
 		    rm.y = 0;
 		} else {
@@ -702,8 +819,8 @@ public class ChatUI extends Widget
 	    StringBuilder buf = new StringBuilder();
 	    synchronized(rmsgs) {
 		for(int mi = start.rm.idx; mi <= end.rm.idx; mi++) {
-		    RenderedMessage rm = rmsgs.get(mi);
-		    if(!(rm.text() instanceof RichText))
+		    RenderedMessage rm = msgbyidx(mi);
+		    if((rm == null) || !(rm.text() instanceof RichText))
 			continue;
 		    RichText rt = (RichText)rm.text();
 		    RichText.Part part = null;
@@ -994,6 +1111,10 @@ public class ChatUI extends Widget
 		return(((Rendered)data).nm.equals(nm()));
 	    }
 
+	    public String logtext() {
+		return(nm() + ": " + text);
+	    }
+
 	    public boolean clicked(Channel chan, CharPos pos, Coord c, int btn) {
 		if((btn == 3) && (muted != null)) {
 		    Boolean muted = MultiChat.this.muted.get(from);
@@ -130,6 +130,45 @@ public class Connection {
 	return(this);
     }
 
+    /* A connection that is never connected, for sessions driven by
+     * Capture.Player instead of a server. Anything sent on it goes
+     * to an unused loopback port and is lost. */
+    public static Connection offline() {
+	return(new Connection(new InetSocketAddress(InetAddress.getLoopbackAddress(), 9)));
+    }
+
+    /* Returns a callback that passes what it is given on to the
+     * callbacks of this connection, as if received from the
+     * server. */
+    public Callback injector() {
+	return(new Callback() {
+		public void closed() {
+		    for(Callback cb : cbs)
+			cb.closed();
+		}
+
+		public void handle(PMessage msg) {
+		    for(Iterator<Callback> i = cbs.iterator(); i.hasNext();) {
+			Callback cb = i.next();
+			cb.handle(i.hasNext() ? msg.clone() : msg);
+		    }
+		}
+
+		public void handle(OCache.ObjDelta delta) {
+		    for(Iterator<Callback> i = cbs.iterator(); i.hasNext();) {
+			Callback cb = i.next();
+			cb.handle(i.hasNext() ? delta.clone() : delta);
+		    }
+		}
+
+		public void mapdata(Message msg) {
+		    byte[] data = msg.bytes();
+		    for(Callback cb : cbs)
+			cb.mapdata(new MessageBuf(data));
+		}
+	    });
+    }
+
     public static class DecryptException extends Exception {
 	public DecryptException(String msg, Throwable cause) {super(msg, cause);}
 	public DecryptException(String msg) {super(msg);}
@@ -601,6 +601,17 @@ public class GameUI extends ConsoleHost implements Console.Directory, UI.Notice.
 	    if(mapstore != null) {
 		MapFile file;
 		try {
+		    if(PackCache.enabled.get()) {
+			PackCache pack = PackCache.forstore(mapstore);
+			if(pack != null) {
+			    /* Don't start an empty packed map over one
+			     * that has not been migrated yet. */
+			    if(MapFile.stored(pack, mapfilename()) || !MapFile.stored(mapstore, mapfilename()))
+				mapstore = pack;
+			    else
+				msg("The map is not in packed storage yet; run the packmap command to migrate it.");
+			}
+		    }
 		    file = MapFile.load(mapstore, mapfilename());
 			if((Boolean) NConfig.get(NConfig.Key.autoMapper)) {
 				NUtils.getUI().core.mappingClient.requestor.processMap(file, (m) -> {
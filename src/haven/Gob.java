@@ -32,6 +32,7 @@ import java.util.function.*;
 import haven.render.*;
 import nurgling.*;
 import nurgling.tools.CheckGridsState;
+import nurgling.tools.NClassifier;
 import nurgling.tools.NParser;
 
 public class Gob implements RenderTree.Node, Sprite.Owner, Skeleton.ModOwner, EquipTarget, RandomSource {
@@ -236,7 +237,7 @@ public class Gob implements RenderTree.Node, Sprite.Owner, Skeleton.ModOwner, Eq
 	}
 
 	private float getz(Coord2d rc, double ra) {
-		if((Boolean) NConfig.get(NConfig.Key.flatsurface))
+		if(NConfig.getBool(NConfig.Key.flatsurface))
 			return 0;
 	    Coord2d[][] no = this.obst, ro = new Coord2d[no.length][];
 	    {
@@ -604,6 +605,8 @@ public class Gob implements RenderTree.Node, Sprite.Owner, Skeleton.ModOwner, Eq
 	if(m != null)
 	    m.move(c);
 	this.rc = c;
+	if(glob != null)
+	    glob.oc.icons.moved(this);
 	if(NUtils.playerID()!=-1 && id == NUtils.playerID())  {
 		new Thread(new CheckGridsState(), "plgob_move").start();
 	}
@@ -665,7 +668,7 @@ public class Gob implements RenderTree.Node, Sprite.Owner, Skeleton.ModOwner, Eq
 	if(a != null) {
 	    if(a instanceof RenderTree.Node) {
 		try {
-			if ((Boolean)NConfig.get(NConfig.Key.hideNature) || ngob.name==null || !NUtils.isNatureObject(ngob.name))
+			if (NConfig.getBool(NConfig.Key.hideNature) || !ngob.is(NClassifier.Category.NATURE))
 		    	RUtils.multiadd(this.slots, (RenderTree.Node)a);
 		} catch(Loading l) {
 		    if(prev instanceof RenderTree.Node) {
@@ -689,6 +692,8 @@ public class Gob implements RenderTree.Node, Sprite.Owner, Skeleton.ModOwner, Eq
 		}
 		prev.dispose();
 	}
+	if(((a instanceof GobIcon) || (prev instanceof GobIcon)) && (glob != null))
+	    glob.oc.icons.changed(this);
     }
 
     public void setattr(GAttrib a) {
@@ -806,7 +811,7 @@ public class Gob implements RenderTree.Node, Sprite.Owner, Skeleton.ModOwner, Eq
 	}
 	for(GAttrib a : attr.values()) {
 	    if(a instanceof RenderTree.Node)
-			if ((Boolean)NConfig.get(NConfig.Key.hideNature) || ngob.name==null || !NUtils.isNatureObject(ngob.name))
+			if (NConfig.getBool(NConfig.Key.hideNature) || !ngob.is(NClassifier.Category.NATURE))
 				slot.add((RenderTree.Node)a);
 	}
 	slots.add(slot);
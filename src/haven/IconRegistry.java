@@ -0,0 +1,204 @@
+package haven;
+
+import java.util.*;
+
+/* Index of the map icons of the objects in an OCache, kept up to
+ * date as GobIcon attributes come and go and as objects move, so
+ * that minimaps can look up the icons within their view instead of
+ * scanning every object each frame. Icons are bucketed first by
+ * their Z order and then spatially, so that lookups come out already
+ * in drawing order. */
+public class IconRegistry implements OCache.ChangeCallback {
+    public static final double CELLSZ = MCache.tilesz.x * 25;
+    private final Set<Gob> present = new HashSet<>();
+    private final Map<Gob, Entry> entries = new HashMap<>();
+    private final TreeMap<Integer, Map<Coord, Collection<Entry>>> layers = new TreeMap<>();
+    private final Collection<Entry> unresolved = new ArrayList<>();
+    private final Collection<Listener> listeners = new WeakList<>();
+
+    public interface Listener {
+	public void added(Entry ent);
+	public void removed(Entry ent);
+    }
+
+    public static class Entry {
+	public final Gob gob;
+	public final GobIcon attr;
+	public volatile boolean removed = false;
+	private Integer z = null;
+	private Coord cell = null;
+
+	private Entry(Gob gob, GobIcon attr) {
+	    this.gob = gob;
+	    this.attr = attr;
+	}
+    }
+
+    private static Coord cell(Coord2d c) {
+	return(c.floor(CELLSZ, CELLSZ));
+    }
+
+    private void link(Entry ent) {
+	layers.computeIfAbsent(ent.z, z -> new HashMap<>()).computeIfAbsent(ent.cell, c -> new ArrayList<>()).add(ent);
+    }
+
+    private void unlink(Entry ent) {
+	Map<Coord, Collection<Entry>> layer = layers.get(ent.z);
+	Collection<Entry> bucket = layer.get(ent.cell);
+	bucket.remove(ent);
+	if(bucket.isEmpty()) {
+	    layer.remove(ent.cell);
+	    if(layer.isEmpty())
+		layers.remove(ent.z);
+	}
+    }
+
+    private Entry insert(Gob gob, GobIcon attr) {
+	Entry ent = new Entry(gob, attr);
+	entries.put(gob, ent);
+	unresolved.add(ent);
+	return(ent);
+    }
+
+    private Entry delete(Gob gob) {
+	Entry ent = entries.remove(gob);
+	if(ent == null)
+	    return(null);
+	if(ent.z == null)
+	    unresolved.remove(ent);
+	else
+	    unlink(ent);
+	ent.removed = true;
+	return(ent);
+    }
+
+    private void fire(Entry rem, Entry add) {
+	Collection<Listener> listeners;
+	synchronized(this) {
+	    if(this.listeners.isEmpty())
+		return;
+	    listeners = new ArrayList<>(this.listeners);
+	}
+	for(Listener l : listeners) {
+	    if(rem != null)
+		l.removed(rem);
+	    if(add != null)
+		l.added(add);
+	}
+    }
+
+    public void added(Gob gob) {
+	Entry add = null;
+	synchronized(this) {
+	    present.add(gob);
+	    GobIcon attr = gob.getattr(GobIcon.class);
+	    if((attr != null) && !entries.containsKey(gob))
+		add = insert(gob, attr);
+	}
+	fire(null, add);
+    }
+
+    public void removed(Gob gob) {
+	Entry rem;
+	synchronized(this) {
+	    present.remove(gob);
+	    rem = delete(gob);
+	}
+	fire(rem, null);
+    }
+
+    /* Called when the object's GobIcon attribute has been set or
+     * removed. */
+    public void changed(Gob gob) {
+	Entry rem = null, add = null;
+	synchronized(this) {
+	    if(!present.contains(gob))
+		return;
+	    GobIcon attr = gob.getattr(GobIcon.class);
+	    Entry cur = entries.get(gob);
+	    if((cur != null) && (cur.attr == attr))
+		return;
+	    rem = delete(gob);
+	    if(attr != null)
+		add = insert(gob, attr);
+	}
+	fire(rem, add);
+    }
+
+    public void moved(Gob gob) {
+	synchronized(this) {
+	    Entry ent = entries.get(gob);
+	    if((ent == null) || (ent.z == null))
+		return;
+	    Coord nc = cell(gob.rc);
+	    if(!nc.equals(ent.cell)) {
+		unlink(ent);
+		ent.cell = nc;
+		link(ent);
+	    }
+	}
+    }
+
+    private void resolve() {
+	for(Iterator<Entry> i = unresolved.iterator(); i.hasNext();) {
+	    Entry ent = i.next();
+	    try {
+		ent.z = ent.attr.icon().z();
+	    } catch(Loading l) {
+		continue;
+	    }
+	    ent.cell = cell(ent.gob.rc);
+	    link(ent);
+	    i.remove();
+	}
+    }
+
+    /* Registers a listener, returning the entries already present so
+     * that the listener misses none. */
+    public Collection<Entry> listen(Listener l) {
+	synchronized(this) {
+	    listeners.add(l);
+	    return(new ArrayList<>(entries.values()));
+	}
+    }
+
+    public void unlisten(Listener l) {
+	synchronized(this) {
+	    listeners.remove(l);
+	}
+    }
+
+    /* Returns the icons whose objects lie within the given rectangle
+     * of world coordinates, rounded out to whole cells, in ascending
+     * Z order. Icons whose resources are still loading are left out
+     * until they have loaded. */
+    public List<Entry> query(Coord2d ul, Coord2d br) {
+	Area area = new Area(cell(ul), cell(br).add(1, 1));
+	List<Entry> ret = new ArrayList<>();
+	synchronized(this) {
+	    if(!unresolved.isEmpty())
+		resolve();
+	    for(Map<Coord, Collection<Entry>> layer : layers.values()) {
+		if(area.area() <= layer.size()) {
+		    for(Coord c : area) {
+			Collection<Entry> bucket = layer.get(c);
+			if(bucket != null)
+			    ret.addAll(bucket);
+		    }
+		} else {
+		    for(Map.Entry<Coord, Collection<Entry>> bucket : layer.entrySet()) {
+			if(area.contains(bucket.getKey()))
+			    ret.addAll(bucket.getValue());
+		    }
+		}
+	    }
+	}
+	return(ret);
+    }
+
+    public int size() {
+	synchronized(this) {
+	    return(entries.size());
+	}
+    }
+}
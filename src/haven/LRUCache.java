@@ -0,0 +1,259 @@
+package haven;
+
+import java.util.*;
+import java.util.function.*;
+
+/* A bounded replacement for CacheMap. Entries are held strongly in
+ * least-recently-used order until the sum of their sizes exceeds the
+ * byte budget, at which point the eldest ones are demoted to a weak
+ * reference tier. Values still referenced from elsewhere are thus
+ * found again as before, while what is retained on the cache's own
+ * account is bounded and does not depend on GC timing. A soft tier
+ * may be asked for instead, but what it retains is neither bounded
+ * nor independent of the GC. Like CacheMap, it is not thread-safe by
+ * itself. */
+public class LRUCache<K, V> extends AbstractMap<K, V> {
+    private static final WeakList<LRUCache<?, ?>> all = new WeakList<>();
+    public final String name;
+    public final long budget;
+    private final ToLongFunction<? super V> sizer;
+    private final LinkedHashMap<K, Node<V>> strong = new LinkedHashMap<>(16, 0.75f, true);
+    private final CacheMap<K, V> weak;
+    private long used = 0;
+    private long hits = 0, misses = 0, evictions = 0, recovered = 0;
+
+    /* Most hits between re-measurements of a value */
+    private static final int MAXPERIOD = 64;
+
+    private static class Node<V> {
+	V v;
+	long sz;
+	int period = 1, left = 1;
+
+	Node(V v, long sz) {this.v = v; this.sz = sz;}
+    }
+
+    public LRUCache(String name, long budget, ToLongFunction<? super V> sizer, CacheMap.RefType demote) {
+	this.name = name;
+	this.budget = budget;
+	this.sizer = sizer;
+	this.weak = (demote == null) ? null : new CacheMap<>(demote);
+	synchronized(all) {
+	    all.add(this);
+	}
+    }
+
+    public LRUCache(String name, long budget, ToLongFunction<? super V> sizer) {
+	this(name, budget, sizer, CacheMap.RefType.WEAK);
+    }
+
+    private long size(V v) {
+	return(Math.max(sizer.applyAsLong(v), 0));
+    }
+
+    /* Sizes are re-measured on access, so that values which only
+     * become fully loaded after insertion are eventually accounted
+     * for properly. A value whose size stays the same is measured
+     * on ever fewer hits, down to one in MAXPERIOD, and again on
+     * every hit once it changes. */
+    private V hit(Node<V> n) {
+	if(--n.left <= 0) {
+	    long nsz = size(n.v);
+	    if(nsz != n.sz) {
+		used += nsz - n.sz;
+		n.sz = nsz;
+		n.period = 1;
+		trim();
+	    } else {
+		n.period = Math.min(n.period * 2, MAXPERIOD);
+	    }
+	    n.left = n.period;
+	}
+	hits++;
+	return(n.v);
+    }
+
+    private void trim() {
+	for(Iterator<Map.Entry<K, Node<V>>> i = strong.entrySet().iterator(); (used > budget) && (strong.size() > 1) && i.hasNext();) {
+	    Map.Entry<K, Node<V>> e = i.next();
+	    i.remove();
+	    used -= e.getValue().sz;
+	    evictions++;
+	    if(weak != null)
+		weak.put(e.getKey(), e.getValue().v);
+	}
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object k) {
+	Node<V> n = strong.get(k);
+	if(n != null)
+	    return(hit(n));
+	if(weak != null) {
+	    V v = weak.remove(k);
+	    if(v != null) {
+		recovered++;
+		put0((K)k, v);
+		hits++;
+		return(v);
+	    }
+	}
+	misses++;
+	return(null);
+    }
+
+    public boolean containsKey(Object k) {
+	return(strong.containsKey(k) || ((weak != null) && weak.containsKey(k)));
+    }
+
+    private V put0(K k, V v) {
+	long sz = size(v);
+	Node<V> old = strong.put(k, new Node<>(v, sz));
+	used += sz;
+	if(old != null)
+	    used -= old.sz;
+	trim();
+	return((old == null) ? null : old.v);
+    }
+
+    public V put(K k, V v) {
+	V wold = (weak == null) ? null : weak.remove(k);
+	V old = put0(k, v);
+	return((old == null) ? wold : old);
+    }
+
+    public V remove(Object k) {
+	Node<V> n = strong.remove(k);
+	if(n != null) {
+	    used -= n.sz;
+	    return(n.v);
+	}
+	return((weak == null) ? null : weak.remove(k));
+    }
+
+    public void clear() {
+	strong.clear();
+	if(weak != null)
+	    weak.clear();
+	used = 0;
+    }
+
+    public long used() {return(used);}
+    public long hits() {return(hits);}
+    public long misses() {return(misses);}
+    public long evictions() {return(evictions);}
+    public long recovered() {return(recovered);}
+    public int retained() {return(strong.size());}
+
+    public String stats() {
+	long tot = hits + misses;
+	return(String.format("%s: %d retained, %d weak, %,d/%,d bytes, %d hits (%d recovered), %d misses, %.1f%% hit rate, %d evictions",
+			     name, strong.size(), (weak == null) ? 0 : weak.size(), used, budget, hits, recovered, misses,
+			     (tot == 0) ? 0.0 : (hits * 100.0) / tot, evictions));
+    }
+
+    public String toString() {
+	return("#<LRUCache " + stats() + ">");
+    }
+
+    private class IteredEntry implements Map.Entry<K, V> {
+	private final K k;
+	private V v;
+
+	private IteredEntry(K k, V v) {
+	    this.k = k; this.v = v;
+	}
+
+	public K getKey()   {return(k);}
+	public V getValue() {return(v);}
+
+	public boolean equals(Object o) {
+	    if(!(o instanceof Map.Entry))
+		return(false);
+	    Map.Entry<?, ?> that = (Map.Entry<?, ?>)o;
+	    return(Objects.equals(k, that.getKey()) && Objects.equals(v, that.getValue()));
+	}
+
+	public int hashCode() {
+	    return(Objects.hashCode(k) ^ Objects.hashCode(v));
+	}
+
+	public V setValue(V nv) {
+	    V ret = this.v;
+	    put(k, this.v = nv);
+	    return(ret);
+	}
+    }
+
+    private Set<Map.Entry<K, V>> entries = null;
+    public Set<Map.Entry<K, V>> entrySet() {
+	if(entries == null)
+	    entries = new AbstractSet<Map.Entry<K, V>>() {
+		public int size() {
+		    return(strong.size() + ((weak == null) ? 0 : weak.size()));
+		}
+
+		public Iterator<Map.Entry<K, V>> iterator() {
+		    final Iterator<Map.Entry<K, Node<V>>> si = strong.entrySet().iterator();
+		    final Iterator<Map.Entry<K, V>> wi = (weak == null) ? null : weak.entrySet().iterator();
+		    return(new Iterator<Map.Entry<K, V>>() {
+			    private Map.Entry<K, Node<V>> last = null;
+			    private boolean sdone = false;
+
+			    public boolean hasNext() {
+				if(!sdone) {
+				    if(si.hasNext())
+					return(true);
+				    sdone = true;
+				}
+				return((wi != null) && wi.hasNext());
+			    }
+
+			    public Map.Entry<K, V> next() {
+				if(!hasNext())
+				    throw(new NoSuchElementException());
+				if(!sdone) {
+				    last = si.next();
+				    return(new IteredEntry(last.getKey(), last.getValue().v));
+				}
+				last = null;
+				Map.Entry<K, V> e = wi.next();
+				return(new IteredEntry(e.getKey(), e.getValue()));
+			    }
+
+			    public void remove() {
+				if(last != null) {
+				    si.remove();
+				    used -= last.getValue().sz;
+				    last = null;
+				} else {
+				    wi.remove();
+				}
+			    }
+			});
+		}
+
+		public void clear() {
+		    LRUCache.this.clear();
+		}
+	    };
+	return(entries);
+    }
+
+    public static Collection<LRUCache<?, ?>> all() {
+	Collection<LRUCache<?, ?>> ret = new ArrayList<>();
+	synchronized(all) {
+	    ret.addAll(all);
+	}
+	return(ret);
+    }
+
+    static {
+	Console.setscmd("cachestats", new Console.Command() {
+		public void run(Console cons, String[] args) {
+		    for(LRUCache<?, ?> c : all())
+			cons.out.println(c.stats());
+		}
+	    });
+    }
+}
@@ -59,6 +59,7 @@ public class MCache implements MapSource {
 	public final static int customolssize = 10;
     private final Object setmon = new Object();
     public Resource.Spec[] nsets = new Resource.Spec[16];
+    public final nurgling.tools.TileClass tileclass = new nurgling.tools.TileClass(this);
     @SuppressWarnings("unchecked")
     public Reference<Resource>[] sets = new Reference[16];
     @SuppressWarnings("unchecked")
@@ -68,7 +69,8 @@ public class MCache implements MapSource {
     private final Waitable.Queue gridwait = new Waitable.Queue();
     Map<Coord, Request> req = new HashMap<Coord, Request>();
     public Map<Coord, Grid> grids = new HashMap<Coord, Grid>();
-    public final HashMap<Integer, NArea> areas = new HashMap<>();
+    public final HashMap<Integer, NArea> areas = new NAreaIndex.Areas();
+    public final NAreaIndex areaIndex = new NAreaIndex(this);
     Session sess;
     Set<Overlay> ols = new HashSet<Overlay>();
     public int olseq = 0, chseq = 0;
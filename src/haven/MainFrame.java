@@ -27,6 +27,7 @@
 package haven;
 
 import nurgling.NConfig;
+import nurgling.ResourcePreloadService;
 
 import java.awt.*;
 import java.awt.event.*;
@@ -397,6 +398,7 @@ public class MainFrame extends java.awt.Frame implements Console.Directory {
 	    } catch(IOException e) {
 		throw(new Error(e));
 	    }
+	    ResourcePreloadService.warmupLast();
 	}
     }
 
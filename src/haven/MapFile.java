@@ -28,6 +28,10 @@ package haven;
 
 import java.util.*;
 import java.util.concurrent.locks.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.io.*;
 import java.awt.Color;
@@ -60,7 +64,7 @@ public class MapFile {
 	    throw(new IllegalMonitorStateException());
     }
 
-    private String mangle(String datum) {
+    private static String mangle(String filename, String datum) {
 	StringBuilder buf = new StringBuilder();
 	buf.append("map/");
 	if(!filename.equals("")) {
@@ -70,6 +74,9 @@ public class MapFile {
 	buf.append(datum);
 	return(buf.toString());
     }
+    private String mangle(String datum) {
+	return(mangle(filename, datum));
+    }
     private InputStream sfetch(String ctl, Object... args) throws IOException {
 	return(store.fetch(mangle(String.format(ctl, args))));
     }
@@ -88,6 +95,15 @@ public class MapFile {
 	warn(null, fmt, args);
     }
 
+    /* Whether the store holds a mapfile of the given name. */
+    public static boolean stored(ResCache store, String filename) {
+	try(InputStream fp = store.fetch(mangle(filename, "index"))) {
+	    return(true);
+	} catch(IOException e) {
+	    return(false);
+	}
+    }
+
     public static MapFile load(ResCache store, String filename) throws IOException {
 	MapFile file = new MapFile(store, filename);
 	InputStream fp;
@@ -436,6 +452,14 @@ public class MapFile {
 	    return(zmap[c.x + (c.y * cmaps.x)]);
 	}
 
+	/* Approximate heap footprint, for cache accounting. */
+	public long memsize() {
+	    long ret = 64 + (tiles.length * 4L) + (zmap.length * 4L) + (tilesets.length * 32L);
+	    for(Overlay ol : ols)
+		ret += 32 + ol.ol.length;
+	    return(ret);
+	}
+
 	private BufferedImage tiletex(int t, BufferedImage[] texes, boolean[] cached) {
 	    if(!cached[t]) {
 		Resource r = null;
@@ -1141,12 +1165,21 @@ public class MapFile {
 	}
     }
 
+    public static final Config.Variable<Integer> gridcachesz = Config.Variable.propi("haven.mapgridcachesz", 48);
+    public static final Config.Variable<Integer> zgridcachesz = Config.Variable.propi("haven.mapzgridcachesz", 24);
+    /* Size of an entry in the coordinate caches, not counting the grid it refers to. */
+    private static final long REFSZ = 64;
+
     public class Segment {
 	public final long id;
 	public final BMap<Coord, Long> map = new HashBMap<>();
-	private final Map<Long, Cached> cache = new CacheMap<>(CacheMap.RefType.WEAK);
-	private final Map<Coord, ByCoord> ccache = new CacheMap<>(CacheMap.RefType.WEAK);
-	private final Map<ZoomCoord, ByZCoord> zcache = new CacheMap<>(CacheMap.RefType.WEAK);
+	private final Map<Long, Cached> cache = new LRUCache<>("map-grids", gridcachesz.get() * 1048576L, c -> REFSZ + c.memsize());
+	/* The coordinate cache also pins the grids it refers to, so
+	 * account for them to keep its retention bounded as well. */
+	private final Map<Coord, ByCoord> ccache = new LRUCache<>("map-coords", gridcachesz.get() * 1048576L,
+								  bc -> REFSZ + ((bc.cur == null) ? 0 : bc.cur.memsize()));
+	private final Map<ZoomCoord, ByZCoord> zcache = new LRUCache<>("map-zgrids", zgridcachesz.get() * 1048576L,
+								       zc -> REFSZ + ((zc.loaded == null) ? 0 : zc.loaded.memsize()));
 
 	public Segment(long id) {
 	    this.id = id;
@@ -1167,6 +1200,11 @@ public class MapFile {
 		    loaded = loading.get(0);
 		return(loaded);
 	    }
+
+	    long memsize() {
+		Grid g = loaded;
+		return((g == null) ? 0 : g.memsize());
+	    }
 	}
 
 	private Grid loaded(long id) {
@@ -1214,9 +1252,9 @@ public class MapFile {
 
 	private class ByZCoord implements Indir<ZoomGrid> {
 	    final ZoomCoord zc;
-	    ZoomGrid loaded;
-	    boolean got = false;
-	    Future<ZoomGrid> loading;
+	    volatile ZoomGrid loaded;
+	    volatile boolean got = false;
+	    volatile Future<ZoomGrid> loading;
 
 	    ByZCoord(ZoomCoord zc, Future<ZoomGrid> loading) {
 		this.zc = zc;
@@ -1224,11 +1262,12 @@ public class MapFile {
 	    }
 
 	    public ZoomGrid get() {
+		Future<ZoomGrid> loading = this.loading;
 		if(loading != null) {
 		    try {
 			loaded = loading.get(0);
 			got = true;
-			loading = null;
+			this.loading = null;
 		    } catch(Loading l) {
 			if(!got)
 			    throw(l);
@@ -1236,6 +1275,12 @@ public class MapFile {
 		}
 		return(loaded);
 	    }
+
+	    void regenerated(ZoomGrid grid) {
+		loading = null;
+		loaded = grid;
+		got = true;
+	    }
 	}
 
 	public Indir<Grid> grid(Coord gc) {
@@ -1256,27 +1301,68 @@ public class MapFile {
 		return(grid(gc));
 	    synchronized(zcache) {
 		ZoomCoord zc = new ZoomCoord(lvl, gc);
+		zmaxlvl = Math.max(zmaxlvl, lvl);
 		return(zcache.computeIfAbsent(zc, k -> new ByZCoord(k, loadzgrid(k))));
 	    }
 	}
 
-	private void include(long id, Coord sc) {
-	    map.put(sc, id);
-	    int zl = ZoomGrid.inval(MapFile.this, this.id, sc);
+	/* Zoom grids are keyed by level and level-aligned coordinate,
+	 * so the ones covering a segment coordinate are found directly
+	 * by masking it per level, up to the highest level that has
+	 * ever been requested. Cached ones are queued for regeneration,
+	 * which is batched so that every zoom grid is rebuilt once per
+	 * batch, bottom-up, however many of its constituent grids
+	 * arrived. */
+	private int zmaxlvl = 0;
+	private final Set<ZoomCoord> zdirty = new HashSet<>();
+	private Future<Void> zregen = null;
+
+	private void zinval(Coord sc) {
 	    synchronized(zcache) {
-		/* XXX? Not sure how nice it is to iterate through the
-		 * entire zcache to do invalidations, but I also don't
-		 * think it ought to tend to be enormously large.
-		 * Perhaps keep a hierarchical zcache per level, and
-		 * only iterate all the levels? */
-		for(Map.Entry<ZoomCoord, ByZCoord> ent : zcache.entrySet()) {
-		    ZoomCoord zc = ent.getKey();
-		    if((zc.c.x == (sc.x & ~((1 << zc.lvl) - 1))) && (zc.c.y == (sc.y & ~((1 << zc.lvl) - 1)))) {
-			ByZCoord zg = ent.getValue();
-			zg.loading = loadzgrid(zc);
+		for(int lvl = 1; lvl <= zmaxlvl; lvl++) {
+		    ZoomCoord zc = new ZoomCoord(lvl, new Coord(sc.x & ~((1 << lvl) - 1), sc.y & ~((1 << lvl) - 1)));
+		    if(zcache.containsKey(zc))
+			zdirty.add(zc);
+		}
+		if(!zdirty.isEmpty() && (zregen == null))
+		    zregen = Defer.later(this::zregen);
+	    }
+	}
+
+	private Void zregen() {
+	    while(true) {
+		List<ZoomCoord> batch;
+		synchronized(zcache) {
+		    if(zdirty.isEmpty()) {
+			zregen = null;
+			return(null);
+		    }
+		    batch = new ArrayList<>(zdirty);
+		    zdirty.clear();
+		}
+		batch.sort(Comparator.comparingInt(zc -> zc.lvl));
+		if(debug) Debug.log.printf("mapfile: regenerating %d zoomgrids in %x\n", batch.size(), id);
+		for(ZoomCoord zc : batch) {
+		    ZoomGrid grid;
+		    try {
+			grid = ZoomGrid.from(MapFile.this, this, zc.lvl, zc.c);
+		    } catch(RuntimeException e) {
+			warn(e, "could not regenerate zoomgrid %s in %x: %s", zc, id, e);
+			continue;
+		    }
+		    synchronized(zcache) {
+			ByZCoord cur = zcache.get(zc);
+			if(cur != null)
+			    cur.regenerated(grid);
 		    }
 		}
 	    }
+	}
+
+	private void include(long id, Coord sc) {
+	    map.put(sc, id);
+	    ZoomGrid.inval(MapFile.this, this.id, sc);
+	    zinval(sc);
 	    ByCoord bc;
 	    synchronized(ccache) {
 		bc = ccache.get(sc);
@@ -1512,98 +1598,346 @@ public class MapFile {
 	}
     }
 
-    public void update(MCache map, Collection<MCache.Grid> grids) {
-	lock.writeLock().lock();
-	try {
-	    long mseg = -1;
-	    Coord moff = null;
-	    Collection<MCache.Grid> missing = new ArrayList<>(grids.size());
-	    Collection<Pair<Long, Coord>> merge = null;
-	    for(MCache.Grid g : grids) {
-		GridInfo info = gridinfo.get(g.id);
-		if(info == null) {
+    /* Grid building, merging and compression is done by these
+     * workers off the map lock; see update() below. */
+    private static ExecutorService updworkers = null;
+    private static synchronized ExecutorService updworkers() {
+	if(updworkers == null) {
+	    int n = Utils.clip(Runtime.getRuntime().availableProcessors() - 1, 1, 4);
+	    updworkers = Executors.newFixedThreadPool(n, r -> {
+		    Thread th = new HackThread(r, "Mapfile worker");
+		    th.setDaemon(true);
+		    return(th);
+		});
+	}
+	return(updworkers);
+    }
+
+    public static class UpdateStats {
+	public final int grids, built;
+	public final long snapshot, build, commit;
+
+	public UpdateStats(int grids, int built, long snapshot, long build, long commit) {
+	    this.grids = grids; this.built = built;
+	    this.snapshot = snapshot; this.build = build; this.commit = commit;
+	}
+
+	public String toString() {
+	    return(String.format("%d grids, %d built; snapshot %.2f ms, build %.2f ms, commit %.2f ms",
+				 grids, built, snapshot * 1e-6, build * 1e-6, commit * 1e-6));
+	}
+    }
+    public volatile UpdateStats lastupdate = null;
+
+    private class GridJob implements Callable<Grid> {
+	final MCache map;
+	final MCache.Grid g;
+	final long seg;
+	final Coord sc;
+	final Grid cur;
+	final boolean hasprev;
+	Grid built = null;
+
+	GridJob(MCache map, MCache.Grid g, long seg, Coord sc, Grid cur, boolean hasprev) {
+	    this.map = map; this.g = g;
+	    this.seg = seg; this.sc = sc;
+	    this.cur = cur; this.hasprev = hasprev;
+	}
+
+	public Grid call() {
+	    Grid sg = Grid.from(map, g);
+	    if(hasprev) {
+		Grid prev = cur;
+		if(prev == null)
+		    prev = Grid.load(MapFile.this, sg.id);
+		if(prev != null)
+		    sg = sg.mergeprev(prev);
+	    }
+	    sg.save(MapFile.this);
+	    return(built = sg);
+	}
+    }
+
+    private void build(Collection<GridJob> jobs) throws InterruptedException {
+	RuntimeException err = null;
+	if(jobs.size() == 1) {
+	    Utils.el(jobs).call();
+	} else if(!jobs.isEmpty()) {
+	    for(java.util.concurrent.Future<Grid> f : updworkers().invokeAll(jobs)) {
+		try {
+		    f.get();
+		} catch(ExecutionException e) {
+		    if(err == null)
+			err = (e.getCause() instanceof RuntimeException) ? (RuntimeException)e.getCause() : new RuntimeException(e.getCause());
+		}
+	    }
+	}
+	if(err != null)
+	    throw(err);
+    }
+
+    /* The grids of an update, classified against the segment
+     * mappings: those already in a segment that changed since, those
+     * in no segment yet, and the segments to merge into the main
+     * one. */
+    private class UpdatePlan {
+	final MCache map;
+	final Collection<MCache.Grid> grids;
+	long mseg = -1;
+	Coord moff = null;
+	final Collection<GridJob> changed = new ArrayList<>();
+	final Collection<GridJob> added = new ArrayList<>();
+	Collection<Pair<Long, Coord>> merge = null;
+	final Map<Long, GridInfo> seen = new HashMap<>();
+
+	UpdatePlan(MCache map, Collection<MCache.Grid> grids) {
+	    this.map = map;
+	    this.grids = grids;
+	}
+
+	Collection<GridJob> jobs() {
+	    Collection<GridJob> ret = new ArrayList<>(changed);
+	    ret.addAll(added);
+	    return(ret);
+	}
+    }
+
+    private UpdatePlan classify(MCache map, Collection<MCache.Grid> grids) {
+	checklock();
+	UpdatePlan plan = new UpdatePlan(map, grids);
+	Collection<MCache.Grid> missing = new ArrayList<>(grids.size());
+	for(MCache.Grid g : grids) {
+	    GridInfo info = gridinfo.get(g.id);
+	    plan.seen.put(g.id, info);
+	    if(info == null) {
+		missing.add(g);
+		continue;
+	    }
+	    Segment seg = segments.get(info.seg);
+	    if(seg == null) {
+		missing.add(g);
+		continue;
+	    }
+	    if(plan.moff == null) {
+		Coord psc = seg.map.reverse().get(g.id);
+		if(psc == null) {
+		    warn("grid %x is oddly gone from segment %x; was at %s", g.id, seg.id, info.sc);
 		    missing.add(g);
 		    continue;
-		}
-		Segment seg = segments.get(info.seg);
-		if(seg == null) {
+		} else if(!psc.equals(info.sc)) {
+		    warn("segment-offset mismatch for grid %x in segment %x: segment has %s, gridinfo has %s", g.id, seg.id, psc, info.sc);
 		    missing.add(g);
 		    continue;
 		}
-		if(moff == null) {
-		    Coord psc = seg.map.reverse().get(g.id);
-		    if(psc == null) {
-			warn("grid %x is oddly gone from segment %x; was at %s", g.id, seg.id, info.sc);
-			missing.add(g);
-			continue;
-		    } else if(!psc.equals(info.sc)) {
-			warn("segment-offset mismatch for grid %x in segment %x: segment has %s, gridinfo has %s", g.id, seg.id, psc, info.sc);
-			missing.add(g);
-			continue;
-		    }
-		    mseg = seg.id;
-		    moff = info.sc.sub(g.gc);
-		}
-		Grid cur = seg.loaded(g.id);
-		if(!((cur != null) && (cur.useq == g.seq))) {
-		    Grid sg = Grid.from(map, g);
-		    Grid prev = cur;
-		    if(prev == null)
-			prev = Grid.load(MapFile.this, sg.id);
-		    if(prev != null)
-			sg = sg.mergeprev(prev);
-		    sg.save(MapFile.this);
-		    seg.include(sg, info.sc);
-		}
-		if(seg.id != mseg) {
-		    if(merge == null)
-			merge = new HashSet<>();
-		    Coord soff = info.sc.sub(g.gc.add(moff));
-		    merge.add(new Pair<>(seg.id, soff));
-		}
+		plan.mseg = seg.id;
+		plan.moff = info.sc.sub(g.gc);
+	    }
+	    Grid cur = seg.loaded(g.id);
+	    if(!((cur != null) && (cur.useq == g.seq)))
+		plan.changed.add(new GridJob(map, g, seg.id, info.sc, cur, true));
+	    if(seg.id != plan.mseg) {
+		if(plan.merge == null)
+		    plan.merge = new HashSet<>();
+		Coord soff = info.sc.sub(g.gc.add(plan.moff));
+		plan.merge.add(new Pair<>(seg.id, soff));
+	    }
+	}
+	if(plan.moff == null)
+	    plan.moff = Coord.z;
+	for(MCache.Grid g : missing)
+	    plan.added.add(new GridJob(map, g, -1, g.gc.add(plan.moff), null, false));
+	return(plan);
+    }
+
+    /* Whether the segment mappings that classify() read still hold:
+     * every grid maps to the same segment and place, and the
+     * segments to include into and merge still exist. */
+    private boolean current(UpdatePlan plan) {
+	checklock();
+	for(MCache.Grid g : plan.grids) {
+	    GridInfo was = plan.seen.get(g.id), now = gridinfo.get(g.id);
+	    if(was == null) {
+		if(now != null)
+		    return(false);
+	    } else if((now == null) || (now.seg != was.seg) || !now.sc.equals(was.sc)) {
+		return(false);
 	    }
-	    if(!missing.isEmpty()) {
-		Segment seg;
-		if(mseg == -1) {
-		    seg = new Segment(rnd.nextLong());
-		    moff = Coord.z;
-		    if(debug) Debug.log.printf("mapfile: creating new segment %x\n", seg.id);
-		} else {
-		    seg = segments.get(mseg);
-		}
-		synchronized(procmon) {
-		    dirty.add(seg);
-		    process();
-		}
-		for(MCache.Grid g : missing) {
-		    Grid sg = Grid.from(map, g);
-		    Coord sc = g.gc.add(moff);
-		    sg.save(MapFile.this);
-		    seg.include(sg, sc);
-		    gridinfo.put(g.id, new GridInfo(g.id, seg.id, sc));
-		}
+	}
+	if((plan.mseg != -1) && !knownsegs.contains(plan.mseg))
+	    return(false);
+	if(plan.merge != null) {
+	    for(Pair<Long, Coord> mel : plan.merge) {
+		if(!knownsegs.contains(mel.a))
+		    return(false);
 	    }
-	    if(merge != null) {
-		for(Pair<Long, Coord> mel : merge) {
-		    Segment a = segments.get(mseg);
-		    Segment b = segments.get(mel.a);
-		    Coord ab = mel.b;
-		    Segment src, dst; Coord soff;
-		    if(a.map.size() > b.map.size()) {
-			src = b; dst = a;
-			soff = ab;
-		    } else {
-			src = a; dst = b;
-			soff = ab.inv();
-		    }
-		    if(debug) Debug.log.printf("mapfile: merging segment %x (%d) into %x (%d) at %s\n", src.id, src.map.size(), dst.id, dst.map.size(), soff);
-		    merge(dst, src, soff);
+	}
+	return(true);
+    }
+
+    /* Includes the built grids of a plan into their segments, new
+     * grids into the main segment or a new one, and merges the
+     * other segments the grids were found in into it. */
+    private void commit(UpdatePlan plan) {
+	checklock();
+	for(GridJob job : plan.changed) {
+	    Segment seg;
+	    if((job.built == null) || ((seg = segments.get(job.seg)) == null))
+		continue;
+	    seg.include(job.built, job.sc);
+	}
+	if(!plan.added.isEmpty()) {
+	    Segment seg;
+	    if(plan.mseg == -1) {
+		seg = new Segment(rnd.nextLong());
+		if(debug) Debug.log.printf("mapfile: creating new segment %x\n", seg.id);
+	    } else {
+		seg = segments.get(plan.mseg);
+	    }
+	    synchronized(procmon) {
+		dirty.add(seg);
+		process();
+	    }
+	    for(GridJob job : plan.added) {
+		if(job.built == null)
+		    continue;
+		seg.include(job.built, job.sc);
+		gridinfo.put(job.g.id, new GridInfo(job.g.id, seg.id, job.sc));
+	    }
+	}
+	if(plan.merge != null) {
+	    for(Pair<Long, Coord> mel : plan.merge) {
+		Segment a = segments.get(plan.mseg);
+		Segment b = segments.get(mel.a);
+		if((a == null) || (b == null)) {
+		    warn("segment %x or %x is gone before merging", plan.mseg, mel.a);
+		    continue;
+		}
+		Coord ab = mel.b;
+		Segment src, dst; Coord soff;
+		if(a.map.size() > b.map.size()) {
+		    src = b; dst = a;
+		    soff = ab;
+		} else {
+		    src = a; dst = b;
+		    soff = ab.inv();
 		}
+		if(debug) Debug.log.printf("mapfile: merging segment %x (%d) into %x (%d) at %s\n", src.id, src.map.size(), dst.id, dst.map.size(), soff);
+		merge(dst, src, soff);
 	    }
+	}
+    }
+
+    /* Updating runs as a three-stage pipeline, so that minimap
+     * rendering and marker updates aren't stalled while many grids
+     * arrive at once: the grids are classified against the segment
+     * mappings under the lock, then built, merged with their
+     * previous versions and saved in parallel off the lock, and
+     * finally included into their segments in one short critical
+     * section. */
+    public void update(MCache map, Collection<MCache.Grid> grids) {
+	long st0 = System.nanoTime();
+	UpdatePlan plan;
+	lock.writeLock().lock();
+	try {
+	    plan = classify(map, grids);
 	} finally {
 	    lock.writeLock().unlock();
 	}
-	if(debug) Debug.log.printf("mapfile: update completed\n");
+	Collection<GridJob> jobs = plan.jobs();
+
+	long st1 = System.nanoTime();
+	RuntimeException err = null;
+	try {
+	    build(jobs);
+	} catch(InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    return;
+	} catch(RuntimeException e) {
+	    /* Include what could be built, but don't hide the error. */
+	    err = e;
+	}
+
+	long st2 = System.nanoTime();
+	lock.writeLock().lock();
+	try {
+	    if(!current(plan)) {
+		/* An import or merge moved the grids while they were
+		 * built; classify them again and build and include
+		 * them under the lock, as update() did before it was
+		 * pipelined. */
+		if(debug) Debug.log.printf("mapfile: segments changed during update, redoing it locked\n");
+		plan = classify(map, grids);
+		jobs = plan.jobs();
+		err = null;
+		for(GridJob job : jobs)
+		    job.call();
+	    }
+	    commit(plan);
+	} finally {
+	    lock.writeLock().unlock();
+	}
+	long st3 = System.nanoTime();
+	lastupdate = new UpdateStats(grids.size(), jobs.size(), st1 - st0, st2 - st1, st3 - st2);
+	if(debug) Debug.log.printf("mapfile: update completed: %s\n", lastupdate);
+	if(err != null)
+	    throw(err);
+    }
+
+    private boolean copy(ResCache dst, String name) throws IOException {
+	try(InputStream in = store.fetch(mangle(name))) {
+	    try(OutputStream out = dst.store(mangle(name))) {
+		byte[] buf = new byte[65536];
+		int rv;
+		while((rv = in.read(buf)) >= 0)
+		    out.write(buf, 0, rv);
+	    }
+	    return(true);
+	} catch(FileNotFoundException e) {
+	    return(false);
+	}
+    }
+
+    /* Copies all data of this mapfile verbatim into another store,
+     * e.g. for migrating it to a PackCache. The zoom grids of each
+     * segment are found level by level from its grid coordinates. */
+    public void copyto(ResCache dst, ExportStatus prog) throws IOException, InterruptedException {
+	if(prog == null) prog = new ExportStatus() {};
+	Collection<Long> segbuf = locked((Collection<Long> c) -> new ArrayList<>(c), lock.readLock()).apply(knownsegs);
+	copy(dst, "index");
+	int nseg = 0;
+	for(Long sid : segbuf) {
+	    Collection<Pair<Coord, Long>> gridbuf = new ArrayList<>();
+	    lock.readLock().lock();
+	    try {
+		Segment seg = segments.get(sid);
+		if(seg == null)
+		    continue;
+		for(Map.Entry<Coord, Long> gd : seg.map.entrySet())
+		    gridbuf.add(new Pair<>(gd.getKey(), gd.getValue()));
+		copy(dst, String.format("seg-%x", sid));
+	    } finally {
+		lock.readLock().unlock();
+	    }
+	    int ngrid = 0;
+	    for(Pair<Coord, Long> gd : gridbuf) {
+		if(Thread.interrupted())
+		    throw(new InterruptedException());
+		prog.grid(nseg, segbuf.size(), ngrid++, gridbuf.size());
+		copy(dst, String.format("grid-%x", gd.b));
+		copy(dst, String.format("gi-%x", gd.b));
+	    }
+	    for(int lvl = 1; true; lvl++) {
+		Set<Coord> zcs = new HashSet<>();
+		for(Pair<Coord, Long> gd : gridbuf)
+		    zcs.add(new Coord(gd.a.x & ~((1 << lvl) - 1), gd.a.y & ~((1 << lvl) - 1)));
+		boolean any = false;
+		for(Coord zc : zcs)
+		    any |= copy(dst, String.format("zgrid-%x-%d-%d-%d", sid, lvl, zc.x, zc.y));
+		if(!any || (zcs.size() <= 1))
+		    break;
+	    }
+	    nseg++;
+	}
     }
 
     public static interface ExportFilter {
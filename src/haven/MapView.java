@@ -2042,7 +2042,7 @@ public class MapView extends PView implements DTarget, Console.Directory {
 	}
 	
 	protected void hit(Coord pc, Coord2d mc, ClickData inf) {
-		if(NMapView.hitNWidgetsInfo(pc))
+		if(NMapView.hitNWidgetsInfo(pc, mc))
 			return;
 		if(NMapView.isRecordingRoutePoint) {
 			return;
@@ -923,6 +923,30 @@ public class MapWnd extends Window implements Console.Directory {
 	gui.adda(prog, gui.sz.div(2), 0.5, 1.0);
     }
 
+    /* Migrates the current mapfile into the packed storage backend,
+     * which is used from the next login with haven.mappack set. */
+    public void packmap() throws IOException {
+	GameUI gui = getparent(GameUI.class);
+	PackCache dst = PackCache.forstore(file.store);
+	if((dst == null) || (dst == file.store)) {
+	    gui.error("The map is already in packed storage.");
+	    return;
+	}
+	ExportWindow prog = new ExportWindow();
+	Thread th = new HackThread(() -> {
+		try {
+		    file.copyto(dst, prog);
+		    gui.msg("Map migrated to packed storage; it will be used when haven.mappack is enabled.");
+		} catch(IOException e) {
+		    e.printStackTrace(Debug.log);
+		    gui.error("Unexpected error occurred when migrating map.");
+		} catch(InterruptedException e) {
+		}
+	}, "Mapfile migrator");
+	prog.run(th);
+	gui.adda(prog, gui.sz.div(2), 0.5, 1.0);
+    }
+
     public void exportmap() {
 	java.awt.EventQueue.invokeLater(() -> {
 		JFileChooser fc = new JFileChooser();
@@ -964,6 +988,11 @@ public class MapWnd extends Window implements Console.Directory {
 			importmap();
 		}
 	    });
+	cmdmap.put("packmap", new Console.Command() {
+		public void run(Console cons, String[] args) throws Exception {
+		    packmap();
+		}
+	    });
     }
     public Map<String, Console.Command> findcmds() {
 	return(cmdmap);
@@ -593,44 +593,127 @@ public class MiniMap extends Widget
 	}
     }
 
+    private IconRegistry iconreg = null;
+    private final Queue<IconRegistry.Entry> iconupd = new java.util.concurrent.ConcurrentLinkedQueue<>();
+    private final IconRegistry.Listener iconl = new IconRegistry.Listener() {
+	    public void added(IconRegistry.Entry ent) {iconupd.add(ent);}
+	    public void removed(IconRegistry.Entry ent) {iconupd.add(ent);}
+	};
+    private final Map<GobIcon, DisplayIcon> dicons = new HashMap<>();
+    private final Collection<IconRegistry.Entry> unconf = new ArrayList<>();
+    private final Collection<DisplayIcon> notifying = new ArrayList<>();
+    private final Collection<DisplayIcon> unmarked = new ArrayList<>();
+
+    private void iconsync(IconRegistry reg) {
+	if(reg != iconreg) {
+	    if(iconreg != null)
+		iconreg.unlisten(iconl);
+	    iconupd.clear();
+	    dicons.clear(); unconf.clear(); notifying.clear(); unmarked.clear();
+	    iconupd.addAll(reg.listen(iconl));
+	    iconreg = reg;
+	}
+	for(IconRegistry.Entry ent; (ent = iconupd.poll()) != null;) {
+	    if(ent.removed) {
+		unconf.remove(ent);
+		DisplayIcon disp = dicons.get(ent.attr);
+		if(disp != null) {
+		    dicons.remove(ent.attr);
+		    unmarked.remove(disp);
+		}
+	    } else if(!dicons.containsKey(ent.attr) && !unconf.contains(ent)) {
+		unconf.add(ent);
+	    }
+	}
+	for(Iterator<IconRegistry.Entry> i = unconf.iterator(); i.hasNext();) {
+	    IconRegistry.Entry ent = i.next();
+	    if(ent.removed) {
+		i.remove();
+		continue;
+	    }
+	    GobIcon.Setting conf;
+	    try {
+		conf = iconconf.get(ent.attr.icon());
+	    } catch(Loading l) {
+		continue;
+	    }
+	    /* Icons without settings get them once the settings
+	     * loader has seen them, so keep checking. */
+	    if(conf == null)
+		continue;
+	    DisplayIcon disp = new DisplayIcon(ent.attr, conf);
+	    if(conf.show) {
+		if(disp.notify || (disp.snotify != null))
+		    notifying.add(disp);
+	    } else {
+		disp.notify = false;
+		disp.snotify = null;
+	    }
+	    dicons.put(ent.attr, disp);
+	    unmarked.add(disp);
+	    i.remove();
+	}
+    }
+
+    /* The extent of the session's world within view, in tiles
+     * relative to the session origin, with some margin for icon
+     * size, or null if the session is not displayed. */
+    protected Area iconext() {
+	Location dloc = this.dloc, sessloc = this.sessloc;
+	if((dloc == null) || (sessloc == null) || (dloc.seg.id != sessloc.seg.id))
+	    return(null);
+	Coord hsz = sz.div(2).add(UI.scale(32), UI.scale(32)).mul(scalef());
+	Coord cc = dloc.tc.sub(sessloc.tc);
+	return(Area.corn(cc.sub(hsz), cc.add(hsz)));
+    }
+
     public List<DisplayIcon> findicons(Collection<? extends DisplayIcon> prev) {
 	if((ui.sess == null) || (iconconf == null))
 	    return(Collections.emptyList());
-	Map<GobIcon, DisplayIcon> pmap = Collections.emptyMap();
-	if(prev != null) {
-	    pmap = new HashMap<>();
-	    for(DisplayIcon disp : prev)
-		pmap.put(disp.attr, disp);
-	}
+	iconsync(ui.sess.glob.oc.icons);
 	List<DisplayIcon> ret = new ArrayList<>();
-	OCache oc = ui.sess.glob.oc;
-	synchronized(oc) {
-	    for(Gob gob : oc) {
-		try {
-		    GobIcon icon = gob.getattr(GobIcon.class);
-		    if(icon != null) {
-                GobIcon.Setting conf = iconconf.get(icon.icon());
-			if((conf != null) && conf.show) {
-			    DisplayIcon disp = pmap.remove(icon);
-			    if(disp == null)
-				disp = new DisplayIcon(icon, conf);
-			    disp.update(gob.rc, gob.a);
-			    ret.add(disp);
-			}
-		    }
-		} catch(Loading l) {}
+	Area ext = iconext();
+	if(ext != null) {
+	    for(IconRegistry.Entry ent : iconreg.query(Coord2d.of(ext.ul).mul(tilesz), Coord2d.of(ext.br).mul(tilesz))) {
+		DisplayIcon disp = dicons.get(ent.attr);
+		if((disp == null) || !disp.conf.show)
+		    continue;
+		disp.update(ent.gob.rc, ent.gob.a);
+		ret.add(disp);
 	    }
 	}
-	for(DisplayIcon disp : pmap.values()) {
-	    if(disp.force())
-		ret.add(disp);
+	/* Icons with pending notifications are kept on the list even
+	 * out of view, so that they get to notify and finish
+	 * animating. */
+	if(!notifying.isEmpty()) {
+	    Set<DisplayIcon> listed = new HashSet<>(ret);
+	    boolean extra = false;
+	    for(Iterator<DisplayIcon> i = notifying.iterator(); i.hasNext();) {
+		DisplayIcon disp = i.next();
+		boolean live = dicons.get(disp.attr) == disp;
+		if(!disp.force() && ((disp.snotify == null) || !live || filter(disp))) {
+		    i.remove();
+		    continue;
+		}
+		if(!listed.contains(disp)) {
+		    if(live)
+			disp.update(disp.gob.rc, disp.gob.a);
+		    ret.add(disp);
+		    extra = true;
+		}
+	    }
+	    if(extra)
+		Collections.sort(ret, (a, b) -> a.z - b.z);
 	}
-	Collections.sort(ret, (a, b) -> a.z - b.z);
-	if(ret.size() == 0)
-	    return(Collections.emptyList());
 	return(ret);
     }
 
+    public void destroy() {
+	if(iconreg != null)
+	    iconreg.unlisten(iconl);
+	super.destroy();
+    }
+
     public void drawicons(GOut g) {
 	if((sessloc == null) || (dloc.seg.id != sessloc.seg.id))
 	    return;
@@ -752,13 +835,19 @@ public class MiniMap extends Widget
     }
 
     public void markobjs() {
-	for(DisplayIcon icon : icons) {
+	for(Iterator<DisplayIcon> it = unmarked.iterator(); it.hasNext();) {
+	    DisplayIcon icon = it.next();
 	    try {
-		if(icon.markchecked)
+		if(icon.markchecked) {
+		    it.remove();
+		    continue;
+		}
+		if(!icon.conf.show)
 		    continue;
 		GobIcon.Icon micon = icon.icon;
 		if(!icon.conf.getmarkablep() || !(micon instanceof GobIcon.ImageIcon)) {
 		    icon.markchecked = true;
+		    it.remove();
 		    continue;
 		}
 		Coord tc = icon.gob.rc.floor(tilesz);
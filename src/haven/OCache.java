@@ -63,6 +63,7 @@ public class OCache implements Iterable<Gob> {
     private MultiMap<Long, Gob> objs = new HashMultiMap<Long, Gob>();
     private Glob glob;
     private final Collection<ChangeCallback> cbs = new WeakList<ChangeCallback>();
+    public final IconRegistry icons = new IconRegistry();
 	public final NPathVisualizer paths = new NPathVisualizer();
     public interface ChangeCallback {
 	public void added(Gob ob);
@@ -71,6 +72,7 @@ public class OCache implements Iterable<Gob> {
 
     public OCache(Glob glob) {
 	this.glob = glob;
+	callback(icons);
     }
 
     public synchronized void callback(ChangeCallback cb) {
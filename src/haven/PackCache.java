@@ -0,0 +1,469 @@
+package haven;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.net.URI;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import static haven.Utils.pj;
+
+/* An alternative to HashDirCache for stores holding very many small
+ * entries, such as MapFile grids. Instead of one file per entry,
+ * entries are appended to a small number of pack files, grouped by
+ * what they are (all zoom grids of one segment share a pack, and
+ * grids and gridinfos are spread over a few packs by ID). The index
+ * of entry locations is rebuilt on open by scanning the record
+ * headers, and entries are read through fixed-size memory mappings
+ * of the packs. Overwritten entries leave dead space behind, which is
+ * reclaimed by compacting a pack into a new generation of itself in
+ * the background once enough of it is dead. */
+public class PackCache implements ResCache {
+    public static final Config.Variable<Boolean> enabled = Config.Variable.propb("haven.mappack", false);
+    private static final int MAGIC = 0x4850614b;
+    private static final int VERSION = 1;
+    private static final int HDRSZ = 8;
+    private static final long COMPACTMIN = 4 << 20;
+    /* Size of the memory mappings of a pack, so that no offset into
+     * one exceeds the range of a ByteBuffer. */
+    private static final long CHUNK = 64 << 20;
+    public final Path dir;
+    private final Map<String, Pack> packs = new HashMap<>();
+    private final Map<String, Loc> index = new ConcurrentHashMap<>();
+
+    private static class Loc {
+	final String name;
+	final Gen gen;
+	final long off;
+	final int len;
+
+	Loc(String name, Gen gen, long off, int len) {
+	    this.name = name; this.gen = gen; this.off = off; this.len = len;
+	}
+    }
+
+    /* One generation of a pack's backing file. Completed chunks of
+     * it are mapped once each and never remapped; reads from the
+     * chunk still being appended to, or across chunks, go through
+     * the channel instead. A generation replaced by compaction is
+     * closed once the last reader using it is done. */
+    private static class Gen {
+	final Path path;
+	final int n;
+	final FileChannel ch;
+	long end;
+	private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+	private int users = 0;
+	private boolean retired = false, closed = false;
+
+	Gen(Path path, int n, FileChannel ch, long end) {
+	    this.path = path; this.n = n; this.ch = ch; this.end = end;
+	}
+
+	synchronized boolean acquire() {
+	    if(retired)
+		return(false);
+	    users++;
+	    return(true);
+	}
+
+	synchronized void release() throws IOException {
+	    if((--users == 0) && retired)
+		close();
+	}
+
+	synchronized void retire() throws IOException {
+	    retired = true;
+	    if(users == 0)
+		close();
+	}
+
+	private void close() throws IOException {
+	    if(!closed) {
+		closed = true;
+		ch.close();
+	    }
+	}
+
+	private MappedByteBuffer chunk(int k) throws IOException {
+	    MappedByteBuffer[] chunks = this.chunks;
+	    if((k < chunks.length) && (chunks[k] != null))
+		return(chunks[k]);
+	    synchronized(this) {
+		if(k >= this.chunks.length)
+		    this.chunks = Arrays.copyOf(this.chunks, k + 1);
+		if(this.chunks[k] == null)
+		    this.chunks[k] = ch.map(FileChannel.MapMode.READ_ONLY, (long)k * CHUNK, CHUNK);
+		return(this.chunks[k]);
+	    }
+	}
+
+	/* Must be called between acquire() and release(). */
+	ByteBuffer slice(long off, int len) throws IOException {
+	    int k = (int)(off / CHUNK);
+	    if((off + len <= (long)(k + 1) * CHUNK) && ((long)(k + 1) * CHUNK <= ch.size())) {
+		ByteBuffer ret = chunk(k).duplicate();
+		int coff = (int)(off - (long)k * CHUNK);
+		ret.limit(coff + len);
+		ret.position(coff);
+		return(ret.slice());
+	    }
+	    ByteBuffer ret = ByteBuffer.allocate(len);
+	    if(!readfully(ch, ret, off))
+		throw(new EOFException("pack entry past end of " + path));
+	    return(ret);
+	}
+    }
+
+    private class Pack {
+	final String group;
+	final Set<String> names = new HashSet<>();
+	Gen cur;
+	long live = 0, dead = 0;
+	boolean compacting = false;
+
+	Pack(String group, Gen cur) {
+	    this.group = group;
+	    this.cur = cur;
+	}
+
+	synchronized void put(String name, byte[] data) throws IOException {
+	    byte[] nm = name.getBytes(StandardCharsets.UTF_8);
+	    ByteBuffer buf = ByteBuffer.allocate(2 + nm.length + 4 + data.length);
+	    buf.putShort((short)nm.length).put(nm).putInt(data.length).put(data).flip();
+	    long pos = cur.end;
+	    while(buf.hasRemaining())
+		pos += cur.ch.write(buf, pos);
+	    Loc nl = new Loc(name, cur, cur.end + 2 + nm.length + 4, data.length);
+	    cur.end = pos;
+	    added(name, nl);
+	    if(!compacting && (dead > COMPACTMIN) && (dead > live)) {
+		compacting = true;
+		Defer.later(() -> {
+			try {
+			    compact();
+			} catch(IOException e) {
+			    new Warning(e, "could not compact " + group).issue();
+			}
+			return(null);
+		    });
+	    }
+	}
+
+	void added(String name, Loc nl) {
+	    Loc ol = index.put(name, nl);
+	    names.add(name);
+	    live += nl.len;
+	    if(ol != null) {
+		live -= ol.len;
+		dead += ol.len;
+	    }
+	}
+
+	synchronized void compact() throws IOException {
+	    try {
+		Gen old = cur;
+		int ngen = old.n + 1;
+		Path tmp = pj(dir, String.format("%s.%d.tmp", group, ngen));
+		Map<String, Loc> moved = new HashMap<>();
+		long pos;
+		try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+		    pos = writehdr(ch);
+		    for(String name : names) {
+			Loc l = index.get(name);
+			byte[] nm = name.getBytes(StandardCharsets.UTF_8);
+			ByteBuffer hdr = ByteBuffer.allocate(2 + nm.length + 4);
+			hdr.putShort((short)nm.length).put(nm).putInt(l.len).flip();
+			ByteBuffer data = read(l);
+			moved.put(name, new Loc(name, null, pos + hdr.remaining(), l.len));
+			while(hdr.hasRemaining())
+			    pos += ch.write(hdr, pos);
+			while(data.hasRemaining())
+			    pos += ch.write(data, pos);
+		    }
+		    ch.force(true);
+		}
+		Path npath = pj(dir, String.format("%s.%d.pack", group, ngen));
+		Files.move(tmp, npath, StandardCopyOption.REPLACE_EXISTING);
+		Gen ng = new Gen(npath, ngen, FileChannel.open(npath, StandardOpenOption.READ, StandardOpenOption.WRITE), pos);
+		live = dead = 0;
+		for(Map.Entry<String, Loc> e : moved.entrySet()) {
+		    index.put(e.getKey(), new Loc(e.getKey(), ng, e.getValue().off, e.getValue().len));
+		    live += e.getValue().len;
+		}
+		cur = ng;
+		/* Readers that found an entry in the old generation
+		 * finish reading it before it is closed. */
+		old.retire();
+		try {
+		    Files.deleteIfExists(old.path);
+		} catch(IOException e) {
+		    /* Still open or mapped on Windows; removed on next
+		     * open instead. */
+		}
+	    } finally {
+		compacting = false;
+	    }
+	}
+    }
+
+    private static long writehdr(FileChannel ch) throws IOException {
+	ByteBuffer hdr = ByteBuffer.allocate(HDRSZ);
+	hdr.putInt(MAGIC).putInt(VERSION).flip();
+	long pos = 0;
+	while(hdr.hasRemaining())
+	    pos += ch.write(hdr, pos);
+	return(pos);
+    }
+
+    private PackCache(Path dir) throws IOException {
+	this.dir = dir;
+	Files.createDirectories(dir);
+	open();
+    }
+
+    private void open() throws IOException {
+	Map<String, Integer> latest = new HashMap<>();
+	Collection<Path> stale = new ArrayList<>();
+	try(DirectoryStream<Path> ls = Files.newDirectoryStream(dir)) {
+	    for(Path p : ls) {
+		String fn = p.getFileName().toString();
+		if(fn.endsWith(".tmp")) {
+		    stale.add(p);
+		    continue;
+		}
+		String[] parts = fn.split("\\.");
+		if((parts.length != 3) || !parts[2].equals("pack"))
+		    continue;
+		int gen = Integer.parseInt(parts[1]);
+		Integer cur = latest.get(parts[0]);
+		if((cur == null) || (gen > cur))
+		    latest.put(parts[0], gen);
+	    }
+	}
+	try(DirectoryStream<Path> ls = Files.newDirectoryStream(dir, "*.pack")) {
+	    for(Path p : ls) {
+		String[] parts = p.getFileName().toString().split("\\.");
+		if(Integer.parseInt(parts[1]) < latest.get(parts[0]))
+		    stale.add(p);
+	    }
+	}
+	for(Path p : stale) {
+	    try {
+		Files.deleteIfExists(p);
+	    } catch(IOException e) {
+	    }
+	}
+	for(Map.Entry<String, Integer> e : latest.entrySet()) {
+	    Path path = pj(dir, String.format("%s.%d.pack", e.getKey(), e.getValue()));
+	    Pack pack = new Pack(e.getKey(), null);
+	    pack.cur = scan(pack, path, e.getValue());
+	    packs.put(e.getKey(), pack);
+	}
+    }
+
+    private static boolean readfully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+	while(buf.hasRemaining()) {
+	    int rv = ch.read(buf, pos);
+	    if(rv < 0)
+		return(false);
+	    pos += rv;
+	}
+	buf.flip();
+	return(true);
+    }
+
+    private Gen scan(Pack pack, Path path, int n) throws IOException {
+	FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	long sz = ch.size();
+	if(sz < HDRSZ) {
+	    ch.truncate(0);
+	    return(new Gen(path, n, ch, writehdr(ch)));
+	}
+	ByteBuffer hdr = ByteBuffer.allocate(HDRSZ);
+	readfully(ch, hdr, 0);
+	if((hdr.getInt() != MAGIC) || (hdr.getInt() != VERSION)) {
+	    ch.close();
+	    throw(new IOException("not a pack file: " + path));
+	}
+	Gen gen = new Gen(path, n, ch, HDRSZ);
+	long pos = HDRSZ;
+	ByteBuffer lb = ByteBuffer.allocate(4);
+	while(pos + 2 <= sz) {
+	    lb.clear(); lb.limit(2);
+	    if(!readfully(ch, lb, pos))
+		break;
+	    int nl = lb.getShort() & 0xffff;
+	    if(pos + 2 + nl + 4 > sz)
+		break;
+	    ByteBuffer nb = ByteBuffer.allocate(nl + 4);
+	    if(!readfully(ch, nb, pos + 2))
+		break;
+	    byte[] nm = new byte[nl];
+	    nb.get(nm);
+	    int dl = nb.getInt();
+	    long doff = pos + 2 + nl + 4;
+	    if((dl < 0) || (doff + dl > sz))
+		break;
+	    String name = new String(nm, StandardCharsets.UTF_8);
+	    pack.added(name, new Loc(name, gen, doff, dl));
+	    pos = doff + dl;
+	}
+	if(pos < sz) {
+	    /* Truncated trailing record from an unclean shutdown. */
+	    Debug.log.printf("pack-cache: truncating %s at %d of %d\n", path, pos, sz);
+	    ch.truncate(pos);
+	}
+	gen.end = pos;
+	return(gen);
+    }
+
+    private static String group(String name) {
+	int p = name.lastIndexOf('/');
+	String pfx = (p < 0) ? "" : name.substring(0, p);
+	String datum = name.substring(p + 1);
+	String kind;
+	if(datum.startsWith("zgrid-")) {
+	    int e = datum.indexOf('-', 6);
+	    kind = "z" + ((e < 0) ? "" : datum.substring(6, e));
+	} else if(datum.startsWith("grid-")) {
+	    kind = "g" + datum.charAt(datum.length() - 1);
+	} else if(datum.startsWith("gi-")) {
+	    kind = "i" + datum.charAt(datum.length() - 1);
+	} else {
+	    kind = "m";
+	}
+	return(String.format("%08x-%s", pfx.hashCode(), kind));
+    }
+
+    private Pack pack(String group) throws IOException {
+	synchronized(packs) {
+	    Pack ret = packs.get(group);
+	    if(ret == null) {
+		Path path = pj(dir, String.format("%s.%d.pack", group, 0));
+		FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ch.truncate(0);
+		packs.put(group, ret = new Pack(group, new Gen(path, 0, ch, writehdr(ch))));
+	    }
+	    return(ret);
+	}
+    }
+
+    private static class BufferInputStream extends InputStream {
+	private final ByteBuffer buf;
+
+	BufferInputStream(ByteBuffer buf) {this.buf = buf;}
+
+	public int read() {
+	    return(buf.hasRemaining() ? (buf.get() & 0xff) : -1);
+	}
+
+	public int read(byte[] b, int off, int len) {
+	    if(!buf.hasRemaining())
+		return(-1);
+	    len = Math.min(len, buf.remaining());
+	    buf.get(b, off, len);
+	    return(len);
+	}
+
+	public long skip(long n) {
+	    int r = (int)Math.min(n, buf.remaining());
+	    buf.position(buf.position() + r);
+	    return(r);
+	}
+
+	public int available() {
+	    return(buf.remaining());
+	}
+    }
+
+    /* Data of an entry. A location in a generation that compaction
+     * has retired has been superseded in the index, so the entry is
+     * looked up again. */
+    private ByteBuffer read(Loc l) throws IOException {
+	while(!l.gen.acquire()) {
+	    Loc nl = index.get(l.name);
+	    if((nl == null) || (nl == l))
+		throw(new FileNotFoundException(l.name));
+	    l = nl;
+	}
+	try {
+	    return(l.gen.slice(l.off, l.len));
+	} finally {
+	    l.gen.release();
+	}
+    }
+
+    public InputStream fetch(String name) throws IOException {
+	Loc l = index.get(name);
+	if(l == null)
+	    throw(new FileNotFoundException(name));
+	return(new BufferInputStream(read(l)));
+    }
+
+    public OutputStream store(String name) throws IOException {
+	Pack pack = pack(group(name));
+	return(new ByteArrayOutputStream() {
+		private boolean closed = false;
+
+		public void close() throws IOException {
+		    if(closed)
+			return;
+		    closed = true;
+		    pack.put(name, toByteArray());
+		}
+	    });
+    }
+
+    public boolean has(String name) {
+	return(index.containsKey(name));
+    }
+
+    public int size() {
+	return(index.size());
+    }
+
+    public String toString() {
+	long live = 0, dead = 0;
+	synchronized(packs) {
+	    for(Pack p : packs.values()) {
+		synchronized(p) {
+		    live += p.live;
+		    dead += p.dead;
+		}
+	    }
+	    return(String.format("#<pack-cache %s: %d entries in %d packs, %,d live bytes, %,d dead>", dir, index.size(), packs.size(), live, dead));
+	}
+    }
+
+    private static final Map<URI, PackCache> current = new HashMap<>();
+    public static PackCache get(URI id) throws IOException {
+	synchronized(current) {
+	    PackCache ret = current.get(id);
+	    if(ret == null) {
+		current.put(id, ret = new PackCache(pj(HashDirCache.findbase(), "mappack", idname(id))));
+	    }
+	    return(ret);
+	}
+    }
+
+    private static String idname(URI id) {
+	long h = 0;
+	String s = id.toString();
+	for(int i = 0; i < s.length(); i++)
+	    h = (h * 31) + s.charAt(i);
+	return(String.format("%016x", h));
+    }
+
+    /* The pack store corresponding to a conventional store, if
+     * there is one. */
+    public static PackCache forstore(ResCache store) throws IOException {
+	if(store instanceof PackCache)
+	    return((PackCache)store);
+	if(store instanceof HashDirCache)
+	    return(get(((HashDirCache)store).id));
+	return(null);
+    }
+}
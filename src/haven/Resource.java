@@ -60,6 +60,7 @@ public class Resource implements Serializable {
     public final String name;
     public int ver;
     public ResSource source;
+    public transient long datasz = 0;
     public final transient Pool pool;
     private boolean used = false;
 
@@ -502,10 +503,19 @@ public class Resource implements Serializable {
     }
 
     public static class Pool {
+	/* Observes resource requests made against a pool, e.g. for
+	 * recording which resources a session needs early on. */
+	public interface LoadMonitor {
+	    public void requested(String name, int ver);
+	    public void loaded(String name, int ver, long waitns);
+	}
+
+	public static final Config.Variable<Integer> cachebudget = Config.Variable.propi("haven.rescachesz", 128);
 	public int nloaders = 2;
+	public volatile LoadMonitor monitor = null;
 	private final Collection<Loader> loaders = new LinkedList<Loader>();
 	private final List<ResSource> sources = new LinkedList<ResSource>();
-	private final Map<String, Resource> cache = new CacheMap<String, Resource>();
+	private final Map<String, Resource> cache = new LRUCache<>("resources", cachebudget.get() * 1048576L, r -> Math.max(r.datasz, 1024));
 	private final PrioQueue<Queued> queue = new PrioQueue<Queued>();
 	private final Map<String, Queued> queued = new HashMap<String, Queued>();
 	private final Pool parent;
@@ -529,6 +539,7 @@ public class Resource implements Serializable {
 	    final Waitable.Queue wq = new Waitable.Queue();
 	    volatile int prio;
 	    Queued awaiting;
+	    final long qtime = System.nanoTime();
 	    volatile boolean done = false;
 	    Resource res;
 	    LoadException error;
@@ -579,6 +590,9 @@ public class Resource implements Serializable {
 		    synchronized(queue) {
 			queued.remove(name);
 		    }
+		    LoadMonitor mon = monitor;
+		    if(mon != null)
+			mon.loaded(name, res.ver, System.nanoTime() - qtime);
 		}
 	    }
 
@@ -608,7 +622,8 @@ public class Resource implements Serializable {
 	private void handle(Queued res) {
 	    for(ResSource src : sources) {
 		try(InputStream in = src.get(res.name)) {
-		    Message msg = new StreamMessage(in);
+		    CountingInputStream cin = new CountingInputStream(in);
+		    Message msg = new StreamMessage(cin);
 		    if(msg.eom()) {
 			/* XXX? This should not be necessary, but for some reason
 			 * it seems that custom client resources find their way to
@@ -620,6 +635,7 @@ public class Resource implements Serializable {
 		    Resource ret = new Resource(this, res.name, res.ver);
 		    ret.source = src;
 		    ret.load(msg);
+		    ret.datasz = cin.pos;
 		    res.res = ret;
 		    res.error = null;
 		    break;
@@ -644,6 +660,9 @@ public class Resource implements Serializable {
 
 	public Named load(String name, int ver, int prio) {
 	    Queued ret;
+	    LoadMonitor mon = monitor;
+	    if(mon != null)
+		mon.requested(name, ver);
 	    synchronized(cache) {
 		Resource cur = cache.get(name);
 		if(cur != null) {
@@ -707,6 +726,15 @@ public class Resource implements Serializable {
 	public Named load(String name, int ver) {return(load(name, ver, 0));}
 	public Named load(String name) {return(load(name, -1));}
 
+	/* Decodes a resource directly from the given data, bypassing
+	 * the sources, queue and cache of this pool. For offline tools
+	 * and benchmarks. */
+	public Resource decode(String name, Message data) {
+	    Resource ret = new Resource(this, name, -1);
+	    ret.load(data);
+	    return(ret);
+	}
+
 	public Indir<Resource> dynres(long id) {
 	    return(load(String.format("dyn/%x", id), 1));
 	}
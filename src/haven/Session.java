@@ -291,9 +291,26 @@ public class Session implements Resource.Resolver {
 	this.user = user;
 	this.glob = new Glob(this);
 	conn.add(conncb);
+	if(Capture.dir.get() != null) {
+	    try {
+		conn.add(Capture.Recorder.todir(Capture.dir.get()));
+	    } catch(IOException e) {
+		new Warning(e, "could not start session capture").issue();
+	    }
+	}
 	conn.connect((user.alias != null) ? user.alias : user.name, encrypt, cookie, args);
     }
 
+    /* Creates a session that is not connected to any server, whose
+     * traffic is instead injected into the given connection, as by
+     * Capture.Player. */
+    public Session(Connection conn, User user) {
+	this.conn = conn;
+	this.user = user;
+	this.glob = new Glob(this);
+	conn.add(conncb);
+    }
+
     public void close() {
 	conn.close();
     }
@@ -4,6 +4,7 @@ import nurgling.NUtils;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.awt.image.WritableRaster;
 import java.util.*;
 
@@ -94,58 +95,116 @@ public class TileHighlight {
         }
     }
     
+    /**
+     * Which of the grid's tilesets are currently highlighted, by tileset
+     * index of the grid
+     */
+    public static boolean[] flags(MapFile.DataGrid grid) {
+        boolean[] ret = new boolean[grid.tilesets.length];
+        synchronized (highlight) {
+            for (int i = 0; i < ret.length; i++)
+                ret[i] = (grid.tilesets[i] != null) && highlight.contains(grid.tilesets[i].res.name);
+        }
+        return ret;
+    }
+    
     /**
      * Render overlay texture for a map grid based on current highlights
      * @param grid The map grid to render overlay for
      * @return BufferedImage with semi-transparent colored overlay
      */
     public static BufferedImage olrender(MapFile.DataGrid grid) {
-        TileHighlightOverlay ol = new TileHighlightOverlay(grid);
+        return (olrender(new TileHighlightOverlay(grid)));
+    }
+    
+    public static BufferedImage olrender(TileHighlightOverlay ol) {
         WritableRaster buf = PUtils.imgraster(cmaps);
         Color col = ol.color();
         if(col != null) {
-            Coord c = new Coord();
-            for (c.y = 0; c.y < cmaps.y; c.y++) {
-                for (c.x = 0; c.x < cmaps.x; c.x++) {
-                    if(ol.get(c)) {
-                        // Blend overlay color with existing pixel using alpha
-                        buf.setSample(c.x, c.y, 0, ((col.getRed() * col.getAlpha()) + (buf.getSample(c.x, c.y, 0) * (255 - col.getAlpha()))) / 255);
-                        buf.setSample(c.x, c.y, 1, ((col.getGreen() * col.getAlpha()) + (buf.getSample(c.x, c.y, 1) * (255 - col.getAlpha()))) / 255);
-                        buf.setSample(c.x, c.y, 2, ((col.getBlue() * col.getAlpha()) + (buf.getSample(c.x, c.y, 2) * (255 - col.getAlpha()))) / 255);
-                        buf.setSample(c.x, c.y, 3, Math.max(buf.getSample(c.x, c.y, 3), col.getAlpha()));
-                    }
-                }
+            /* The raster starts out transparent, so blending the colour over it gives the same pixel
+             * everywhere; write it straight into the backing array */
+            int a = col.getAlpha();
+            byte[] px = {(byte)((col.getRed() * a) / 255), (byte)((col.getGreen() * a) / 255), (byte)((col.getBlue() * a) / 255), (byte)a};
+            byte[] data = ((DataBufferByte)buf.getDataBuffer()).getData();
+            for (int i = 0, o = 0; i < ol.ol.length; i++, o += 4) {
+                if(ol.ol[i])
+                    System.arraycopy(px, 0, data, o, 4);
             }
         }
         return (PUtils.rasterimg(buf));
     }
     
+    /**
+     * Highlight overlay texture of one map grid. It is only rendered again
+     * when the highlight of one of the grid's own tilesets changed, so that
+     * highlighting a tileset leaves the overlays of grids without it alone.
+     */
+    public static class GridOverlay {
+        public final MapFile.DataGrid grid;
+        private long seq = -1;
+        private boolean[] flags = null;
+        private Tex tex = null;
+        
+        public GridOverlay(MapFile.DataGrid grid) {
+            this.grid = grid;
+        }
+        
+        /**
+         * Current overlay texture, or null if nothing of the grid is highlighted
+         */
+        public Tex get() {
+            long cur = TileHighlight.seq;
+            if((cur != seq) && (grid != null)) {
+                boolean[] nflags = flags(grid);
+                if(!Arrays.equals(nflags, flags)) {
+                    dispose();
+                    TileHighlightOverlay ol = new TileHighlightOverlay(grid, nflags);
+                    if(ol.any)
+                        tex = new TexI(olrender(ol));
+                    flags = nflags;
+                }
+                seq = cur;
+            }
+            return (tex);
+        }
+        
+        public void dispose() {
+            if(tex != null) {
+                tex.dispose();
+                tex = null;
+            }
+        }
+    }
+    
     /**
      * Overlay mask that determines which tiles should be highlighted
      */
     public static class TileHighlightOverlay {
         private final boolean[] ol;
+        boolean any = false;
         
         public TileHighlightOverlay(MapFile.DataGrid g) {
+            this(g, (g == null) ? null : flags(g));
+        }
+        
+        public TileHighlightOverlay(MapFile.DataGrid g, boolean[] flags) {
             this.ol = new boolean[cmaps.x * cmaps.y];
-            fill(g);
+            fill(g, flags);
         }
         
         /**
-         * Fill overlay mask based on current highlights
+         * Fill overlay mask based on the highlighted tilesets of the grid
          */
-        private void fill(MapFile.DataGrid grid) {
+        private void fill(MapFile.DataGrid grid, boolean[] flags) {
             if(grid == null) {return;}
             Coord c = new Coord(0, 0);
-            for (c.x = 0; c.x < cmaps.x; c.x++) {
-                for (c.y = 0; c.y < cmaps.y; c.y++) {
-                    int tile = grid.gettile(c);
-                    MapFile.TileInfo tileset = grid.tilesets[tile];
-                    boolean v = isHighlighted(tileset.res.name);
-                    set(c, v);
-                    // Add 1-tile border around highlighted tiles for better visibility
-                    if(v) { 
+            for (c.y = 0; c.y < cmaps.y; c.y++) {
+                for (c.x = 0; c.x < cmaps.x; c.x++) {
+                    if(flags[grid.gettile(c)]) {
+                        set(c, true);
+                        // Add 1-tile border around highlighted tiles for better visibility
                         setn(c, true);
+                        any = true;
                     }
                 }
             }
@@ -87,6 +87,10 @@ public class RealmChannel extends ChatUI.MultiChat {
 	public boolean valid(Indir<Text> data) {
 	    return(((Rendered)data).nm.equals(nm()));
 	}
+
+	public String logtext() {
+	    return(nm() + ": " + text);
+	}
     }
 
     public PNamedMessage msgbyname(String nm) {
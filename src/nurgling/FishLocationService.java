@@ -25,15 +25,19 @@ import java.util.stream.Stream;
  * Supports world-specific profiles via ProfileAwareService
  */
 public class FishLocationService implements ProfileAwareService {
+    private static final int JOURNAL_MIN = 64;
     private final Map<String, FishLocation> fishLocations = new ConcurrentHashMap<>();
+    private final LocationIndex<FishLocation> index = new LocationIndex<>();
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private String dataFile;
+    private LocationJournal journal;
     private final NGameUI gui;
     private String genus;
 
     public FishLocationService(NGameUI gui) {
         this.gui = gui;
         this.dataFile = ((HashDirCache) ResCache.global).base + "\\..\\" + "fish_locations.nurgling.json";
+        this.journal = new LocationJournal(dataFile);
         loadFishLocations();
     }
 
@@ -53,6 +57,7 @@ public class FishLocationService implements ProfileAwareService {
         this.genus = genus;
         NConfig config = ConfigFactory.getConfig(genus);
         this.dataFile = config.getFishLocationsPath();
+        this.journal = new LocationJournal(dataFile);
         load();
     }
 
@@ -131,8 +136,8 @@ public class FishLocationService implements ProfileAwareService {
             try {
                 FishLocation location = new FishLocation(segmentId, segmentCoord, fishName, fishResource,
                     percentage, gameTime, moonPhase, equipment.fishingRod, equipment.hook, equipment.line, equipment.bait);
-                fishLocations.put(location.getLocationId(), location);
-                saveFishLocations();
+                put(location);
+                record(new JSONObject().put("add", location.toJson()));
                 gui.msg("Saved " + fishName + " location (" + percentage + ")", java.awt.Color.GREEN);
             } finally {
                 lock.writeLock().unlock();
@@ -164,18 +169,25 @@ public class FishLocationService implements ProfileAwareService {
     }
 
     /**
-     * Get all fish locations for a segment (for map rendering)
+     * Get all fish locations for a segment
      */
     public List<FishLocation> getFishLocationsForSegment(long segmentId) {
         lock.readLock().lock();
         try {
-            List<FishLocation> result = new ArrayList<>();
-            for (FishLocation loc : fishLocations.values()) {
-                if (loc.getSegmentId() == segmentId) {
-                    result.add(loc);
-                }
-            }
-            return result;
+            return index.all(segmentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the fish locations of a segment within a tile area whose names
+     * contain the search pattern (for map rendering and hit testing)
+     */
+    public List<FishLocation> getFishLocationsInArea(long segmentId, Area area, String searchPattern) {
+        lock.readLock().lock();
+        try {
+            return index.query(segmentId, area, searchPattern);
         } finally {
             lock.readLock().unlock();
         }
@@ -199,9 +211,9 @@ public class FishLocationService implements ProfileAwareService {
     public boolean removeFishLocation(String locationId) {
         lock.writeLock().lock();
         try {
-            boolean removed = fishLocations.remove(locationId) != null;
+            boolean removed = drop(locationId) != null;
             if (removed) {
-                saveFishLocations();
+                record(new JSONObject().put("remove", locationId));
             }
             return removed;
         } finally {
@@ -216,6 +228,7 @@ public class FishLocationService implements ProfileAwareService {
         lock.writeLock().lock();
         try {
             fishLocations.clear();
+            index.clear();
             File file = new File(dataFile);
             if (file.exists()) {
                 StringBuilder contentBuilder = new StringBuilder();
@@ -231,19 +244,48 @@ public class FishLocationService implements ProfileAwareService {
                         JSONObject main = new JSONObject(contentBuilder.toString());
                         JSONArray array = main.getJSONArray("fishLocations");
                         for (int i = 0; i < array.length(); i++) {
-                            FishLocation location = new FishLocation(array.getJSONObject(i));
-                            fishLocations.put(location.getLocationId(), location);
+                            put(new FishLocation(array.getJSONObject(i)));
                         }
                     } catch (Exception e) {
                         System.err.println("Failed to parse fish locations JSON: " + e.getMessage());
                     }
                 }
             }
+            journal.replay(op -> {
+                if (op.has("add"))
+                    put(new FishLocation(op.getJSONObject("add")));
+                else if (op.has("remove"))
+                    drop(op.getString("remove"));
+            });
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    private void put(FishLocation location) {
+        FishLocation old = fishLocations.put(location.getLocationId(), location);
+        if (old != null)
+            index.remove(old.getSegmentId(), old.getTileCoords(), old);
+        index.add(location.getSegmentId(), location.getTileCoords(), location.getFishName(), location);
+    }
+
+    private FishLocation drop(String locationId) {
+        FishLocation old = fishLocations.remove(locationId);
+        if (old != null)
+            index.remove(old.getSegmentId(), old.getTileCoords(), old);
+        return old;
+    }
+
+    /**
+     * Log a change instead of rewriting the whole file, folding the log
+     * back into the file once it grows past a quarter of the data
+     */
+    private void record(JSONObject op) {
+        // Called within write lock
+        if (!journal.append(op) || (journal.size() > Math.max(JOURNAL_MIN, fishLocations.size() / 4)))
+            saveFishLocations();
+    }
+
     /**
      * Save fish locations to JSON
      */
@@ -262,6 +304,7 @@ public class FishLocationService implements ProfileAwareService {
             try (FileWriter writer = new FileWriter(dataFile, StandardCharsets.UTF_8)) {
                 writer.write(main.toString(2)); // Pretty print with indent
             }
+            journal.clear();
         } catch (IOException e) {
             System.err.println("Failed to save fish locations: " + e.getMessage());
         }
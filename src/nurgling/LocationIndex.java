@@ -0,0 +1,110 @@
+package nurgling;
+
+import haven.Area;
+import haven.Coord;
+import haven.MCache;
+
+import java.util.*;
+
+/**
+ * Spatial index of saved map locations (trees, fish), bucketed per segment
+ * into map-grid sized cells, so the minimap can ask only for what lies in
+ * its viewport. Each entry carries a precomputed lowercase search key, so
+ * filtering by the marker search pattern does not lowercase names per frame.
+ * Not thread-safe; the owning service guards it with its own lock.
+ */
+public class LocationIndex<T> {
+    private static final Coord CELL = MCache.cmaps;
+
+    private static class Entry<T> {
+        final T loc;
+        final Coord tc;
+        final String key;
+
+        Entry(T loc, Coord tc, String key) {
+            this.loc = loc;
+            this.tc = tc;
+            this.key = key;
+        }
+    }
+
+    private final Map<Long, Map<Coord, List<Entry<T>>>> segments = new HashMap<>();
+
+    public void add(long seg, Coord tc, String name, T loc) {
+        String key = (name == null) ? null : name.toLowerCase();
+        segments.computeIfAbsent(seg, s -> new HashMap<>())
+                .computeIfAbsent(tc.div(CELL), c -> new ArrayList<>())
+                .add(new Entry<>(loc, tc, key));
+    }
+
+    public void remove(long seg, Coord tc, T loc) {
+        Map<Coord, List<Entry<T>>> cells = segments.get(seg);
+        if (cells == null)
+            return;
+        Coord cc = tc.div(CELL);
+        List<Entry<T>> cell = cells.get(cc);
+        if (cell == null)
+            return;
+        cell.removeIf(e -> e.loc == loc);
+        if (cell.isEmpty()) {
+            cells.remove(cc);
+            if (cells.isEmpty())
+                segments.remove(seg);
+        }
+    }
+
+    public void clear() {
+        segments.clear();
+    }
+
+    /**
+     * All locations in a segment
+     */
+    public List<T> all(long seg) {
+        List<T> ret = new ArrayList<>();
+        Map<Coord, List<Entry<T>>> cells = segments.get(seg);
+        if (cells != null) {
+            for (List<Entry<T>> cell : cells.values()) {
+                for (Entry<T> e : cell)
+                    ret.add(e.loc);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Locations of a segment within the given tile area whose names contain
+     * the search pattern (case-insensitive). An empty or null pattern matches
+     * everything; a non-empty one never matches locations without a name.
+     */
+    public List<T> query(long seg, Area area, String pattern) {
+        List<T> ret = new ArrayList<>();
+        Map<Coord, List<Entry<T>>> cells = segments.get(seg);
+        if (cells == null)
+            return ret;
+        String pat = ((pattern == null) || pattern.trim().isEmpty()) ? null : pattern.toLowerCase();
+        Area carea = new Area(area.ul.div(CELL), area.br.sub(1, 1).div(CELL).add(1, 1));
+        if (carea.area() <= cells.size()) {
+            for (Coord cc : carea)
+                collect(cells.get(cc), area, pat, ret);
+        } else {
+            for (Map.Entry<Coord, List<Entry<T>>> cell : cells.entrySet()) {
+                if (carea.contains(cell.getKey()))
+                    collect(cell.getValue(), area, pat, ret);
+            }
+        }
+        return ret;
+    }
+
+    private static <T> void collect(List<Entry<T>> cell, Area area, String pat, List<T> ret) {
+        if (cell == null)
+            return;
+        for (Entry<T> e : cell) {
+            if (!area.contains(e.tc))
+                continue;
+            if ((pat != null) && ((e.key == null) || !e.key.contains(pat)))
+                continue;
+            ret.add(e.loc);
+        }
+    }
+}
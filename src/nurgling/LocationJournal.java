@@ -0,0 +1,87 @@
+package nurgling;
+
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * Append-only change log kept next to a saved-locations JSON file.
+ * Additions and removals are appended one JSON object per line instead of
+ * rewriting the whole file on every change; the log is replayed over the
+ * main file on load and folded back into it when the owning service does
+ * a full save.
+ */
+public class LocationJournal {
+    private final String path;
+    private int entries = 0;
+
+    public LocationJournal(String dataFile) {
+        this.path = dataFile + ".log";
+    }
+
+    /**
+     * Replays logged operations in order. A torn last line from an
+     * interrupted write is skipped.
+     */
+    public void replay(Consumer<JSONObject> op) {
+        entries = 0;
+        if (!new File(path).exists())
+            return;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+                JSONObject obj;
+                try {
+                    obj = new JSONObject(line);
+                } catch (Exception e) {
+                    System.err.println("Skipping damaged entry in " + path);
+                    continue;
+                }
+                op.accept(obj);
+                entries++;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read " + path + ": " + e.getMessage());
+        }
+    }
+
+    public boolean append(JSONObject op) {
+        try (FileWriter writer = new FileWriter(path, StandardCharsets.UTF_8, true)) {
+            writer.write(op.toString());
+            writer.write('\n');
+            entries++;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to append to " + path + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Number of operations in the log
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Drops the log once its operations are in the main file
+     */
+    public void clear() {
+        entries = 0;
+        try {
+            Files.deleteIfExists(Paths.get(path));
+        } catch (IOException e) {
+            System.err.println("Failed to remove " + path + ": " + e.getMessage());
+        }
+    }
+}
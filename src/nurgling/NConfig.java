@@ -16,6 +16,8 @@ import java.nio.charset.*;
 import java.nio.file.*;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.*;
 
 public class NConfig
@@ -97,7 +99,7 @@ public class NConfig
         questNotified, lpassistent, fishingsettings,
         serverNode, serverUser, serverPass, ndbenable, harvestautorefill, cleanupQContainers, autoEquipTravellersSacks, qualityGrindSeedingPatter, postgres, sqlite, dbFilePath, simplecrops,
         syncServerEnabled, syncServerUrl, syncZoneSync, syncIntervalMinutes,
-        temsmarktime, exploredAreaEnable, player_box, player_fov, temsmarkdist, tempmark, gridbox, useGlobalPf, useHFinGlobalPF, boxFillColor, boxEdgeColor, boxLineWidth, ropeAfterFeeding, ropeAfterTaiming, eatingConf, deersprop,dropConf, printpfmap, fonts,
+        temsmarktime, exploredAreaEnable, player_box, player_fov, temsmarkdist, tempmark, gridbox, useGlobalPf, useHFinGlobalPF, boxFillColor, boxEdgeColor, boxLineWidth, ropeAfterFeeding, ropeAfterTaiming, eatingConf, deersprop,dropConf, printpfmap, recordpfmap, fonts,
         shortCupboards,
         shortWalls,
         decalsOnTop,
@@ -154,7 +156,9 @@ public class NConfig
         treeFinderSaveToMapMinGrowth,
         treeFinderShowNotification,
         treeFinderShowNotificationMinGrowth,
-        treeFinderNotificationAutoCloseTime
+        treeFinderNotificationAutoCloseTime,
+        adaptivePreload,
+        adaptivePreloadTime
     }
 
     public enum BBDisplayMode
@@ -266,6 +270,7 @@ public class NConfig
         conf.put(Key.fillCompostWithSwill, false);
         conf.put(Key.ignoreStrawInFarmers, false);
         conf.put(Key.printpfmap, false);
+        conf.put(Key.recordpfmap, false);
         conf.put(Key.boxLineWidth, 4);
         conf.put(Key.persistentBarrelLabels, false);
         conf.put(Key.uniformBiomeColors, false);
@@ -408,6 +413,153 @@ public class NConfig
         conf.put(Key.treeFinderShowNotification, true);
         conf.put(Key.treeFinderShowNotificationMinGrowth, 100);  // Default 100%
         conf.put(Key.treeFinderNotificationAutoCloseTime, 30);  // Default 30 seconds
+
+        // Adaptive resource preload settings
+        conf.put(Key.adaptivePreload, true);
+        conf.put(Key.adaptivePreloadTime, 60);  // Seconds of each session to record
+        publish(null);
+    }
+
+    /**
+     * Immutable view of a configuration at one version. A new snapshot is
+     * built and published atomically on every change, so readers on any
+     * thread see a consistent set of values without locking. Booleans and
+     * numbers are unpacked once per snapshot so typed reads do not unbox.
+     */
+    public static final class Snapshot
+    {
+        private static final Key[] keys = Key.values();
+        public final long version;
+        private final EnumMap<Key, Object> values;
+        private final boolean[] bools = new boolean[keys.length];
+        private final long[] longs = new long[keys.length];
+        private final double[] doubles = new double[keys.length];
+
+        Snapshot(Map<Key, Object> conf, long version)
+        {
+            this.version = version;
+            this.values = conf.isEmpty() ? new EnumMap<>(Key.class) : new EnumMap<>(conf);
+            for (Map.Entry<Key, Object> e : values.entrySet())
+            {
+                int i = e.getKey().ordinal();
+                Object v = e.getValue();
+                if (v instanceof Boolean)
+                {
+                    bools[i] = (Boolean) v;
+                }
+                else if (v instanceof Number)
+                {
+                    longs[i] = ((Number) v).longValue();
+                    doubles[i] = ((Number) v).doubleValue();
+                    bools[i] = longs[i] != 0;
+                }
+            }
+        }
+
+        public Object get(Key key)
+        {
+            return values.get(key);
+        }
+
+        public boolean getBool(Key key)
+        {
+            return bools[key.ordinal()];
+        }
+
+        public int getInt(Key key)
+        {
+            return (int) longs[key.ordinal()];
+        }
+
+        public long getLong(Key key)
+        {
+            return longs[key.ordinal()];
+        }
+
+        public double getDouble(Key key)
+        {
+            return doubles[key.ordinal()];
+        }
+    }
+
+    /**
+     * Notified after a change to the current configuration has been
+     * published. The key is null when many values changed at once, such as
+     * after loading the configuration or switching to another one.
+     */
+    public interface Listener
+    {
+        void changed(Key key);
+    }
+
+    private static final AtomicLong versions = new AtomicLong();
+    private static final Collection<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), 0);
+
+    private void publish(Key key)
+    {
+        synchronized (this)
+        {
+            snapshot = new Snapshot(conf, versions.incrementAndGet());
+        }
+        if (current == this)
+        {
+            for (Listener l : listeners)
+                l.changed(key);
+        }
+    }
+
+    private static void setCurrent(NConfig config)
+    {
+        current = config;
+        config.publish(null);
+    }
+
+    public static void addListener(Listener l)
+    {
+        listeners.add(l);
+    }
+
+    public static void removeListener(Listener l)
+    {
+        listeners.remove(l);
+    }
+
+    /**
+     * Snapshot of the current configuration, or null before one is loaded
+     */
+    public static Snapshot snapshot()
+    {
+        NConfig cur = current;
+        return (cur == null) ? null : cur.snapshot;
+    }
+
+    /**
+     * Increases on every change of the current configuration, so hot paths
+     * can cache values and refresh them only when it moves.
+     */
+    public static long version()
+    {
+        Snapshot snap = snapshot();
+        return (snap == null) ? 0 : snap.version;
+    }
+
+    public static boolean getBool(Key key)
+    {
+        Snapshot snap = snapshot();
+        return (snap != null) && snap.getBool(key);
+    }
+
+    public static int getInt(Key key)
+    {
+        Snapshot snap = snapshot();
+        return (snap == null) ? 0 : snap.getInt(key);
+    }
+
+    public static double getDouble(Key key)
+    {
+        Snapshot snap = snapshot();
+        return (snap == null) ? 0 : snap.getDouble(key);
     }
 
 
@@ -441,18 +593,24 @@ public class NConfig
 
     public static Object get(Key key)
     {
-        if (current == null)
+        Snapshot snap = snapshot();
+        if (snap == null)
             return null;
         else
-            return current.conf.get(key);
+            return snap.get(key);
     }
 
     public static void set(Key key, Object val)
     {
-        if (current != null)
+        NConfig cur = current;
+        if (cur != null)
         {
-            current.isUpd = true;
-            current.conf.put(key, val);
+            synchronized (cur)
+            {
+                cur.isUpd = true;
+                cur.conf.put(key, val);
+            }
+            cur.publish(key);
         }
     }
 
@@ -512,7 +670,7 @@ public class NConfig
         }
     }
 
-    public static NConfig current;
+    public static volatile NConfig current;
 
     // Profile management - World-specific configurations
     private static final Map<String, NConfig> profileInstances = new HashMap<>();
@@ -536,10 +694,11 @@ public class NConfig
      * Gets the global (non-profiled) NConfig instance
      */
     public static NConfig getGlobalInstance() {
-        if (current == null) {
-            current = new NConfig();
+        NConfig cur = current;
+        if (cur == null) {
+            setCurrent(cur = new NConfig());
         }
-        return current;
+        return cur;
     }
 
     /**
@@ -616,6 +775,13 @@ public class NConfig
         return getProfileAwarePath("resource_timers.nurgling.json");
     }
 
+    /**
+     * Gets the dynamic path for the adaptive resource preload manifest
+     */
+    public String getResourcePreloadPath() {
+        return getProfileAwarePath(ResourcePreloadService.FILENAME);
+    }
+
     /**
      * Gets the dynamic path for scenarios configuration file
      * Note: scenarios are always stored globally, not per-profile
@@ -740,6 +906,17 @@ public class NConfig
     @SuppressWarnings("unchecked")
     public void read() {
         current = this;
+        try {
+            synchronized (this) {
+                readConf();
+            }
+        } finally {
+            setCurrent(this);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readConf() {
         StringBuilder contentBuilder = new StringBuilder();
 
         try (Stream<String> stream = Files.lines(Paths.get(path), StandardCharsets.UTF_8))
@@ -839,7 +1016,7 @@ public class NConfig
     public void write()
     {
         Map<String, Object> prep = new HashMap<>();
-        for (Map.Entry<Key, Object> entry : conf.entrySet())
+        for (Map.Entry<Key, Object> entry : snapshot.values.entrySet())
         {
             if (entry.getValue() instanceof JConf)
             {
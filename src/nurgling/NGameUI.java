@@ -61,6 +61,7 @@ public class NGameUI extends GameUI
     public TreeSearchWindow treeSearchWindow = null;
     public final Map<String, TreeLocationDetailsWindow> openTreeDetailWindows = new HashMap<>();
     public TerrainSearchWindow terrainSearchWindow = null;
+    public ResourcePreloadService resourcePreloadService = null;
     public StudyDeskPlannerWidget studyDeskPlanner = null;
     public NDraggableWidget studyReportWidget = null;
     
@@ -89,6 +90,13 @@ public class NGameUI extends GameUI
         // Initialize local ring config
         iconRingConfig = new IconRingConfig(genus);
 
+        // Warm up this profile's resources while the session loads, and record what it needs
+        if (ResourcePreloadService.enabled()) {
+            resourcePreloadService = new ResourcePreloadService(genus);
+            resourcePreloadService.warmup();
+            resourcePreloadService.startRecording(Resource.remote());
+        }
+
         add(new NDraggableWidget(botsMenu = new NBotsMenu(), "botsmenu", botsMenu.sz.add(NDraggableWidget.delta)));
     }
     
@@ -235,6 +243,8 @@ public class NGameUI extends GameUI
             localizedResourceTimerService.dispose();
         if(fishLocationService != null)
             fishLocationService.dispose();
+        if(resourcePreloadService != null)
+            resourcePreloadService.dispose();
         if(nurgling.NUtils.getUI().core!=null)
             NUtils.getUI().core.dispose();
         super.dispose();
@@ -56,21 +56,14 @@ public class NGob
     public long grid_id;
     public Coord gcoord;
     private final Queue<DelayedOverlayTask> delayedOverlayTasks = new ConcurrentLinkedQueue<>();
+    private volatile Classes classes = Classes.none;
     
     // Cached values for performance
     private static final Set<String> ANIMAL_NAMES = Set.of(
         "gfx/kritter/cattle/cattle", "gfx/kritter/boar/boar", "gfx/kritter/goat/wildgoat", 
         "gfx/kritter/reindeer/reindeer", "gfx/kritter/sheep/sheep"
     );
-    private static final NAlias WALL_TRELLIS_ALIAS = new NAlias("wall", "trellis");
-    private static final NAlias BORKA_ALIAS = new NAlias("borka");
-    private static final NAlias PLANTS_ALIAS = new NAlias("plants");
-    private static final NAlias MINEBEAM_ALIAS = new NAlias(new ArrayList<>(Arrays.asList("minebeam", "column", "towercap", "ladder", "minesupport")), new ArrayList<>(Arrays.asList("stump", "wrack", "log")));
     private static final NAlias MOUNDBED_ALIAS = new NAlias("gfx/terobjs/moundbed");
-    private static final NAlias KRITTER_ALIAS = new NAlias("kritter");
-    private static final NAlias BORKA_ALIAS_SETDYNAMIC = new NAlias("borka");
-    private static final NAlias VEHICLE_ALIAS = new NAlias("vehicle");
-    private static final NAlias GATE_ALIAS = new NAlias("gate");
     private static final NAlias BADGER_WOLVERINE_WOLF_ALIAS = new NAlias("badger", "wolverine", "wolf");
     
     // Config cache to reduce NConfig.get calls
@@ -78,8 +71,7 @@ public class NGob
     private boolean cachedShortCupboards = false;
     private boolean cachedQuestNotified = false;
     private boolean cachedLpassistent = false;
-    private int configCacheCounter = 0;
-    private static final int CONFIG_CACHE_INTERVAL = 30;
+    private long configVersion = -1;
     
     // Flag to track if crop marker was already added
     private boolean cropMarkerAdded = false;
@@ -118,6 +110,40 @@ public class NGob
         }
     }
 
+    private static class Classes
+    {
+        static final Classes none = new Classes(null, -1, 0);
+        final String name;
+        final int gen;
+        final long mask;
+
+        Classes(String name, int gen, long mask)
+        {
+            this.name = name;
+            this.gen = gen;
+            this.mask = mask;
+        }
+    }
+
+    /**
+     * Category bitmask of this gob's resource, see {@link NClassifier}.
+     * Recomputed only when the name or the category definitions change.
+     */
+    public long classes()
+    {
+        Classes cur = classes;
+        String name = this.name;
+        int gen = NClassifier.generation();
+        if (!Objects.equals(cur.name, name) || cur.gen != gen)
+            classes = cur = new Classes(name, gen, NClassifier.mask(name));
+        return cur.mask;
+    }
+
+    public boolean is(NClassifier.Category cat)
+    {
+        return (classes() & cat.bit) != 0;
+    }
+
     private static class DelayedOverlayTask
     {
         final Predicate<Gob> condition;
@@ -137,7 +163,7 @@ public class NGob
     }
     
     /**
-     * Updates cached configuration values to reduce NConfig.get calls.
+     * Updates cached configuration values when the configuration has changed.
      */
     public void updateConfigCache() {
         updateConfigCache(false);
@@ -148,12 +174,13 @@ public class NGob
      * @param force if true, forces cache update regardless of counter
      */
     public void updateConfigCache(boolean force) {
-        if (force || configCacheCounter <= 0 || ++configCacheCounter >= CONFIG_CACHE_INTERVAL) {
-            cachedShowCropStage = (Boolean) NConfig.get(NConfig.Key.showCropStage);
-            cachedShortCupboards = (Boolean) NConfig.get(NConfig.Key.shortCupboards);
-            cachedQuestNotified = (Boolean) NConfig.get(NConfig.Key.questNotified);
-            cachedLpassistent = (Boolean) NConfig.get(NConfig.Key.lpassistent);
-            configCacheCounter = 1;
+        NConfig.Snapshot conf = NConfig.snapshot();
+        if (conf != null && (force || conf.version != configVersion)) {
+            cachedShowCropStage = conf.getBool(NConfig.Key.showCropStage);
+            cachedShortCupboards = conf.getBool(NConfig.Key.shortCupboards);
+            cachedQuestNotified = conf.getBool(NConfig.Key.questNotified);
+            cachedLpassistent = conf.getBool(NConfig.Key.lpassistent);
+            configVersion = conf.version;
         }
     }
 
@@ -533,7 +560,7 @@ public class NGob
                             {
                                 if (lay instanceof Resource.Neg)
                                 {
-                                    if (name != null && NParser.checkName(name, WALL_TRELLIS_ALIAS))
+                                    if (is(NClassifier.Category.WALL))
                                     {
                                         hitBox = new NHitBox(((Resource.Neg) lay).ac, ((Resource.Neg) lay).bc, true);
                                     } else
@@ -542,7 +569,7 @@ public class NGob
                                     }
                                 } else if (lay instanceof Resource.Obstacle)
                                 {
-                                    if (name != null && NParser.checkName(name, WALL_TRELLIS_ALIAS))
+                                    if (is(NClassifier.Category.WALL))
                                     {
                                         hitBox = NHitBox.fromObstacle(((Resource.Obstacle) lay).p, true);
                                     } else
@@ -575,7 +602,7 @@ public class NGob
                         }
                         if (bl != null && ur != null)
                         {
-                            if (name != null && NParser.checkName(name, WALL_TRELLIS_ALIAS))
+                            if (is(NClassifier.Category.WALL))
                             {
                                 hitBox = new NHitBox(bl, ur, true);
                             } else
@@ -590,7 +617,7 @@ public class NGob
                     {
                         if (lay instanceof Resource.Neg)
                         {
-                            if (name != null && NParser.checkName(name, WALL_TRELLIS_ALIAS))
+                            if (is(NClassifier.Category.WALL))
                             {
                                 hitBox = new NHitBox(((Resource.Neg) lay).ac, ((Resource.Neg) lay).bc, true);
                             } else
@@ -599,7 +626,7 @@ public class NGob
                             }
                         } else if (lay instanceof Resource.Obstacle)
                         {
-                            if (name != null && NParser.checkName(name, WALL_TRELLIS_ALIAS))
+                            if (is(NClassifier.Category.WALL))
                             {
                                 hitBox = NHitBox.fromObstacle(((Resource.Obstacle) lay).p, true);
                             } else
@@ -618,7 +645,7 @@ public class NGob
                     }
 
 
-                    if (NParser.checkName(name, BORKA_ALIAS))
+                    if (is(NClassifier.Category.PLAYER))
                     {
                         // Add delayed check to ensure this is not a mannequin and not the player
                         delayedOverlayTasks.add(new DelayedOverlayTask(
@@ -635,13 +662,13 @@ public class NGob
                         ));
                     }
 
-                    if (NParser.checkName(name, PLANTS_ALIAS) && cachedShowCropStage && !cropMarkerAdded)
+                    if (is(NClassifier.Category.CROP) && cachedShowCropStage && !cropMarkerAdded)
                     {
                         parent.addcustomol(new NCropMarker(parent));
                         cropMarkerAdded = true;
                     } else
                     {
-                        if (NParser.checkName(name, MINEBEAM_ALIAS))
+                        if (is(NClassifier.Category.MINESUPPORT))
                         {
                             switch (name)
                             {
@@ -709,7 +736,7 @@ public class NGob
                             setDynamic();
                             parent.addcustomol(new NModelBox(parent));
                             if (!isDynamic)
-                                ca = new CellsArray(parent);
+                                ca = FootprintCache.get(hitBox, parent.a, parent.rc);
                         }
                     }
                 }
@@ -760,10 +787,18 @@ public class NGob
 
     private void setDynamic()
     {
-        isDynamic = (NParser.checkName(name, KRITTER_ALIAS) || 
-                     NParser.checkName(name, BORKA_ALIAS_SETDYNAMIC) || 
-                     NParser.checkName(name, VEHICLE_ALIAS));
-        isGate = (NParser.checkName(name, GATE_ALIAS));
+        long cls = classes();
+        isDynamic = (cls & (NClassifier.Category.ANIMAL.bit | NClassifier.Category.PLAYER.bit | NClassifier.Category.VEHICLE.bit)) != 0;
+        isGate = (cls & NClassifier.Category.GATE.bit) != 0;
+    }
+
+    /**
+     * Whether getCA rasterises the hitbox afresh on each call, as the gob
+     * may have moved
+     */
+    public boolean isDynamic()
+    {
+        return isDynamic;
     }
 
     public long getModelAttribute()
@@ -792,7 +827,7 @@ public class NGob
         {
             if (ca == null && hitBox != null)
             {
-                ca = new CellsArray(parent);
+                ca = FootprintCache.get(hitBox, parent.a, parent.rc);
             }
         }
         return ca;
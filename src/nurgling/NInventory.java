@@ -42,6 +42,11 @@ public class NInventory extends Inventory
     boolean compactQuantityAscending = false;
     String compactLastSortType = "quantity"; // Track which was clicked last
     short[][] oldinv = null;
+    private int oldinvChanges = -1;
+    /* Occupancy kept up to date as items come and go; items whose sprite has
+     * not loaded yet have no known size and wait in unsized. */
+    private final InventoryGrid occupancy = new InventoryGrid();
+    private final List<WItem> unsized = new ArrayList<>();
     public Gob parentGob = null;
     long lastUpdate = 0;
     
@@ -118,6 +123,55 @@ public class NInventory extends Inventory
         super.addchild(child, args);
     }
 
+    @Override
+    public <T extends Widget> T add(T child) {
+        T ret = super.add(child);
+        if (child instanceof WItem) {
+            synchronized (occupancy) {
+                unsized.add((WItem) child);
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public void cdestroy(Widget w) {
+        super.cdestroy(w);
+        if (w instanceof WItem) {
+            synchronized (occupancy) {
+                if (!unsized.remove(w))
+                    occupancy.remove(w);
+            }
+        }
+    }
+
+    /**
+     * Current occupancy of the inventory, or null while some item's size is
+     * not known yet
+     */
+    public InventoryGrid occupancy() {
+        synchronized (occupancy) {
+            if (!occupancy.describes(isz, sqmask)) {
+                if (isz.x > InventoryGrid.MAXW)
+                    return null;
+                occupancy.reset(isz, sqmask);
+                unsized.clear();
+                for (Widget widget = child; widget != null; widget = widget.next) {
+                    if (widget instanceof WItem)
+                        unsized.add((WItem) widget);
+                }
+            }
+            for (Iterator<WItem> i = unsized.iterator(); i.hasNext(); ) {
+                WItem item = i.next();
+                if (item.item.spr == null)
+                    continue;
+                occupancy.add(item, item.c.div(Inventory.sqsz), item.item.spr.sz().div(UI.scale(32)));
+                i.remove();
+            }
+            return unsized.isEmpty() ? occupancy : null;
+        }
+    }
+
     public int getNumberFreeCoord(Coord coord) throws InterruptedException
     {
         GetNumberFreeCoord gnfc = new GetNumberFreeCoord(this, coord);
@@ -426,32 +480,12 @@ public class NInventory extends Inventory
         if(NUtils.getGameUI() == null)
             return;
         super.tick(dt);
-        if((Boolean)NConfig.get(NConfig.Key.showInventoryNums)) {
-            short[][] newInv = containerMatrix();
-            boolean isDiffrent = false;
-            if (newInv != null)
-                if (oldinv != null) {
-                    if (newInv.length != oldinv.length)
-                        isDiffrent = true;
-                    else {
-                        for (int i = 0; i < newInv.length; i++) {
-                            if (newInv[i].length != oldinv[i].length) {
-                                isDiffrent = true;
-                                break;
-                            }
-                            for (int j = 0; j < newInv[i].length; j++) {
-                                if (newInv[i][j] != oldinv[i][j]) {
-                                    isDiffrent = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    isDiffrent = true;
-                }
-            if (isDiffrent)
-                updateInventoryState(newInv);
+        if(NConfig.getBool(NConfig.Key.showInventoryNums)) {
+            InventoryGrid occ = occupancy();
+            if (occ != null && (oldinv == null || occ.changes() != oldinvChanges)) {
+                oldinvChanges = occ.changes();
+                updateInventoryState(occ.matrix());
+            }
         }
         else
             oldinv = null;
@@ -1246,79 +1280,17 @@ public class NInventory extends Inventory
 
     public short[][] containerMatrix()
     {
-        short[][] ret = new short[isz.y][isz.x];
-        for (int x = 0; x < isz.x; x++)
-        {
-            for (int y = 0; y < isz.y; y++)
-            {
-                if (sqmask == null || !sqmask[y * isz.x + x])
-                {
-                    ret[y][x] = 0; // Пустая ячейка
-                }
-                else
-                {
-                    ret[y][x] = 2; // Заблокированная ячейка
-                }
-            }
-        }
-        for (Widget widget = child; widget != null; widget = widget.next)
-        {
-            if (widget instanceof WItem)
-            {
-                WItem item = (WItem) widget;
-                if (item.item.spr != null)
-                {
-                    Coord size = item.item.spr.sz().div(UI.scale(32));
-                    int xSize = size.x;
-                    int ySize = size.y;
-                    int xLoc = item.c.div(Inventory.sqsz).x;
-                    int yLoc = item.c.div(Inventory.sqsz).y;
-
-                    for (int j = 0; j < ySize; j++)
-                    {
-                        for (int i = 0; i < xSize; i++)
-                        {
-                            if (yLoc + j < isz.y && xLoc + i < isz.x)
-                            {
-                                ret[yLoc + j][xLoc + i] = 1;
-                            }
-                        }
-                    }
-                }
-                else
-                    return null;
-            }
-        }
-        return ret;
+        InventoryGrid occ = occupancy();
+        return (occ == null) ? null : occ.matrix();
     }
 
     public int calcNumberFreeCoord(Coord target_size) {
         if (target_size.x < 1 || target_size.y < 1)
             return 0;
-
-        int count = 0;
-        short[][] inventory = containerMatrix();
-        if (inventory == null)
+        InventoryGrid occ = occupancy();
+        if (occ == null)
             return -1;
-        for (int i = 0; i <= inventory.length - target_size.x; i++)
-            for (int j = 0; j <= inventory[i].length - target_size.y; j++) {
-                boolean isFree = true;
-                for (int k = i; k < i + target_size.x; k++)
-                    for (int n = j; n < j + target_size.y; n++)
-                        if (inventory[k][n] != 0) {
-                            isFree = false;
-                            break;
-                        }
-
-                if (isFree) {
-                    count++;
-                    for (int k = i; k < i + target_size.x; k++)
-                        for (int n = j; n < j + target_size.y; n++)
-                            inventory[k][n] = 1;
-                }
-            }
-
-        return count;
+        return occ.count(target_size);
     }
 
     public Coord findFreeCoord(WItem wItem)
@@ -1329,55 +1301,28 @@ public class NInventory extends Inventory
 
 
     public Coord findFreeCoord(Coord target_size) {
-        short[][] inventory = containerMatrix();
-        if ((inventory == null) || (target_size.y < 1) || (target_size.x < 1))
+        InventoryGrid occ = occupancy();
+        if (occ == null)
             return null;
-        for (int i = 0; i <= isz.y - target_size.y; i++)
-            for (int j = 0; j <= isz.x - target_size.x; j++)
-                if (inventory[i][j] == 0) {
-                    boolean isFree = true;
-                    for (int k = i; k < i + target_size.x; k++)
-                        for (int n = j; n < j + target_size.y; n++)
-                            if (n >= isz.x || k >= isz.y || inventory[k][n] != 0) {
-                                isFree = false;
-                                break;
-                            }
-                    if (isFree)
-                        return new Coord(j, i);
-                }
-        return null;
+        return occ.find(target_size);
     }
 
     public int calcFreeSpace()
     {
-        int freespace = 0;
-        short[][] inventory = containerMatrix();
-        if(inventory == null)
-            return -1;
-        for (int i = 0; i < isz.y; i++)
-            for (int j = 0; j < isz.x; j++)
-                if (inventory[i][j] == 0)
-                    freespace++;
-        return freespace;
+        InventoryGrid occ = occupancy();
+        return (occ == null) ? -1 : occ.free();
     }
 
     public int calcTotalSpace()
     {
-        int totalSpace = 0;
-        short[][] inventory = containerMatrix();
-        if(inventory == null)
-            return -1;
-        for (int i = 0; i < isz.y; i++)
-            for (int j = 0; j < isz.x; j++)
-                if (inventory[i][j] != 2)
-                    totalSpace++;
-        return totalSpace;
+        InventoryGrid occ = occupancy();
+        return (occ == null) ? -1 : occ.total();
     }
 
     public boolean isSlotFree(Coord pos)
     {
-        short[][] inventory = containerMatrix();
-        return inventory!=null && inventory[pos.y][pos.x] == 0;
+        InventoryGrid occ = occupancy();
+        return occ != null && occ.isFree(pos);
     }
 
     public boolean isItemInSlot(Coord pos , NAlias name)
@@ -134,9 +134,18 @@ public class NMapView extends MapView
     public NMarkerLineOverlay markerLineOverlay = null;
     private RenderTree.Slot markerLineSlot = null;
 
-    public static boolean hitNWidgetsInfo(Coord pc) {
+    public static boolean hitNWidgetsInfo(Coord pc, Coord2d mc) {
         boolean isFound = false;
-        for(Long gobid: ((NMapView)NUtils.getGameUI().map).dummys.keySet())
+        NMapView map = (NMapView) NUtils.getGameUI().map;
+        /* A label hangs over its own area, so the labels of the areas under the click are tried first */
+        Set<Long> labels = new LinkedHashSet<>();
+        for(NArea area : map.glob.map.areaIndex.at(mc))
+        {
+            if(map.dummys.containsKey(area.gid))
+                labels.add(area.gid);
+        }
+        labels.addAll(map.dummys.keySet());
+        for(Long gobid: labels)
         {
             Gob gob = Finder.findGob(gobid);
             Gob.Overlay ol;
@@ -145,22 +154,22 @@ public class NMapView extends MapView
                 NAreaLabel al = (NAreaLabel) ol.spr;
                 if(al.isect(pc)) {
                     isFound = true;
-                    for (NArea area : ((NMapView) NUtils.getGameUI().map).glob.map.areas.values()) {
-                        if(area.gid == gobid)
+                    NArea area = map.glob.map.areas.get(al.area().id);
+                    if(area != null && area.gid == gobid)
+                    {
+                        NUtils.getGameUI().areas.showPath(area.path);
+
+                        for(NAreasWidget.AreaItem ai: NUtils.getGameUI().areas.al.items())
                         {
-                            NUtils.getGameUI().areas.showPath(area.path);
-
-                            for(NAreasWidget.AreaItem ai: NUtils.getGameUI().areas.al.items())
-                            {
-                                if(ai.area!=null && ai.area.gid == gobid) {
-                                    NUtils.getGameUI().areas.al.sel = ai;
-                                    NUtils.getGameUI().areas.al.display(ai);
-                                    NUtils.getGameUI().areas.select(area.id);
-                                    break;
-                                }
+                            if(ai.area!=null && ai.area.gid == gobid) {
+                                NUtils.getGameUI().areas.al.sel = ai;
+                                NUtils.getGameUI().areas.al.display(ai);
+                                NUtils.getGameUI().areas.select(area.id);
+                                break;
                             }
                         }
                     }
+                    break;
                 }
             }
         }
@@ -824,9 +833,11 @@ public class NMapView extends MapView
     public void tick(double dt)
     {
         checkTempMarks();
+        /* Only areas in loaded grids can get an overlay */
+        List<NArea> visible = glob.map.areaIndex.visible();
         synchronized (glob.map.areas)
         {
-            for (NArea area : glob.map.areas.values())
+            for (NArea area : visible)
             {
                 area.tick(dt);
             }
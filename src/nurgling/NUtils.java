@@ -79,14 +79,14 @@ public class NUtils
         synchronized (NUtils.getGameUI().ui.sess.glob.oc) {
             if((Boolean) NConfig.get(NConfig.Key.hideNature))
                 for (Gob gob : NUtils.getGameUI().ui.sess.glob.oc) {
-                    if (gob.ngob.name!=null && isNatureObject(gob.ngob.name))
+                    if (gob.ngob.is(NClassifier.Category.NATURE))
                     {
                         gob.show();
                     }
                 }
             else
                 for (Gob gob : NUtils.getGameUI().ui.sess.glob.oc) {
-                    if (gob.ngob.name!=null && isNatureObject(gob.ngob.name))
+                    if (gob.ngob.is(NClassifier.Category.NATURE))
                     {
                         gob.hide();
                     }
@@ -97,7 +97,7 @@ public class NUtils
 
     public static boolean isNatureObject(String name)
     {
-        return NParser.checkName(name, new NAlias(new ArrayList<>(Arrays.asList("gfx/terobjs/tree", "gfx/terobjs/bumlings","gfx/terobjs/bushes","gfx/terobjs/stonepillar")), new ArrayList<>(Arrays.asList("log", "oldtrunk"))));
+        return NClassifier.is(name, NClassifier.Category.NATURE);
     }
 
     public static WItem takeItemToHand(WItem item) throws InterruptedException
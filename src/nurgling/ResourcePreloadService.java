@@ -0,0 +1,373 @@
+package nurgling;
+
+import haven.*;
+import nurgling.profiles.ConfigFactory;
+import nurgling.profiles.ProfileAwareService;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Adaptive resource preload list.
+ * Records which resources the remote pool is asked for during the first
+ * seconds of a session (in request order, with the time spent waiting for
+ * each one) and folds them into a ranked per-profile manifest. On the next
+ * start the manifest is fetched in parallel before and during login, so the
+ * terrain, trees, containers and windows around the character's base are
+ * already loaded when the map appears.
+ * Supports world-specific profiles via ProfileAwareService
+ */
+public class ResourcePreloadService implements ProfileAwareService, Resource.Pool.LoadMonitor {
+    public static final String FILENAME = "res_preload.nurgling.json";
+    /* Weight kept from previous sessions when merging a new recording */
+    private static final double DECAY = 0.6;
+    private static final double MINSCORE = 0.05;
+    private static final int MAXENTRIES = 3000;
+    private static final int WARMUP_LOADERS = 8;
+    private static final long WARMUP_TIMEOUT = 90000;
+
+    public static class Entry {
+        public final String name;
+        public int ver;
+        public double score;
+        /* Average time of first request since session start, in ms */
+        public double at;
+        /* Average time spent waiting for the resource, in ms */
+        public double wait;
+
+        Entry(String name, int ver) {
+            this.name = name;
+            this.ver = ver;
+        }
+
+        Entry(JSONObject obj) {
+            this.name = obj.getString("name");
+            this.ver = obj.optInt("ver", -1);
+            this.score = obj.optDouble("score", 0);
+            this.at = obj.optDouble("at", 0);
+            this.wait = obj.optDouble("wait", 0);
+        }
+
+        JSONObject toJson() {
+            JSONObject ret = new JSONObject();
+            ret.put("name", name);
+            ret.put("ver", ver);
+            ret.put("score", score);
+            ret.put("at", at);
+            ret.put("wait", wait);
+            return ret;
+        }
+    }
+
+    private static class Sample {
+        final int ver;
+        final long at;
+        long waitns = 0;
+
+        Sample(int ver, long at) {
+            this.ver = ver;
+            this.at = at;
+        }
+    }
+
+    private final Map<String, Entry> manifest = new HashMap<>();
+    private final Map<String, Sample> recording = new LinkedHashMap<>();
+    private String dataFile;
+    private String genus;
+    private Resource.Pool pool = null;
+    private long rstart;
+    private int rsecs;
+
+    public ResourcePreloadService(String genus) {
+        this.genus = genus;
+        initializeForProfile(genus);
+    }
+
+    // ProfileAwareService implementation
+
+    @Override
+    public void initializeForProfile(String genus) {
+        this.genus = genus;
+        NConfig config = ConfigFactory.getConfig(genus);
+        this.dataFile = config.getResourcePreloadPath();
+        load();
+    }
+
+    @Override
+    public String getGenus() {
+        return genus;
+    }
+
+    @Override
+    public void load() {
+        synchronized (manifest) {
+            manifest.clear();
+            for (Entry e : readManifest(dataFile))
+                manifest.put(e.name, e);
+        }
+    }
+
+    @Override
+    public void save() {
+        List<Entry> ranked = ranked();
+        writeManifest(dataFile, ranked);
+        /* The global copy is what gets warmed up before the next login,
+         * when the profile is not yet known. */
+        String last = NConfig.getGlobalInstance().getResourcePreloadPath();
+        if (!last.equals(dataFile))
+            writeManifest(last, ranked);
+    }
+
+    public static boolean enabled() {
+        Object val = NConfig.get(NConfig.Key.adaptivePreload);
+        return (val instanceof Boolean) ? (Boolean) val : true;
+    }
+
+    /**
+     * Returns the manifest sorted from most to least valuable entry
+     */
+    public List<Entry> ranked() {
+        List<Entry> ret;
+        synchronized (manifest) {
+            ret = new ArrayList<>(manifest.values());
+        }
+        ret.sort(Comparator.comparingDouble((Entry e) -> -e.score).thenComparingDouble(e -> e.at));
+        return ret;
+    }
+
+    /**
+     * Starts recording requests against the given pool for the configured
+     * number of seconds, after which the recording is merged and saved.
+     */
+    public void startRecording(Resource.Pool pool) {
+        Object val = NConfig.get(NConfig.Key.adaptivePreloadTime);
+        int secs = (val instanceof Number) ? ((Number) val).intValue() : 60;
+        if (secs <= 0)
+            return;
+        synchronized (recording) {
+            if (this.pool != null)
+                return;
+            recording.clear();
+            this.pool = pool;
+            this.rstart = System.nanoTime();
+            this.rsecs = secs;
+            pool.monitor = this;
+        }
+        Thread th = new HackThread(() -> {
+            try {
+                Thread.sleep(secs * 1000L);
+            } catch (InterruptedException e) {
+                return;
+            }
+            stopRecording();
+        }, "Resource preload recorder");
+        th.setDaemon(true);
+        th.start();
+    }
+
+    /**
+     * Stops an active recording, merges it into the manifest and saves it
+     */
+    public void stopRecording() {
+        Map<String, Sample> session;
+        long window;
+        synchronized (recording) {
+            if (pool == null)
+                return;
+            if (pool.monitor == this)
+                pool.monitor = null;
+            pool = null;
+            window = Math.max(1, Math.min(rsecs * 1000L, (System.nanoTime() - rstart) / 1000000));
+            session = new LinkedHashMap<>(recording);
+            recording.clear();
+        }
+        if (session.isEmpty())
+            return;
+        merge(session, window);
+        save();
+    }
+
+    @Override
+    public void requested(String name, int ver) {
+        if (Thread.currentThread() instanceof Warmup)
+            return;
+        synchronized (recording) {
+            if (pool == null || recording.containsKey(name))
+                return;
+            recording.put(name, new Sample(ver, System.nanoTime() - rstart));
+        }
+    }
+
+    @Override
+    public void loaded(String name, int ver, long waitns) {
+        synchronized (recording) {
+            Sample s = recording.get(name);
+            if (s != null && s.waitns == 0)
+                s.waitns = waitns;
+        }
+    }
+
+    /* Requested earlier and waited on longer scores higher; entries not
+     * seen again decay away over a few sessions. */
+    private void merge(Map<String, Sample> session, long window) {
+        synchronized (manifest) {
+            for (Entry e : manifest.values())
+                e.score *= DECAY;
+            for (Map.Entry<String, Sample> se : session.entrySet()) {
+                Sample s = se.getValue();
+                double at = s.at / 1e6;
+                double wait = s.waitns / 1e6;
+                double sc = 1.0 - Math.min(at / window, 1.0) + Math.min(wait, 2000) / 1000.0;
+                Entry e = manifest.get(se.getKey());
+                if (e == null) {
+                    manifest.put(se.getKey(), e = new Entry(se.getKey(), s.ver));
+                    e.at = at;
+                    e.wait = wait;
+                } else {
+                    e.at = (e.at * DECAY) + (at * (1 - DECAY));
+                    e.wait = (e.wait * DECAY) + (wait * (1 - DECAY));
+                }
+                if (s.ver >= e.ver)
+                    e.ver = s.ver;
+                e.score += sc;
+            }
+            manifest.values().removeIf(e -> e.score < MINSCORE);
+            if (manifest.size() > MAXENTRIES) {
+                List<Entry> all = new ArrayList<>(manifest.values());
+                all.sort(Comparator.comparingDouble(e -> -e.score));
+                for (Entry e : all.subList(MAXENTRIES, all.size()))
+                    manifest.remove(e.name);
+            }
+        }
+    }
+
+    /**
+     * Fetches this profile's manifest into the remote pool
+     */
+    public void warmup() {
+        warmup(Resource.remote(), ranked());
+    }
+
+    /**
+     * Fetches the manifest of the last session before the profile is known
+     */
+    public static void warmupLast() {
+        if (!enabled())
+            return;
+        try {
+            warmup(Resource.remote(), readManifest(NConfig.getGlobalInstance().getResourcePreloadPath()));
+        } catch (Exception e) {
+            System.err.println("Failed to start resource warm-up: " + e.getMessage());
+        }
+    }
+
+    private static int warmups = 0;
+    private static int savedloaders;
+
+    /**
+     * Queues the ranked entries with priorities between the load-wait and
+     * static preload levels, and widens the pool's loader count until the
+     * warm-up has drained so entries are fetched in parallel.
+     */
+    public static void warmup(Resource.Pool pool, List<Entry> ranked) {
+        if (ranked.isEmpty())
+            return;
+        new Warmup(pool, ranked).start();
+    }
+
+    private static class Warmup extends HackThread {
+        private final Resource.Pool pool;
+        private final List<Entry> ranked;
+
+        Warmup(Resource.Pool pool, List<Entry> ranked) {
+            super("Resource warm-up");
+            this.pool = pool;
+            this.ranked = ranked;
+            setDaemon(true);
+        }
+
+        public void run() {
+            synchronized (ResourcePreloadService.class) {
+                if (warmups++ == 0)
+                    savedloaders = pool.nloaders;
+                pool.nloaders = Math.max(savedloaders, WARMUP_LOADERS);
+            }
+            try {
+                List<Indir<Resource>> pending = new LinkedList<>();
+                int n = ranked.size();
+                for (int i = 0; i < n; i++) {
+                    Entry e = ranked.get(i);
+                    try {
+                        pending.add(pool.load(e.name, e.ver, -1 - ((4 * i) / n)));
+                    } catch (RuntimeException ignored) {
+                    }
+                }
+                long start = System.currentTimeMillis();
+                while (!pending.isEmpty() && (System.currentTimeMillis() - start < WARMUP_TIMEOUT)) {
+                    for (Iterator<Indir<Resource>> i = pending.iterator(); i.hasNext(); ) {
+                        try {
+                            i.next().get();
+                            i.remove();
+                        } catch (Loading l) {
+                        } catch (RuntimeException e) {
+                            i.remove();
+                        }
+                    }
+                    Thread.sleep(250);
+                }
+            } catch (InterruptedException ignored) {
+            } finally {
+                synchronized (ResourcePreloadService.class) {
+                    if (--warmups == 0)
+                        pool.nloaders = savedloaders;
+                }
+            }
+        }
+    }
+
+    private static List<Entry> readManifest(String path) {
+        List<Entry> ret = new ArrayList<>();
+        File file = new File(path);
+        if (!file.exists())
+            return ret;
+        try {
+            String content = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+            if (content.trim().isEmpty())
+                return ret;
+            JSONArray array = new JSONObject(content).getJSONArray("resources");
+            for (int i = 0; i < array.length(); i++)
+                ret.add(new Entry(array.getJSONObject(i)));
+        } catch (Exception e) {
+            System.err.println("Failed to load resource preload manifest: " + e.getMessage());
+        }
+        return ret;
+    }
+
+    private static void writeManifest(String path, List<Entry> ranked) {
+        JSONObject main = new JSONObject();
+        JSONArray array = new JSONArray();
+        for (Entry e : ranked)
+            array.put(e.toJson());
+        main.put("resources", array);
+        main.put("version", 1);
+        try (FileWriter writer = new FileWriter(path, StandardCharsets.UTF_8)) {
+            main.write(writer);
+        } catch (IOException e) {
+            System.err.println("Failed to save resource preload manifest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Dispose the service, saving a partial recording if the session ended early
+     */
+    public void dispose() {
+        stopRecording();
+    }
+}
@@ -26,15 +26,19 @@ import java.util.stream.Stream;
  * Supports world-specific profiles via ProfileAwareService
  */
 public class TreeLocationService implements ProfileAwareService {
+    private static final int JOURNAL_MIN = 64;
     private final Map<String, TreeLocation> treeLocations = new ConcurrentHashMap<>();
+    private final LocationIndex<TreeLocation> index = new LocationIndex<>();
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private String dataFile;
+    private LocationJournal journal;
     private final NGameUI gui;
     private String genus;
 
     public TreeLocationService(NGameUI gui) {
         this.gui = gui;
         this.dataFile = ((HashDirCache) ResCache.global).base + "\\..\\" + "tree_locations.nurgling.json";
+        this.journal = new LocationJournal(dataFile);
         loadTreeLocations();
     }
 
@@ -54,6 +58,7 @@ public class TreeLocationService implements ProfileAwareService {
         this.genus = genus;
         NConfig config = ConfigFactory.getConfig(genus);
         this.dataFile = config.getTreeLocationsPath();
+        this.journal = new LocationJournal(dataFile);
         load();
     }
 
@@ -155,8 +160,8 @@ public class TreeLocationService implements ProfileAwareService {
                 }
                 
                 TreeLocation location = new TreeLocation(segmentId, segmentCoord, treeName, treeResource, quantity, growthPercent);
-                treeLocations.put(location.getLocationId(), location);
-                saveTreeLocations();
+                put(location);
+                record(new JSONObject().put("add", location.toJson()));
                 // Removed chat message to avoid spam - notification window is used instead
             } finally {
                 lock.writeLock().unlock();
@@ -288,18 +293,25 @@ public class TreeLocationService implements ProfileAwareService {
     }
 
     /**
-     * Get all tree locations for a segment (for map rendering)
+     * Get all tree locations for a segment
      */
     public List<TreeLocation> getTreeLocationsForSegment(long segmentId) {
         lock.readLock().lock();
         try {
-            List<TreeLocation> result = new ArrayList<>();
-            for (TreeLocation loc : treeLocations.values()) {
-                if (loc.getSegmentId() == segmentId) {
-                    result.add(loc);
-                }
-            }
-            return result;
+            return index.all(segmentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the tree locations of a segment within a tile area whose names
+     * contain the search pattern (for map rendering and hit testing)
+     */
+    public List<TreeLocation> getTreeLocationsInArea(long segmentId, Area area, String searchPattern) {
+        lock.readLock().lock();
+        try {
+            return index.query(segmentId, area, searchPattern);
         } finally {
             lock.readLock().unlock();
         }
@@ -323,9 +335,9 @@ public class TreeLocationService implements ProfileAwareService {
     public boolean removeTreeLocation(String locationId) {
         lock.writeLock().lock();
         try {
-            boolean removed = treeLocations.remove(locationId) != null;
+            boolean removed = drop(locationId) != null;
             if (removed) {
-                saveTreeLocations();
+                record(new JSONObject().put("remove", locationId));
             }
             return removed;
         } finally {
@@ -340,6 +352,7 @@ public class TreeLocationService implements ProfileAwareService {
         lock.writeLock().lock();
         try {
             treeLocations.clear();
+            index.clear();
             File file = new File(dataFile);
             if (file.exists()) {
                 StringBuilder contentBuilder = new StringBuilder();
@@ -355,19 +368,48 @@ public class TreeLocationService implements ProfileAwareService {
                         JSONObject main = new JSONObject(contentBuilder.toString());
                         JSONArray array = main.getJSONArray("treeLocations");
                         for (int i = 0; i < array.length(); i++) {
-                            TreeLocation location = new TreeLocation(array.getJSONObject(i));
-                            treeLocations.put(location.getLocationId(), location);
+                            put(new TreeLocation(array.getJSONObject(i)));
                         }
                     } catch (Exception e) {
                         System.err.println("Failed to parse tree locations JSON: " + e.getMessage());
                     }
                 }
             }
+            journal.replay(op -> {
+                if (op.has("add"))
+                    put(new TreeLocation(op.getJSONObject("add")));
+                else if (op.has("remove"))
+                    drop(op.getString("remove"));
+            });
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    private void put(TreeLocation location) {
+        TreeLocation old = treeLocations.put(location.getLocationId(), location);
+        if (old != null)
+            index.remove(old.getSegmentId(), old.getTileCoords(), old);
+        index.add(location.getSegmentId(), location.getTileCoords(), location.getTreeName(), location);
+    }
+
+    private TreeLocation drop(String locationId) {
+        TreeLocation old = treeLocations.remove(locationId);
+        if (old != null)
+            index.remove(old.getSegmentId(), old.getTileCoords(), old);
+        return old;
+    }
+
+    /**
+     * Log a change instead of rewriting the whole file, folding the log
+     * back into the file once it grows past a quarter of the data
+     */
+    private void record(JSONObject op) {
+        // Called within write lock
+        if (!journal.append(op) || (journal.size() > Math.max(JOURNAL_MIN, treeLocations.size() / 4)))
+            saveTreeLocations();
+    }
+
     /**
      * Save tree locations to JSON
      */
@@ -386,6 +428,7 @@ public class TreeLocationService implements ProfileAwareService {
             try (FileWriter writer = new FileWriter(dataFile, StandardCharsets.UTF_8)) {
                 writer.write(main.toString(2)); // Pretty print with indent
             }
+            journal.clear();
         } catch (IOException e) {
             System.err.println("Failed to save tree locations: " + e.getMessage());
         }
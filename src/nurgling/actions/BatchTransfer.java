@@ -0,0 +1,117 @@
+package nurgling.actions;
+
+import haven.Coord;
+import nurgling.NGItem;
+import nurgling.NGameUI;
+import nurgling.NInventory;
+import nurgling.NUtils;
+import nurgling.tasks.ItemsRemoved;
+import nurgling.tools.TransferPlan;
+
+import java.util.ArrayList;
+
+/**
+ * Carries out a {@link TransferPlan}. Moves into the inventory that the
+ * server's "transfer" leads to are sent in batches without waiting in
+ * between, and the whole batch is waited for once; moves into other
+ * inventories go through the hand, one by one. Stops at the first batch
+ * that does not complete, leaving the rest to the caller.
+ */
+public class BatchTransfer implements Action
+{
+    public static final int BATCH = 8;
+
+    final TransferPlan plan;
+    final NInventory xfer;
+
+    int moved = 0;
+    double time = 0;
+
+    /**
+     * @param xfer the inventory that "transfer" moves the items into
+     */
+    public BatchTransfer(TransferPlan plan, NInventory xfer)
+    {
+        this.plan = plan;
+        this.xfer = xfer;
+    }
+
+    @Override
+    public Results run(NGameUI gui) throws InterruptedException
+    {
+        long start = System.nanoTime();
+        try
+        {
+            ArrayList<Integer> batch = new ArrayList<>();
+            for (TransferPlan.Move move : plan.moves)
+            {
+                if (!NGItem.validateItem(move.item))
+                    continue;
+                if (move.target == xfer)
+                {
+                    move.item.item.wdgmsg("transfer", Coord.z);
+                    batch.add(move.item.item.wdgid());
+                    if (batch.size() >= BATCH && !flush(batch))
+                        return Results.FAIL();
+                }
+                else
+                {
+                    if (!flush(batch))
+                        return Results.FAIL();
+                    NUtils.takeItemToHand(move.item);
+                    move.target.dropOn(move.slot);
+                    if (gui.vhand != null)
+                        return Results.FAIL();
+                    moved++;
+                }
+            }
+            return flush(batch) ? Results.SUCCESS() : Results.FAIL();
+        }
+        finally
+        {
+            time = (System.nanoTime() - start) / 1e9;
+        }
+    }
+
+    private boolean flush(ArrayList<Integer> batch) throws InterruptedException
+    {
+        if (batch.isEmpty())
+            return true;
+        ItemsRemoved task = new ItemsRemoved(new ArrayList<>(batch));
+        NUtils.addTask(task);
+        moved += batch.size() - task.left();
+        batch.clear();
+        return task.left() == 0;
+    }
+
+    /**
+     * Number of items moved
+     */
+    public int moved()
+    {
+        return moved;
+    }
+
+    /**
+     * Items moved per second of the last run
+     */
+    public double rate()
+    {
+        return (time > 0) ? moved / time : 0;
+    }
+
+    /**
+     * Shows the outcome of the last run in the message log, in debug mode
+     */
+    public void report(NGameUI gui)
+    {
+        if (gui.ui.core.debug)
+            gui.msg("Batch transfer: " + this);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d of %d planned items in %.2f s (%.1f items/s)", moved, plan.moves.size(), time, rate());
+    }
+}
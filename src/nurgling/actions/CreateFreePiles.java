@@ -7,6 +7,7 @@ import nurgling.NGameUI;
 import nurgling.NGob;
 import nurgling.NHitBox;
 import nurgling.NUtils;
+import nurgling.pf.FreePlacer;
 import nurgling.tasks.WaitPile;
 import nurgling.tasks.WaitPlob;
 import nurgling.tools.Finder;
@@ -32,7 +33,9 @@ public class CreateFreePiles implements Action{
 
     @Override
     public Results run(NGameUI gui) throws InterruptedException {
-        while(new PileMaker(out,items,pileName).run(gui).IsSuccess());
+        // Obstacles are collected once; each new pile is reserved in the placer
+        FreePlacer placer = Finder.freePlacer(out);
+        while(new PileMaker(out,items,pileName,placer).run(gui).IsSuccess());
         return Results.SUCCESS();
     }
 }
@@ -8,6 +8,7 @@ import nurgling.NGameUI;
 import nurgling.NHitBox;
 import nurgling.NUtils;
 import nurgling.pf.CellsArray;
+import nurgling.pf.DynamicPlanner;
 import nurgling.pf.Graph;
 import nurgling.pf.NPFMap;
 import nurgling.pf.Utils;
@@ -40,6 +41,10 @@ public class DynamicPf implements Action
 
     boolean virtual = false;
     public boolean isHardMode = false;
+    /* Planner over the last map built, repaired as gobs move while the target stays put */
+    private volatile DynamicPlanner planner = null;
+    private volatile Coord2d plannedTarget = null;
+
     public class WorkerPf implements Runnable
     {
         public LinkedList<Graph.Vertex> path;
@@ -48,11 +53,28 @@ public class DynamicPf implements Action
         @Override
         public void run() {
             try {
+                DynamicPlanner dp = planner;
+                Gob player = NUtils.player();
+                if (dp != null && plannedTarget != null && target.rc.dist(plannedTarget) <= MCache.tilehsz.len() && player != null && dp.covers(player.rc)) {
+                    LinkedList<Graph.Vertex> res = dp.plan();
+                    if (res != null) {
+                        path = res;
+                        pfMap = dp.snapshot();
+                        ready.set(true);
+                        return;
+                    }
+                }
                 PathFinder pf = (isVirtual) ? new PathFinder(target, isVirtual) : new PathFinder(target);
                 pf.isDynamic = true;
                 pf.isHardMode = isHardMode;
                 path = pf.construct();
                 pfMap = pf.pfmap;
+                if (path != null && pfMap != null) {
+                    plannedTarget = new Coord2d(target.rc.x, target.rc.y);
+                    planner = new DynamicPlanner(pfMap, target.id);
+                } else {
+                    planner = null;
+                }
                 ready.set(true);
             } catch (InterruptedException e) {
 
@@ -7,9 +7,12 @@ import nurgling.conf.CropRegistry;
 import nurgling.tasks.NoGob;
 import nurgling.tasks.WaitMoreItems;
 import nurgling.tools.Container;
+import nurgling.pf.SharedPFMap;
 import nurgling.tools.Context;
+import nurgling.tools.FieldPlan;
 import nurgling.tools.Finder;
 import nurgling.tools.NAlias;
+import nurgling.tools.NParser;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -78,70 +81,39 @@ public class HarvestCrop implements Action {
             }
         }
 
-        Coord start = gui.map.player().rc.dist(field.getArea().br.mul(MCache.tilesz)) < gui.map.player().rc.dist(field.getArea().ul.mul(MCache.tilesz)) ? field.getArea().br.sub(1, 1) : field.getArea().ul;
-        Coord pos = new Coord(start);
-        boolean rev = (pos.equals(field.getArea().ul));
-
-        boolean revdir = rev;
-
         while (hasAnyCropStage(field, crop) || !Finder.findGobs(field, new NAlias("gfx/terobjs/plants/fallowplant"), 0).isEmpty()) {
-                if (!rev) {
-                    while (pos.x >= field.getArea().ul.x) {
-                        AtomicBoolean setDir = new AtomicBoolean(true);
-                        if (revdir) {
-                            while (pos.y <= field.getArea().br.y - 1) {
-                                Coord endPos = new Coord(Math.max(pos.x - 2, field.getArea().ul.x), Math.min(pos.y + 1, field.getArea().br.y - 1));
-                                Area harea = new Area(pos, endPos, true);
-
-                                Coord2d plantGobEndpoint = harea.ul.mul(MCache.tilesz).add( MCache.tilesz.x + MCache.tilehsz.x, MCache.tilehsz.y).sub(0,MCache.tileqsz.y);
-                                Coord2d pathfinderEndpoint = harea.ul.sub(0, 1).mul(MCache.tilesz).add( MCache.tilesz.x + MCache.tilehsz.x, MCache.tilehsz.y  + MCache.tileqsz.y);
-
-                                harvest(gui, barrelInfo, trough, cistern, harea, revdir, pathfinderEndpoint, plantGobEndpoint, setDir);
-                                pos.y += 2;
-                            }
-                            pos.y = field.getArea().br.y - 1;
-                        } else {
-                            while (pos.y >= field.getArea().ul.y) {
-                                Coord endPos = new Coord(Math.max(pos.x - 2, field.getArea().ul.x), Math.max(pos.y - 1, field.getArea().ul.y));
-                                Area harea = new Area(pos, endPos, true);
-                                Coord2d plantGobEndpoint = harea.br.mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y).sub(MCache.tilesz.x, 0).add(0,MCache.tileqsz.y);
-                                Coord2d pathfinderEndpoint = harea.br.mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y).sub(MCache.tilesz.x, 0).add(0,MCache.tileqsz.y);
-                                harvest(gui, barrelInfo, trough, cistern, harea, revdir, pathfinderEndpoint , plantGobEndpoint, setDir);
-                                pos.y -= 2;
-                            }
-                            pos.y = field.getArea().ul.y;
-                        }
-                        revdir = !revdir;
-                        pos.x -= 3;
+            FieldPlan plan = new FieldPlan(field.getArea(), FieldPlan.start(field.getArea(), gui.map.player().rc), 3);
+            plan.retain(w -> plan.any(w.area, this::isHarvestable));
+            if (plan.windows.isEmpty())
+                break;
+            AtomicBoolean setDir = null;
+            int column = -1;
+            for (FieldPlan.Window w : plan.windows) {
+                if (w.column != column) {
+                    column = w.column;
+                    setDir = new AtomicBoolean(true);
+                }
+                Coord2d plantGobEndpoint;
+                Coord2d pathfinderEndpoint;
+                if (!w.rev) {
+                    if (w.revdir) {
+                        plantGobEndpoint = w.area.ul.mul(MCache.tilesz).add( MCache.tilesz.x + MCache.tilehsz.x, MCache.tilehsz.y).sub(0,MCache.tileqsz.y);
+                        pathfinderEndpoint = w.area.ul.sub(0, 1).mul(MCache.tilesz).add( MCache.tilesz.x + MCache.tilehsz.x, MCache.tilehsz.y  + MCache.tileqsz.y);
+                    } else {
+                        plantGobEndpoint = w.area.br.mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y).sub(MCache.tilesz.x, 0).add(0,MCache.tileqsz.y);
+                        pathfinderEndpoint = w.area.br.mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y).sub(MCache.tilesz.x, 0).add(0,MCache.tileqsz.y);
                     }
                 } else {
-                    while (pos.x <= field.getArea().br.x - 1) {
-                        AtomicBoolean setDir = new AtomicBoolean(true);
-                        if (revdir) {
-                            while (pos.y <= field.getArea().br.y - 1) {
-                                Coord endPos = new Coord(Math.min(pos.x + 2, field.getArea().br.x - 1), Math.min(pos.y + 1, field.getArea().br.y - 1));
-                                Area harea = new Area(pos, endPos, true);
-                                Coord2d plantGobEndpoint = harea.ul.mul(MCache.tilesz).add(MCache.tilehsz.x+MCache.tilesz.x, MCache.tilehqsz.y + MCache.tileqsz.y);
-                                Coord2d pathfinderEndpoint = harea.ul.sub(0, 1).mul(MCache.tilesz).add( MCache.tilesz.x + MCache.tilehsz.x, MCache.tilehsz.y + MCache.tileqsz.y);
-                                harvest(gui, barrelInfo, trough, cistern, harea, revdir, pathfinderEndpoint, plantGobEndpoint, setDir);
-                                pos.y += 2;
-                            }
-                            pos.y = field.getArea().br.y - 1;
-                        } else {
-                            while (pos.y >= field.getArea().ul.y) {
-                                Coord endPos = new Coord(Math.min(pos.x + 2, field.getArea().br.x - 1), Math.max(pos.y - 1, field.getArea().ul.y));
-                                Area harea = new Area(pos, endPos, true);
-                                Coord2d plantGobEndpoint = harea.br.mul(MCache.tilesz).add(MCache.tilehsz).sub(MCache.tilesz.x, 0);
-                                Coord2d pathfinderEndpoint = harea.br.mul(MCache.tilesz).add(MCache.tilehsz).sub(MCache.tilesz.x, 0).add(0,MCache.tileqsz.y);
-                                harvest(gui, barrelInfo, trough, cistern, harea, revdir, pathfinderEndpoint, plantGobEndpoint, setDir);
-                                pos.y -= 2;
-                            }
-                            pos.y = field.getArea().ul.y;
-                        }
-                        revdir = !revdir;
-                        pos.x += 3;
+                    if (w.revdir) {
+                        plantGobEndpoint = w.area.ul.mul(MCache.tilesz).add(MCache.tilehsz.x+MCache.tilesz.x, MCache.tilehqsz.y + MCache.tileqsz.y);
+                        pathfinderEndpoint = w.area.ul.sub(0, 1).mul(MCache.tilesz).add( MCache.tilesz.x + MCache.tilehsz.x, MCache.tilehsz.y + MCache.tileqsz.y);
+                    } else {
+                        plantGobEndpoint = w.area.br.mul(MCache.tilesz).add(MCache.tilehsz).sub(MCache.tilesz.x, 0);
+                        pathfinderEndpoint = w.area.br.mul(MCache.tilesz).add(MCache.tilehsz).sub(MCache.tilesz.x, 0).add(0,MCache.tileqsz.y);
                     }
                 }
+                harvest(gui, barrelInfo, trough, cistern, w.area, w.revdir, pathfinderEndpoint, plantGobEndpoint, setDir, plan.pfmap);
+            }
         }
 
         finalCleanup(gui, barrelInfo.keySet(), trough, cistern);
@@ -150,7 +122,7 @@ public class HarvestCrop implements Action {
     }
 
 
-    void harvest(NGameUI gui, HashMap<Gob,AtomicBoolean> barrelInfo, Gob trough, Gob cistern, Area area, boolean rev, Coord2d pathfinderEndpoint, Coord2d plantGobEndpoint, AtomicBoolean setDir) throws InterruptedException {
+    void harvest(NGameUI gui, HashMap<Gob,AtomicBoolean> barrelInfo, Gob trough, Gob cistern, Area area, boolean rev, Coord2d pathfinderEndpoint, Coord2d plantGobEndpoint, AtomicBoolean setDir, SharedPFMap pfmap) throws InterruptedException {
         dropOffSeed(gui, barrelInfo.keySet(), trough, cistern);
 
         if(NUtils.getStamina()<0.35) {
@@ -179,8 +151,9 @@ public class HarvestCrop implements Action {
         }
         if(plant!=null) {
             dropOffSeed(gui, barrelInfo.keySet(), trough, cistern);
-            if(PathFinder.isAvailable(pathfinderEndpoint)) {
-                new PathFinder(pathfinderEndpoint).run(NUtils.getGameUI());
+            PathFinder pf = new PathFinder(pathfinderEndpoint, pfmap);
+            if(pf.isAvailable()) {
+                pf.run(NUtils.getGameUI());
                 if (setDir.get()) {
                     if (rev)
                         new SetDir(new Coord2d(0, 1)).run(gui);
@@ -331,6 +304,23 @@ public class HarvestCrop implements Action {
 
     }
 
+    /**
+     * Whether the gob is a crop at a harvestable stage or a fallow plant
+     */
+    private boolean isHarvestable(Gob gob) {
+        if (gob.ngob == null || gob.ngob.name == null)
+            return false;
+        if (NParser.checkName(gob.ngob.name, "gfx/terobjs/plants/fallowplant"))
+            return gob.ngob.getModelAttribute() == 0;
+        if (!NParser.checkName(gob.ngob.name, crop))
+            return false;
+        for (CropRegistry.CropStage cs : CropRegistry.HARVESTABLE.getOrDefault(crop, Collections.emptyList())) {
+            if (gob.ngob.getModelAttribute() == cs.stage)
+                return true;
+        }
+        return false;
+    }
+
     private boolean hasAnyCropStage(NArea field, NAlias crop) throws InterruptedException {
         List<CropRegistry.CropStage> cropStages = CropRegistry.HARVESTABLE.getOrDefault(crop, Collections.emptyList());
 
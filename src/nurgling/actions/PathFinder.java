@@ -33,6 +33,8 @@ public class PathFinder implements Action {
     Mode mode = Mode.NEAREST;
     Gob gobInStartPos = null;
     double badDir = Double.MAX_VALUE;
+    SharedPFMap shared = null;
+    LinkedList<Graph.Vertex> planned = null;
 
 
 
@@ -59,6 +61,15 @@ public class PathFinder implements Action {
         this(NUtils.getGameUI().map.player().rc, end);
     }
 
+    /**
+     * Path finder that searches on a copy of the shared map when it covers
+     * both ends, instead of building a map of its own
+     */
+    public PathFinder(Coord2d end, SharedPFMap shared) {
+        this(end);
+        this.shared = shared;
+    }
+
     public PathFinder(Gob target) {
         this(target.rc);
         target_id = target.id;
@@ -79,7 +90,8 @@ public class PathFinder implements Action {
     @Override
     public Results run(NGameUI gui) throws InterruptedException {
         while (true) {
-            LinkedList<Graph.Vertex> path = construct();
+            LinkedList<Graph.Vertex> path = (planned != null) ? planned : construct();
+            planned = null;
 
             if (path != null) {
                 boolean needRestart = false;
@@ -130,20 +142,25 @@ public class PathFinder implements Action {
         while (path.isEmpty() && mul < 200) {
             if(pfmap!=null && pfmap.lastMul)
                 return null;
-            pfmap = new NPFMap(begin, end, mul);
-            pfmap.getBegin();
-            pfmap.getEnd();
-            if(pfmap.bad) {
-                if (test) {
-                    return null;
-                } else {
-                    NUtils.getGameUI().error("Unable to build grid of required size");
-                    throw new InterruptedException();
+            if (mul == 1 && shared != null && !waterMode && !gatesAlwaysClosed && (pfmap = shared.map(begin, end)) != null) {
+                /* Already built, obstacles and all */
+            } else {
+                pfmap = new NPFMap(begin, end, mul);
+                pfmap.getBegin();
+                pfmap.getEnd();
+                if (pfmap.bad) {
+                    if (test) {
+                        return null;
+                    } else {
+                        NUtils.getGameUI().error("Unable to build grid of required size");
+                        throw new InterruptedException();
+                    }
                 }
+                pfmap.waterMode = waterMode;
+                pfmap.gatesAlwaysClosed = gatesAlwaysClosed;
+                pfmap.parallelBuild = true;
+                pfmap.build();
             }
-            pfmap.waterMode = waterMode;
-            pfmap.gatesAlwaysClosed = gatesAlwaysClosed;
-            pfmap.build();
             CellsArray dca = null;
             if (dummy != null)
                 dca = pfmap.addGob(dummy);
@@ -407,6 +424,19 @@ public class PathFinder implements Action {
         return res;
     }
 
+    /**
+     * Whether there is a path to the target. A path to a point is kept and
+     * walked by the next run, instead of being searched for again.
+     */
+    public boolean isAvailable() throws InterruptedException {
+        if(NUtils.player() == null)
+            return false;
+        LinkedList<Graph.Vertex> res = construct(true);
+        if (target_id == -2)
+            planned = res;
+        return res != null || dn;
+    }
+
     public static boolean isAvailable(Gob target) throws InterruptedException {
         if(NUtils.player() == null)
             return false;
@@ -7,6 +7,7 @@ import nurgling.NGameUI;
 import nurgling.NGob;
 import nurgling.NHitBox;
 import nurgling.NUtils;
+import nurgling.pf.FreePlacer;
 import nurgling.tasks.WaitPile;
 import nurgling.tasks.WaitPlaced;
 import nurgling.tasks.WaitPlob;
@@ -19,6 +20,7 @@ public class PileMaker implements Action{
     Pair<Coord2d, Coord2d> out;
     NAlias items;
     NAlias pileName;
+    FreePlacer placer = null;
 
     public Gob getPile() {
         return pile;
@@ -31,6 +33,14 @@ public class PileMaker implements Action{
         this.pileName = pileName;
     }
 
+    /**
+     * Pile maker that takes its place from a placer shared by several piles
+     */
+    public PileMaker(Pair<Coord2d, Coord2d> out, NAlias items, NAlias pileName, FreePlacer placer) {
+        this(out, items, pileName);
+        this.placer = placer;
+    }
+
     @Override
     public Results run(NGameUI gui) throws InterruptedException {
 
@@ -43,7 +53,7 @@ public class PileMaker implements Action{
         NUtils.getUI().core.addTask(new WaitPlob());
         Coord2d pos = null;
         NHitBox hitbox = NUtils.getGameUI().map.placing.get().ngob.hitBox;
-        if((pos = Finder.getFreePlace(out,hitbox))==null)
+        if((pos = (placer != null) ? placer.place(hitbox, 0) : Finder.getFreePlace(out,hitbox))==null)
             return Results.ERROR("No free space");
 
         new PathFinder( NGob.getDummy(pos, 0, hitbox),true).run(gui);
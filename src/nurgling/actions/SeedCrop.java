@@ -3,6 +3,7 @@ package nurgling.actions;
 import haven.*;
 import nurgling.*;
 import nurgling.areas.NArea;
+import nurgling.pf.SharedPFMap;
 import nurgling.tasks.GetCurs;
 import nurgling.tasks.WaitAnotherAmount;
 import nurgling.tasks.WaitGobsInField;
@@ -12,6 +13,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SeedCrop implements Action {
+    private static final NAlias MOUNDBED = new NAlias("gfx/terobjs/moundbed");
 
     final NArea field;
     final NArea seed;
@@ -73,65 +75,24 @@ public class SeedCrop implements Action {
 
         ArrayList<Coord2d> tiles = field.getTiles(new NAlias("field"));
 
-        Coord start = gui.map.player().rc.dist(fieldArea.br.mul(MCache.tilesz)) < gui.map.player().rc.dist(fieldArea.ul.mul(MCache.tilesz)) ? fieldArea.br.sub(1, 1) : fieldArea.ul;
-        Coord pos = new Coord(start);
-        boolean rev = (pos.equals(field.getArea().ul));
-
-        boolean revdir = rev;
-
         do {
-            if (!rev) {
-                while (pos.x >= field.getArea().ul.x) {
-                    AtomicBoolean setDir = new AtomicBoolean(true);
-                    if (revdir) {
-                        while (pos.y <= field.getArea().br.y - 1) {
-                            Coord endPos = new Coord(Math.max(pos.x - 1, field.getArea().ul.x), Math.min(pos.y + 1, field.getArea().br.y - 1));
-                            Area harea = new Area(pos, endPos, true);
-                            Coord2d endp = harea.ul.sub(0, 1).mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y + MCache.tileqsz.y);
-                            seedCrop(gui, barrels, stockPiles, harea, revdir, endp, setDir, ignoreStraw);
-                            pos.y += 2;
-
-                        }
-                        pos.y = field.getArea().br.y - 1;
-                    } else {
-                        while (pos.y >= field.getArea().ul.y) {
-                            Coord endPos = new Coord(Math.max(pos.x - 1, field.getArea().ul.x), Math.max(pos.y - 1, field.getArea().ul.y));
-                            Area harea = new Area(pos, endPos, true);
-                            Coord2d endp = harea.br.mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y).add(0, MCache.tileqsz.y);
-                            seedCrop(gui, barrels, stockPiles, harea, revdir, endp, setDir, ignoreStraw);
-                            pos.y -= 2;
-                        }
-                        pos.y = field.getArea().ul.y;
-                    }
-                    revdir = !revdir;
-                    pos.x -= 2;
-                }
-            } else {
-                while (pos.x <= field.getArea().br.x - 1) {
-                    AtomicBoolean setDir = new AtomicBoolean(true);
-                    if (revdir) {
-                        while (pos.y <= field.getArea().br.y - 1) {
-                            Coord endPos = new Coord(Math.min(pos.x + 1, field.getArea().br.x - 1), Math.min(pos.y + 1, field.getArea().br.y - 1));
-                            Area harea = new Area(pos, endPos, true);
-                            Coord2d endp = harea.ul.sub(0, 1).mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y + MCache.tileqsz.y);
-                            seedCrop(gui, barrels, stockPiles, harea, revdir, endp, setDir, ignoreStraw);
-                            pos.y += 2;
-
-                        }
-                        pos.y = field.getArea().br.y - 1;
-                    } else {
-                        while (pos.y >= field.getArea().ul.y) {
-                            Coord endPos = new Coord(Math.min(pos.x + 1, field.getArea().br.x - 1), Math.max(pos.y - 1, field.getArea().ul.y));
-                            Area harea = new Area(pos, endPos, true);
-                            Coord2d endp = harea.br.mul(MCache.tilesz).add(MCache.tilehsz).add(0, MCache.tileqsz.y);
-                            seedCrop(gui, barrels, stockPiles, harea, revdir, endp, setDir, ignoreStraw);
-                            pos.y -= 2;
-                        }
-                        pos.y = field.getArea().ul.y;
-                    }
-                    revdir = !revdir;
-                    pos.x += 2;
+            FieldPlan plan = new FieldPlan(fieldArea, FieldPlan.start(fieldArea, gui.map.player().rc), 2);
+            plan.retain(w -> countFreeTiles(plan.tiles(w.area, MOUNDBED), ignoreStraw) > 0);
+            if (plan.windows.isEmpty())
+                break;
+            AtomicBoolean setDir = null;
+            int column = -1;
+            for (FieldPlan.Window w : plan.windows) {
+                if (w.column != column) {
+                    column = w.column;
+                    setDir = new AtomicBoolean(true);
                 }
+                Coord2d endp;
+                if (w.revdir)
+                    endp = w.area.ul.sub(0, 1).mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y + MCache.tileqsz.y);
+                else
+                    endp = w.area.br.mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y).add(0, MCache.tileqsz.y);
+                seedCrop(gui, barrels, stockPiles, w.area, plan.tiles(w.area, MOUNDBED), w.revdir, endp, setDir, ignoreStraw, plan.pfmap);
             }
         } while (Finder.findGobs(field, crop).size() != tiles.size());
 
@@ -155,7 +116,7 @@ public class SeedCrop implements Action {
         }
     }
 
-    void seedCrop(NGameUI gui, ArrayList<Gob> barrels, ArrayList<Gob> stockpiles, Area area, boolean rev, Coord2d target_coord, AtomicBoolean setDir, boolean ignoreStraw) throws InterruptedException {
+    void seedCrop(NGameUI gui, ArrayList<Gob> barrels, ArrayList<Gob> stockpiles, Area area, Area.Tile[][] tiles, boolean rev, Coord2d target_coord, AtomicBoolean setDir, boolean ignoreStraw, SharedPFMap pfmap) throws InterruptedException {
         if (gui.getInventory().getItems(iseed).size() < 5) {
             if (!gui.hand.isEmpty()) {
                 NUtils.dropToInv();
@@ -168,17 +129,12 @@ public class SeedCrop implements Action {
 
         }
 
-        Area.Tile[][] tiles = area.getTiles(area, new NAlias("gfx/terobjs/moundbed"));
-        int count;
+        int count = countFreeTiles(tiles, ignoreStraw);
         int total = 0;
-        count = 0;
         for (int i = 0; i <= area.br.x - area.ul.x; i++) {
             for (int j = 0; j <= area.br.y - area.ul.y; j++) {
-                if (NParser.checkName(tiles[i][j].name, "field")) {
+                if (NParser.checkName(tiles[i][j].name, "field"))
                     total++;
-                    if (isTileFreeForSeeding(tiles[i][j], ignoreStraw))
-                        count++;
-                }
             }
         }
         if (gui.getInventory().getItems(iseed).size() < 2) {
@@ -186,8 +142,9 @@ public class SeedCrop implements Action {
             return;
         }
         if (count > 0) {
-            if (PathFinder.isAvailable(target_coord)) {
-                new PathFinder(target_coord).run(NUtils.getGameUI());
+            PathFinder pf = new PathFinder(target_coord, pfmap);
+            if (pf.isAvailable()) {
+                pf.run(NUtils.getGameUI());
                 if (setDir.get()) {
                     if (rev)
                         new SetDir(new Coord2d(0, 1)).run(gui);
@@ -199,7 +156,7 @@ public class SeedCrop implements Action {
                 for (int i = 0; i <= area.br.x - area.ul.x; i++) {
                     for (int j = 0; j <= area.br.y - area.ul.y; j++) {
                         if (NParser.checkName(tiles[i][j].name, "field")) {
-                            new PathFinder(new Coord(area.ul.x + i, area.ul.y + j).mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y)).run(gui);
+                            new PathFinder(new Coord(area.ul.x + i, area.ul.y + j).mul(MCache.tilesz).add(MCache.tilehsz.x, MCache.tilehsz.y), pfmap).run(gui);
                         }
                     }
                 }
@@ -521,6 +478,17 @@ public class SeedCrop implements Action {
         return order;
     }
 
+    private int countFreeTiles(Area.Tile[][] tiles, boolean ignoreStraw) {
+        int count = 0;
+        for (Area.Tile[] row : tiles) {
+            for (Area.Tile tile : row) {
+                if (NParser.checkName(tile.name, "field") && isTileFreeForSeeding(tile, ignoreStraw))
+                    count++;
+            }
+        }
+        return count;
+    }
+
     private boolean isTileFreeForSeeding(Area.Tile tile, boolean ignoreStraw) {
         if (tile.gobs.isEmpty()) {
             return true;
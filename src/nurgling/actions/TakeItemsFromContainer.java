@@ -10,6 +10,7 @@ import nurgling.tools.Container;
 import nurgling.tools.NAlias;
 import nurgling.tools.NParser;
 import nurgling.tools.StackSupporter;
+import nurgling.tools.TransferPlan;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -94,6 +95,20 @@ public class TakeItemsFromContainer implements Action
 
                 int temptr = target_size;
 
+                if (!StackSupporter.isStackable(gui.getInventory(), name)) {
+                    TransferPlan plan = TransferPlan.of(items, Collections.singletonList(gui.getInventory()), qualityType, target_size);
+                    if (!plan.moves.isEmpty()) {
+                        BatchTransfer batch = new BatchTransfer(plan, gui.getInventory());
+                        batch.run(gui);
+                        batch.report(gui);
+                        items = getItems(gui, name);
+                        if (gui.getInventory().getItems(name).size() >= target_size + oldSpace)
+                            temptr = 0;
+                        else
+                            temptr = Math.min(minSize, Math.min(gui.getInventory().getNumberFreeCoord(target_coord.swapXY()) * StackSupporter.getMaxStackSize(name), items.size()));
+                    }
+                }
+
                 for (int i = 0; i < temptr; i++) {
                     int left = target_size + oldSpace - gui.getInventory().getItems(name).size();
                     TransferToContainer.transfer(items.get(i), gui.getInventory(), left);
@@ -7,6 +7,7 @@ import nurgling.tasks.*;
 import nurgling.tools.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 public class TransferToContainer implements Action
 {
@@ -147,6 +148,26 @@ public class TransferToContainer implements Action
                     int oldSpace = gui.getInventory(container.cap).getItems(items).size();
                     int transferred = 0;
 
+                    // Предметы, которые не нужно объединять в стаки, переносим пачками по заранее составленному плану
+                    NInventory targetInv = gui.getInventory(container.cap);
+                    TransferPlan plan = TransferPlan.of(availableItems, Collections.singletonList(targetInv), null, transfer_size);
+                    if (!plan.moves.isEmpty())
+                    {
+                        BatchTransfer batch = new BatchTransfer(plan, targetInv);
+                        batch.run(gui);
+                        batch.report(gui);
+                        transferred += batch.moved();
+                        availableItems.clear();
+                        for (WItem witem : (th == -1) ? gui.getInventory().getItems(items) : gui.getInventory().getItems(items, th))
+                        {
+                            if (NGItem.validateItem(witem))
+                            {
+                                availableItems.add(witem);
+                            }
+                        }
+                        availableItems = sortItemsByPriority(availableItems, itemName, !(targetInv.findNotStack(itemName) != null || targetInv.findNotFullStack(itemName) != null));
+                    }
+
                     while (!availableItems.isEmpty())
                     {
                         WItem currentItem = availableItems.get(0);
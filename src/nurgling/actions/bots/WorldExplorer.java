@@ -8,8 +8,10 @@ import nurgling.actions.Results;
 import nurgling.conf.NPrepBlocksProp;
 import nurgling.conf.NWorldExplorerProp;
 import nurgling.tasks.WaitCheckable;
+import nurgling.tools.CoastTracer;
 import nurgling.tools.NAlias;
 import nurgling.tools.NParser;
+import nurgling.tools.TileClass;
 
 import static haven.Coord.of;
 
@@ -44,8 +46,9 @@ public class WorldExplorer implements Action {
 
         Coord[] dirs = (prop.clockwise)?clockwise:counterclockwise;
         Coord[][] neardirs = (prop.clockwise)?nearest:counternearest;
-        String targetTile = "odeep";
-        String nearestTile = (prop.deeper)?"odeeper":"owater";
+        TileClass classes = gui.ui.sess.glob.map.tileclass;
+        int targetTile = TileClass.OCEAN | TileClass.DEEP;
+        int nearestTile = TileClass.OCEAN | ((prop.deeper)?TileClass.DEEPER:TileClass.SHALLOW);
 
         if(!prop.deeper)
         {
@@ -53,85 +56,73 @@ public class WorldExplorer implements Action {
             neardirs = (prop.clockwise)?counternearest:nearest;
         }
 
-        boolean deepFound = false;
+        CoastTracer tracer = new CoastTracer(classes, TileClass.DEPTH | TileClass.OCEAN, targetTile, prop.clockwise != prop.deeper);
 
-        Coord[] buffer = new Coord[100];
-        int counter = 0;
+        Coord start = null;
+        Coord heading = null;
         Coord  pltc = NUtils.player().rc.div(MCache.tilesz).floor();
-        boolean isStart = false;
-        for(int j = 0; j<50;j++) {
+        for(int j = 0; j<50 && start == null;j++) {
             for (int i = 0; i < 4; i++) {
                 Coord cand = pltc.add(dirs[i].mul(j));
-                Resource res_beg = NUtils.getGameUI().ui.sess.glob.map.tilesetr(NUtils.getGameUI().ui.sess.glob.map.gettile(cand));
-                if (res_beg != null) {
-                    if (res_beg.name.endsWith(targetTile)) {
+                int res_beg = classes.at(cand);
+                if (res_beg != TileClass.UNKNOWN) {
+                    if (water(res_beg) == targetTile) {
                         boolean isCorrect = false;
                         for (Coord test : neardirs[i]) {
-                            Resource testr = NUtils.getGameUI().ui.sess.glob.map.tilesetr(NUtils.getGameUI().ui.sess.glob.map.gettile(cand.add(test)));
-                            if (testr != null && testr.name.endsWith(nearestTile)) {
-                                deepFound = true;
+                            if (water(classes.at(cand.add(test))) == nearestTile) {
                                 isCorrect = true;
                             }
                         }
                         if (isCorrect) {
-                            new GoTo(cand.mul(MCache.tilesz).add(MCache.tilehsz)).run(gui);
-                            isStart = true;
-                        }
-                        if (isStart)
+                            new GoTo(CoastTracer.centre(cand)).run(gui);
+                            start = cand;
+                            heading = dirs[i];
                             break;
+                        }
                     }
                 }
             }
-            if(isStart)
-                break;
         }
+        if (start == null && tracer.open(pltc)) {
+            for (Coord d : dirs) {
+                if (!tracer.open(pltc.add(tracer.side(d)))) {
+                    start = pltc;
+                    heading = d;
+                    break;
+                }
+            }
+        }
+        if (start == null)
+            return Results.ERROR("No coast found");
 
-        Coord last = null;
+        /* Trace the coast as far as the map is loaded and sail it leg by leg; by the end of the
+         * trace the grids ahead have loaded, and the next trace carries on from there */
         while (true) {
-            pltc = NUtils.player().rc.div(MCache.tilesz).floor();
-            boolean isFound = false;
-
-            for (int i = 0; i < 4; i++) {
-                Coord cand = pltc.add(dirs[i]);
-                boolean skip = false;
-                for (Coord check : buffer) {
-                    if (check != null && cand.equals(check.x, check.y)) {
-                        skip = true;
-                        break;
-                    }
-                }
-                if (skip) {
-                    continue;
-                }
-                Resource res_beg = NUtils.getGameUI().ui.sess.glob.map.tilesetr(NUtils.getGameUI().ui.sess.glob.map.gettile(cand));
-                if (res_beg != null) {
-                    if (res_beg.name.endsWith(targetTile)) {
-                        if (last == null || !cand.equals(last.x, last.y)) {
-                            boolean isCorrect = false;
-                            for(Coord test : neardirs[i])
-                            {
-                                Resource testr = NUtils.getGameUI().ui.sess.glob.map.tilesetr(NUtils.getGameUI().ui.sess.glob.map.gettile(pltc.add(test)));
-                                if(testr != null && testr.name.endsWith(nearestTile))
-                                {
-                                    deepFound = true;
-                                    isCorrect = true;
-                                }
-                            }
-                            if(!deepFound||isCorrect) {
-                                new GoTo(cand.mul(MCache.tilesz).add(MCache.tilehsz)).run(gui);
-                                buffer[counter++ % 100] = last;
-                                last = pltc;
-                                isFound = true;
-                                break;
-                            }
-                        }
-                    }
-                }
+            CoastTracer.Trace trace = tracer.trace(start, heading);
+            if (trace.tiles.size() <= 1)
+                return Results.ERROR("Coast lost");
+            Coord reached = start;
+            for (Coord2d leg : tracer.simplify(trace.tiles)) {
+                if (!new GoTo(leg).run(gui).IsSuccess())
+                    break;
+                reached = leg.floor(MCache.tilesz);
             }
-            if (!isFound && last != null) {
-                new GoTo(last.mul(MCache.tilesz).add(MCache.tilehsz)).run(gui);
-                buffer[counter++ % 100] = pltc;
+            if (trace.closed && reached.equals(trace.tiles.get(trace.tiles.size() - 1)))
+                return Results.SUCCESS();
+            if (reached.equals(start))
+                return Results.FAIL();
+            heading = trace.heading;
+            if (!reached.equals(trace.tiles.get(trace.tiles.size() - 1))) {
+                /* Stopped short of a leg, carry on from the last tile reached with the heading it was entered with */
+                int at = trace.tiles.lastIndexOf(reached);
+                if (at > 0)
+                    heading = trace.tiles.get(at).sub(trace.tiles.get(at - 1));
             }
+            start = reached;
         }
     }
+
+    private static int water(int cls) {
+        return cls & (TileClass.DEPTH | TileClass.OCEAN);
+    }
 }
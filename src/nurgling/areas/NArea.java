@@ -11,6 +11,7 @@ import org.json.*;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.function.Function;
 
 public class NArea
 {
@@ -325,27 +326,42 @@ public class NArea
     public Pair<Coord2d,Coord2d> getRCArea()
     {
         if(isVisible())
-        {
-            Coord begin = null;
-            Coord end = null;
+            return getRCArea(NUtils.getGameUI().map.glob.map::findGrid);
+        return null;
+    }
 
-            for (Long id : space.space.keySet())
-            {
-                MCache.Grid grid = NUtils.getGameUI().map.glob.map.findGrid(id);
-                if(grid==null || hide)
-                    return null;
-                Area area = space.space.get(id).area;
-                Coord b = area.ul.add(grid.ul);
-                Coord e = area.br.add(grid.ul);
-                begin = (begin != null) ? new Coord(Math.min(begin.x, b.x), Math.min(begin.y, b.y)) : b;
-                end = (end != null) ? new Coord(Math.max(end.x, e.x), Math.max(end.y, e.y)) : e;
-            }
-            if (begin != null) {
-                if (NUtils.player()!=null && begin.mul(MCache.tilesz).dist(NUtils.player().rc) > 1000 && end.mul(MCache.tilesz).dist(NUtils.player().rc) > 1000) {
-                    return null;
-                }
-                return new Pair<Coord2d, Coord2d>(begin.mul(MCache.tilesz), end.sub(1, 1).mul(MCache.tilesz).add(MCache.tilesz));
+    /* Areas whose corners both lie farther than this from the player have no rc area */
+    public static final double RCRANGE = 1000;
+
+    /**
+     * Bounds of the area in world coordinates, with the grids of its parts
+     * looked up by the given function; null if the area is hidden, a grid
+     * is not known or the area lies out of {@link #RCRANGE} of the player
+     */
+    public Pair<Coord2d,Coord2d> getRCArea(Function<Long, MCache.Grid> grids)
+    {
+        if(hide)
+            return null;
+        Coord begin = null;
+        Coord end = null;
+
+        for (Map.Entry<Long, VArea> part : space.space.entrySet())
+        {
+            MCache.Grid grid = grids.apply(part.getKey());
+            if(grid==null)
+                return null;
+            Area area = part.getValue().area;
+            Coord b = area.ul.add(grid.ul);
+            Coord e = area.br.add(grid.ul);
+            begin = (begin != null) ? new Coord(Math.min(begin.x, b.x), Math.min(begin.y, b.y)) : b;
+            end = (end != null) ? new Coord(Math.max(end.x, e.x), Math.max(end.y, e.y)) : e;
+        }
+        if (begin != null) {
+            Gob player = NUtils.player();
+            if (player!=null && begin.mul(MCache.tilesz).dist(player.rc) > RCRANGE && end.mul(MCache.tilesz).dist(player.rc) > RCRANGE) {
+                return null;
             }
+            return new Pair<Coord2d, Coord2d>(begin.mul(MCache.tilesz), end.sub(1, 1).mul(MCache.tilesz).add(MCache.tilesz));
         }
         return null;
     }
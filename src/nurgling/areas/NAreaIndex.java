@@ -0,0 +1,254 @@
+package nurgling.areas;
+
+import haven.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static haven.MCache.cmaps;
+
+/**
+ * Spatial index of the areas of a map, bucketed by the map grid each part of
+ * an area lies in. Queries only look at the buckets of the grids that are
+ * loaded, instead of resolving the grids of every area.
+ * <p>
+ * The buckets are built again on the first query after an edit. The map of
+ * areas is an {@link Areas}, which counts its own puts and removals; code
+ * that gives an area in the map another space calls {@link #edited()}.
+ * Hidden areas are indexed like the others; callers filter them as they need.
+ */
+public class NAreaIndex {
+    private static class Entry {
+        final NArea area;
+        /* Tiles of the part, relative to its grid, lower right corner excluded */
+        final Area tiles;
+
+        Entry(NArea area, Area tiles) {
+            this.area = area;
+            this.tiles = tiles;
+        }
+    }
+
+    private final MCache map;
+    private static final AtomicLong edits = new AtomicLong(1);
+    private final Map<Long, List<Entry>> grids = new HashMap<>();
+    private long built = 0;
+
+    public NAreaIndex(MCache map) {
+        this.map = map;
+    }
+
+    /**
+     * Map of areas by id that marks the indices stale when it is changed
+     */
+    public static class Areas extends HashMap<Integer, NArea> {
+        @Override
+        public NArea put(Integer id, NArea area) {
+            edited();
+            return super.put(id, area);
+        }
+
+        @Override
+        public void putAll(Map<? extends Integer, ? extends NArea> m) {
+            edited();
+            super.putAll(m);
+        }
+
+        @Override
+        public NArea remove(Object id) {
+            edited();
+            return super.remove(id);
+        }
+
+        @Override
+        public void clear() {
+            edited();
+            super.clear();
+        }
+    }
+
+    /**
+     * Marks the indices stale, for edits of an area that the map of areas
+     * does not see, such as a new space
+     */
+    public static void edited() {
+        edits.incrementAndGet();
+    }
+
+    private void validate() {
+        synchronized (map.areas) {
+            long cur = edits.get();
+            if (cur == built)
+                return;
+            grids.clear();
+            for (NArea area : map.areas.values()) {
+                if (area.space == null)
+                    continue;
+                for (Map.Entry<Long, NArea.VArea> e : area.space.space.entrySet()) {
+                    if (e.getValue().area != null)
+                        grids.computeIfAbsent(e.getKey(), id -> new ArrayList<>()).add(new Entry(area, e.getValue().area));
+                }
+            }
+            built = cur;
+        }
+    }
+
+    /* Queries lock the grids, if at all, before locking the areas, and never while holding them */
+    private List<MCache.Grid> loaded() {
+        synchronized (map.grids) {
+            return new ArrayList<>(map.grids.values());
+        }
+    }
+
+    /**
+     * Areas with a part in a loaded grid
+     */
+    public List<NArea> visible() {
+        List<MCache.Grid> loaded = loaded();
+        synchronized (map.areas) {
+            validate();
+            Set<NArea> ret = new LinkedHashSet<>();
+            for (MCache.Grid grid : loaded) {
+                for (Entry e : grids.getOrDefault(grid.id, Collections.emptyList()))
+                    ret.add(e.area);
+            }
+            return new ArrayList<>(ret);
+        }
+    }
+
+    /**
+     * Shown areas with a part in a loaded grid that pass the test, with their
+     * bounds in world coordinates as {@link NArea#getRCArea()} gives them.
+     * Areas it gives no bounds for, having a part in a grid that is not
+     * loaded or lying far from the player, are left out.
+     */
+    public Map<NArea, Pair<Coord2d, Coord2d>> bounds(Predicate<NArea> test) {
+        List<MCache.Grid> loaded = loaded();
+        synchronized (map.areas) {
+            validate();
+            Map<Long, MCache.Grid> byid = new HashMap<>();
+            for (MCache.Grid grid : loaded)
+                byid.put(grid.id, grid);
+            Set<NArea> cands = new LinkedHashSet<>();
+            for (MCache.Grid grid : loaded) {
+                for (Entry e : grids.getOrDefault(grid.id, Collections.emptyList())) {
+                    if (!e.area.hide && test.test(e.area))
+                        cands.add(e.area);
+                }
+            }
+            Map<NArea, Pair<Coord2d, Coord2d>> ret = new LinkedHashMap<>();
+            for (NArea area : cands) {
+                Pair<Coord2d, Coord2d> rc = area.getRCArea(byid::get);
+                if (rc != null)
+                    ret.put(area, rc);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Areas containing the tile, if its grid is loaded
+     */
+    public List<NArea> at(Coord tc) {
+        MCache.Grid grid;
+        synchronized (map.grids) {
+            grid = map.grids.get(tc.div(cmaps));
+        }
+        List<NArea> ret = new ArrayList<>();
+        if (grid == null)
+            return ret;
+        synchronized (map.areas) {
+            validate();
+            Coord lc = tc.sub(grid.ul);
+            for (Entry e : grids.getOrDefault(grid.id, Collections.emptyList())) {
+                if (e.tiles.contains(lc) && !ret.contains(e.area))
+                    ret.add(e.area);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Areas containing the point
+     */
+    public List<NArea> at(Coord2d rc) {
+        return at(rc.floor(MCache.tilesz));
+    }
+
+    /**
+     * Areas with a part overlapping the tiles, lower right corner excluded,
+     * in the loaded grids
+     */
+    public List<NArea> overlapping(Area tiles) {
+        List<MCache.Grid> loaded = loaded();
+        synchronized (map.areas) {
+            validate();
+            Set<NArea> ret = new LinkedHashSet<>();
+            for (MCache.Grid grid : loaded) {
+                if (!Area.sized(grid.ul, cmaps).isects(tiles))
+                    continue;
+                for (Entry e : grids.getOrDefault(grid.id, Collections.emptyList())) {
+                    if (e.tiles.xl(grid.ul).isects(tiles))
+                        ret.add(e.area);
+                }
+            }
+            return new ArrayList<>(ret);
+        }
+    }
+
+    /**
+     * Areas with a part within the distance of the point, in the loaded grids
+     */
+    public List<NArea> near(Coord2d rc, double dist) {
+        List<MCache.Grid> loaded = loaded();
+        synchronized (map.areas) {
+            validate();
+            Set<NArea> ret = new LinkedHashSet<>();
+            for (MCache.Grid grid : loaded) {
+                if (distance(rc, Area.sized(grid.ul, cmaps)) > dist)
+                    continue;
+                for (Entry e : grids.getOrDefault(grid.id, Collections.emptyList())) {
+                    if (distance(rc, e.tiles.xl(grid.ul)) <= dist)
+                        ret.add(e.area);
+                }
+            }
+            return new ArrayList<>(ret);
+        }
+    }
+
+    /**
+     * Area passing the test with a part closest to the point, in the loaded
+     * grids, or null if there is none
+     */
+    public NArea nearest(Coord2d rc, Predicate<NArea> test) {
+        List<MCache.Grid> loaded = loaded();
+        loaded.sort(Comparator.comparingDouble(g -> distance(rc, Area.sized(g.ul, cmaps))));
+        synchronized (map.areas) {
+            validate();
+            NArea best = null;
+            double bestdist = Double.MAX_VALUE;
+            for (MCache.Grid grid : loaded) {
+                if (distance(rc, Area.sized(grid.ul, cmaps)) > bestdist)
+                    break;
+                for (Entry e : grids.getOrDefault(grid.id, Collections.emptyList())) {
+                    double d = distance(rc, e.tiles.xl(grid.ul));
+                    if (d < bestdist && (test == null || test.test(e.area))) {
+                        best = e.area;
+                        bestdist = d;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    /* Distance from the point to the tiles, in world units */
+    private static double distance(Coord2d rc, Area tiles) {
+        double x0 = tiles.ul.x * MCache.tilesz.x, y0 = tiles.ul.y * MCache.tilesz.y;
+        double x1 = tiles.br.x * MCache.tilesz.x, y1 = tiles.br.y * MCache.tilesz.y;
+        double dx = Math.max(0, Math.max(x0 - rc.x, rc.x - x1));
+        double dy = Math.max(0, Math.max(y0 - rc.y, rc.y - y1));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -14,6 +14,7 @@ import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 public class NContext {
 
@@ -673,69 +674,46 @@ public class NContext {
     }
 
     
-    public static NArea findIn(String name) {
+    /* Ids of the areas with a part in a loaded grid, the only ones that can have an rc area, left out while being edited */
+    private static Set<Integer> visibleIds() {
+        Set<Integer> ret = new LinkedHashSet<>();
+        for (NArea area : NUtils.getGameUI().map.glob.map.areaIndex.visible()) {
+            if (!area.inWork)
+                ret.add(area.id);
+        }
+        return ret;
+    }
+
+    /* Closest of the areas passing the test, by the distance from the player to the corners */
+    private static NArea closest(Predicate<NArea> test) {
         double dist = 10000;
         Gob player = NUtils.player();
         NArea res = null;
-        if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
-            for(Integer id : nids) {
-                if(id>0 && player!=null) {
-                    if (NUtils.getGameUI().map.glob.map.areas.get(id).containIn(name)) {
-                        NArea test = NUtils.getGameUI().map.glob.map.areas.get(id);
-                        Pair<Coord2d, Coord2d> testrc = test.getRCArea();
-                        if(test.getRCArea()!=null) {
-                            double testdist;
-                            if ((testdist = (testrc.a.dist(player.rc) + testrc.b.dist(player.rc))) < dist) {
-                                res = test;
-                                dist = testdist;
-                            }
-                        }
-                    }
+        if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null && player!=null) {
+            for (Map.Entry<NArea, Pair<Coord2d, Coord2d>> e : NUtils.getGameUI().map.glob.map.areaIndex.bounds(a -> !a.inWork && test.test(a)).entrySet()) {
+                Pair<Coord2d, Coord2d> testrc = e.getValue();
+                double testdist;
+                if ((testdist = (testrc.a.dist(player.rc) + testrc.b.dist(player.rc))) < dist) {
+                    res = e.getKey();
+                    dist = testdist;
                 }
             }
         }
         return res;
     }
 
+    public static NArea findIn(String name) {
+        return closest(a -> a.id > 0 && a.containIn(name));
+    }
+
     public static NArea findIn(NAlias name) {
-        double dist = 10000;
-        NArea res = null;
-        if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
-            for(Integer id : nids) {
-                if(id>0) {
-                    if (NUtils.getGameUI().map.glob.map.areas.get(id).containIn(name)) {
-                        NArea test = NUtils.getGameUI().map.glob.map.areas.get(id);
-                        Pair<Coord2d, Coord2d> testrc = test.getRCArea();
-                        if(test.getRCArea()!=null) {
-                            double testdist;
-                            if ((testdist = (testrc.a.dist(NUtils.player().rc) + testrc.b.dist(NUtils.player().rc))) < dist) {
-                                res = test;
-                                dist = testdist;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return res;
+        return closest(a -> a.id > 0 && a.containIn(name));
     }
 
     public static ArrayList<NArea> findAllIn(NAlias name) {
         ArrayList<NArea> results = new ArrayList<>();
         if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
-            for(Integer id : nids) {
-                if(id>0) {
-                    if (NUtils.getGameUI().map.glob.map.areas.get(id).containIn(name)) {
-                        NArea test = NUtils.getGameUI().map.glob.map.areas.get(id);
-                        if(test.getRCArea()!=null) {
-                            results.add(test);
-                        }
-                    }
-                }
-            }
+            results.addAll(NUtils.getGameUI().map.glob.map.areaIndex.bounds(a -> !a.inWork && a.id > 0 && a.containIn(name)).keySet());
         }
         return results;
     }
@@ -781,7 +759,7 @@ public class NContext {
 
         ArrayList<TestedArea> areas = new ArrayList<>();
         if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
+            Set<Integer> nids = visibleIds();
             for(Integer id : nids) {
                 if (id > 0) {
                     NArea cand = NUtils.getGameUI().map.glob.map.areas.get(id);
@@ -829,7 +807,7 @@ public class NContext {
 
         ArrayList<TestedArea> areas = new ArrayList<>();
         if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
+            Set<Integer> nids = visibleIds();
             for(Integer id : nids) {
                 if (id > 0) {
                     NArea cand = NUtils.getGameUI().map.glob.map.areas.get(id);
@@ -981,7 +959,7 @@ public class NContext {
     public static TreeMap<Integer,NArea> findOuts(NAlias name) {
         TreeMap<Integer,NArea> areas = new TreeMap<>();
         if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
+            Set<Integer> nids = visibleIds();
             for(Integer id : nids) {
                 if (id > 0)
                     if (NUtils.getGameUI().map.glob.map.areas.get(id).containOut(name.getDefault())) {
@@ -1030,59 +1008,11 @@ public class NContext {
     }
 
     public static NArea findSpec(String name) {
-        double dist = 10000;
-        NArea res = null;
-        if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
-            for(Integer id : nids) {
-                if(id>=0) {
-                    for (NArea.Specialisation s : NUtils.getGameUI().map.glob.map.areas.get(id).spec) {
-                        if (s.name.equals(name)) {
-                            NArea test = NUtils.getGameUI().map.glob.map.areas.get(id);
-                            if(test.isVisible()) {
-                                Pair<Coord2d, Coord2d> testrc = test.getRCArea();
-                                if(testrc != null) {
-                                    double testdist;
-                                    if ((testdist = (testrc.a.dist(NUtils.player().rc) + testrc.b.dist(NUtils.player().rc))) < dist) {
-                                        res = test;
-                                        dist = testdist;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return res;
+        return closest(a -> a.id >= 0 && a.spec.stream().anyMatch(s -> s.name.equals(name)));
     }
 
     public static NArea findSpec(String name, String sub) {
-        double dist = 10000;
-        NArea res = null;
-        if(NUtils.getGameUI()!=null && NUtils.getGameUI().map!=null) {
-            Set<Integer> nids = NUtils.getGameUI().map.nols.keySet();
-            for(Integer id : nids) {
-                if(id>=0) {
-                    for (NArea.Specialisation s : NUtils.getGameUI().map.glob.map.areas.get(id).spec) {
-                        if (s.name.equals(name) && s.subtype != null && s.subtype.toLowerCase().equals(sub.toLowerCase())) {
-                            NArea test = NUtils.getGameUI().map.glob.map.areas.get(id);
-                            if(test.isVisible()) {
-                                Pair<Coord2d,Coord2d> testrc = test.getRCArea();
-                                if(testrc!=null) {
-                                    double testdist;
-                                    if ((testdist = (testrc.a.dist(NUtils.player().rc) + testrc.b.dist(NUtils.player().rc))) < dist) {
-                                        res = test;
-                                        dist = testdist;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return res;
+        return closest(a -> a.id >= 0 && a.spec.stream().anyMatch(s -> s.name.equals(name) && s.subtype != null && s.subtype.toLowerCase().equals(sub.toLowerCase())));
     }
 
     /**
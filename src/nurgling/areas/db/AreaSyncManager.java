@@ -1,6 +1,7 @@
 package nurgling.areas.db;
 
 import nurgling.areas.NArea;
+import nurgling.areas.NAreaIndex;
 import nurgling.areas.sync.ZoneSyncClient;
 import nurgling.areas.storage.DatabaseConnectionManager;
 
@@ -673,6 +674,7 @@ public class AreaSyncManager {
         // Обновляем пространственные данные (если есть)
         if (server.space != null && server.space.space != null && !server.space.space.isEmpty()) {
             local.space = server.space;
+            NAreaIndex.edited();
         }
         
         // Обновляем специализации
@@ -1211,6 +1213,7 @@ public class AreaSyncManager {
         // Обновляем space если изменился
         if (fromDB.space != null && fromDB.space.space != null) {
             existing.space = fromDB.space;
+            NAreaIndex.edited();
         }
         
         // Обновляем spec, jin, jout если изменились
@@ -20,6 +20,8 @@ public class NAreaLabel extends Sprite implements RenderTree.Node, PView.Render2
     public TexI sellabel = null;
     protected TexI img = null;
     NArea area;
+    private final NLabelCache.Slot text = new NLabelCache.Slot();
+    private final NLabelCache.Slot seltext = new NLabelCache.Slot();
     public Coord sc;
     boolean forced = false;
     int sizeSpec;
@@ -31,30 +33,41 @@ public class NAreaLabel extends Sprite implements RenderTree.Node, PView.Render2
         update();
     }
 
+    public NArea area() {
+        return area;
+    }
+
 
     public void update()
     {
-        BufferedImage img = NStyle.openings.render(area.name).img;
-        BufferedImage selimg = NStyle.selopenings.render(area.name).img;
-        if(!area.spec.isEmpty()) {
-            int iconSize = UI.scale(32);
-            BufferedImage first = Specialisation.findSpecialisation(area.spec.get(0).name).image;
-            BufferedImage ret = TexI.mkbuf(new Coord(iconSize, iconSize));
-            Graphics g = ret.getGraphics();
-            g.drawImage(first, 0, 0, iconSize, iconSize, null);
-            g.dispose();
-            first = ret;
-            if (area.spec.size() > 1) {
+        if(area.spec.isEmpty()) {
+            label = text.set(NStyle.openings, area.name);
+            sellabel = seltext.set(NStyle.selopenings, area.name);
+            return;
+        }
+        StringBuilder key = new StringBuilder(area.name);
+        for (NArea.Specialisation s : area.spec)
+            key.append('\0').append(s.name);
+        label = text.set(NStyle.openings, key.toString(), null, () -> ItemInfo.catimgsh(UI.scale(5), NStyle.openings.render(area.name).img, specimg()));
+        sellabel = seltext.set(NStyle.selopenings, key.toString(), null, () -> ItemInfo.catimgsh(UI.scale(5), NStyle.selopenings.render(area.name).img, specimg()));
+    }
 
-                for (int i = 1; i < area.spec.size(); i++) {
-                    first = ItemInfo.catimgsh(UI.scale(5), first, new Coord(iconSize, iconSize), Specialisation.findSpecialisation(area.spec.get(i).name).image);
-                }
+    private BufferedImage specimg()
+    {
+        int iconSize = UI.scale(32);
+        BufferedImage first = Specialisation.findSpecialisation(area.spec.get(0).name).image;
+        BufferedImage ret = TexI.mkbuf(new Coord(iconSize, iconSize));
+        Graphics g = ret.getGraphics();
+        g.drawImage(first, 0, 0, iconSize, iconSize, null);
+        g.dispose();
+        first = ret;
+        if (area.spec.size() > 1) {
+
+            for (int i = 1; i < area.spec.size(); i++) {
+                first = ItemInfo.catimgsh(UI.scale(5), first, new Coord(iconSize, iconSize), Specialisation.findSpecialisation(area.spec.get(i).name).image);
             }
-            img = ItemInfo.catimgsh(UI.scale(5), img, first);
-            selimg = ItemInfo.catimgsh(UI.scale(5), selimg, first);
         }
-        label = new TexI(img);
-        sellabel = new TexI(selimg);
+        return first;
     }
 
     @Override
@@ -92,4 +105,11 @@ public class NAreaLabel extends Sprite implements RenderTree.Node, PView.Render2
         Coord ul = sc.sub(label.sz().div(2));
         return pc.isect(ul, label.sz());
     }
+
+    @Override
+    public void dispose() {
+        text.release();
+        seltext.release();
+        super.dispose();
+    }
 }
@@ -41,7 +41,7 @@ public class NBarrelOverlay extends NObjectTexLabel
                 if(!ntext.equals(text)) {
                     text = ntext;
                     img = null;
-                    label = new TexI(active_title.render(text).img);
+                    label = slot.set(active_title, text);
                 }
             }
         }
@@ -50,6 +50,7 @@ public class NBarrelOverlay extends NObjectTexLabel
             text = null;
             img = null;
             label = null;
+            slot.release();
         }
         return super.tick(dt);
     }
@@ -32,21 +32,29 @@ public class NCheckResult extends NObjectTexLabel {
         pos = new Coord3f(0,0, 15);
         startTime = System.currentTimeMillis();
         customImg = сimg;
-        img = init((float) quality, (customImg == null) ? new TexI(baubles.get(name)):new TexI(baubles.get("EMPTY")));
+        img = label((float) quality, (customImg == null) ? baubles.get(name) : baubles.get("EMPTY"));
     }
 
-    TexI init(float qual, TexI img) {
+    /**
+     * Bauble with the quality on it, shared by the results that look the
+     * same; a custom image is part of the key as it is drawn over the bauble
+     */
+    private TexI label(float qual, BufferedImage bauble) {
         String value = String.format("%.0f", qual);
+        return slot.set((customImg != null) ? customImg : bauble, value, null, () -> init(value, bauble));
+    }
+
+    BufferedImage init(String value, BufferedImage img) {
         BufferedImage retlabel = active_title.render(value).img;
-        BufferedImage ret = TexI.mkbuf(new Coord(UI.scale(1) + img.sz().x + retlabel.getWidth(), Math.max(img.sz().y, retlabel.getHeight())));
+        BufferedImage ret = TexI.mkbuf(new Coord(UI.scale(1) + img.getWidth() + retlabel.getWidth(), Math.max(img.getHeight(), retlabel.getHeight())));
         Graphics g = ret.getGraphics();
-        g.drawImage(img.back, 0, ret.getHeight() / 2 - img.sz().y / 2, null);
+        g.drawImage(img, 0, ret.getHeight() / 2 - img.getHeight() / 2, null);
         if(customImg!=null) {
             g.drawImage(customImg, UI.scale(8), 2*ret.getHeight()/5-retlabel.getHeight()/2 +UI.scale(2), UI.scale(24), UI.scale(24),null);
         }
         g.drawImage(retlabel, UI.scale(2) + ret.getWidth()/2 - 3*retlabel.getWidth()/4, 2*ret.getHeight()/5-retlabel.getHeight()/2 +UI.scale(2), null);
         g.dispose();
-        return new TexI(ret);
+        return ret;
     }
 
     Gob gob;
@@ -58,7 +66,7 @@ public class NCheckResult extends NObjectTexLabel {
         gob = (Gob) owner;
         pos = new Coord3f(0,0, 15);
         startTime = System.currentTimeMillis();
-        img = init((float) qual,new TexI(baubles.get(val)));
+        img = label((float) qual, baubles.get(val));
     }
 
     @Override
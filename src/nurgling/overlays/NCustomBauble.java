@@ -15,7 +15,7 @@ public class NCustomBauble extends NObjectTexLabel {
         super(player);
         gob = (Gob) owner;
         pos = new Coord3f(0,0, 25);
-        this.img = new TexI(image);
+        this.img = slot.set(image, "", null, () -> image);
         this.result = result;
     }
 
@@ -23,13 +23,14 @@ public class NCustomBauble extends NObjectTexLabel {
         super(player);
         gob = (Gob) owner;
         pos = new Coord3f(0,0, 25);
-        this.img = new TexI(image);
+        this.img = slot.set(image, "", null, () -> image);
         if(image2!=null)
-            this.img2 = new TexI(image2);
+            this.img2 = slot2.set(image2, "", null, () -> image2);
         this.result = result;
     }
 
     TexI img2 = null;
+    private final NLabelCache.Slot slot2 = new NLabelCache.Slot();
     Gob gob;
     AtomicBoolean result;
 
@@ -39,6 +40,12 @@ public class NCustomBauble extends NObjectTexLabel {
     }
 
 
+    @Override
+    public void dispose() {
+        slot2.release();
+        super.dispose();
+    }
+
     @Override
     public void draw(GOut g, Pipe state)
     {
@@ -25,7 +25,8 @@ public class NCustomResult extends NObjectTexLabel {
         gob = (Gob) owner;
         pos = new Coord3f(0,0, 15);
         startTime = System.currentTimeMillis();
-        img = new TexI(baubles.get(name));
+        BufferedImage bauble = baubles.get(name);
+        img = slot.set(bauble, name, null, () -> bauble);
     }
 
 
@@ -5,14 +5,13 @@ import haven.render.Homo3D;
 import haven.render.Pipe;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 
 public class NDMGOverlay extends Sprite implements PView.Render2D {
     public static final Text.Foundry fnd = new Text.Foundry(Text.sans, 12);
     Color[] colt = new Color[]{Color.RED, Color.YELLOW, Color.GREEN};
-    TexI[] dmgt = new TexI[3];
+    NLabelCache.Slot[] dmgt = {new NLabelCache.Slot(), new NLabelCache.Slot(), new NLabelCache.Slot()};
     int[] dmg = new int[3];
-    BufferedImage curOl = null;
+    Coord cursz = null;
 
     public NDMGOverlay(Owner owner) {
         super(owner, null);
@@ -54,38 +53,45 @@ public class NDMGOverlay extends Sprite implements PView.Render2D {
 
     public void updDmg(int dmg, int type) {
         this.dmg[type] += dmg;
-        dmgt[type] = new TexI(Utils.outline2(fnd.render(Integer.toString(this.dmg[type]), colt[type]).img, Utils.contrast(colt[type])));
+        String num = Integer.toString(this.dmg[type]);
+        Color col = colt[type];
+        dmgt[type].set(fnd, num, col, () -> Utils.outline2(fnd.render(num, col).img, Utils.contrast(col)));
         int w = 0;
         int h = 0;
         for(int i = 0; i < 3; i++) {
-            if (dmgt[i] != null) {
-                w += dmgt[i].sz().x + UI.scale(2);
-                h = dmgt[i].sz().y + UI.scale(2);
+            TexI t = dmgt[i].get();
+            if (t != null) {
+                w += t.sz().x + UI.scale(2);
+                h = t.sz().y + UI.scale(2);
             }
         }
-        BufferedImage ret = TexI.mkbuf(new Coord(w, h));
-        Graphics g = ret.getGraphics();
-        Coord pos = new Coord(0, 0);
-        for(int i = 0; i < 3; i++) {
-            if(dmgt[i] != null) {
-                g.drawImage(dmgt[i].back, pos.x, pos.y, null);
-                pos.x += dmgt[i].sz().x + UI.scale(2);
-            }
-        }
-        g.dispose();
-        curOl = ret;
+        cursz = new Coord(w, h);
     }
 
     public void draw(GOut g, Pipe state) {
         Coord sc = Homo3D.obj2view(Coord3f.zu.add(0,0, 16), state, Area.sized(Coord.z, g.sz())).round2();
-        if(sc == null || curOl == null) {
+        if(sc == null || cursz == null) {
             return;
         }
         g.chcolor(new Color(0, 0, 0, 64));
-        Coord start = new Coord(curOl.getWidth(),curOl.getHeight()).div(2);
-        g.frect2(sc.sub(start), sc.add(new Coord(curOl.getWidth(),curOl.getHeight())).sub(start));
+        Coord start = cursz.div(2);
+        g.frect2(sc.sub(start), sc.add(cursz).sub(start));
         g.chcolor();
-        g.image(curOl,sc.add(UI.scale(1,0)).sub(start));
+        Coord pos = sc.add(UI.scale(1,0)).sub(start);
+        for(int i = 0; i < 3; i++) {
+            TexI t = dmgt[i].get();
+            if(t != null) {
+                g.image(t, pos);
+                pos = pos.add(t.sz().x + UI.scale(2), 0);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for(NLabelCache.Slot t : dmgt)
+            t.release();
+        super.dispose();
     }
 
     @Override
@@ -0,0 +1,200 @@
+package nurgling.overlays;
+
+import haven.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Shared textures of rendered label text for gob overlays.
+ * Textures are keyed by (furnace, text, colour), so the hundreds of gobs of
+ * a stockpile yard that show the same quality number share one texture
+ * instead of uploading one each. Overlays hold their textures through a
+ * {@link Slot}; an entry is in use while some slot holds it, and unused
+ * entries are kept in LRU order up to a byte budget before they are
+ * disposed. Overlays are not always disposed when their gob goes away,
+ * so a slot that becomes unreachable releases its entry on its own.
+ */
+public class NLabelCache
+{
+    private static final long IDLE_BYTES = 8L << 20;
+    private static final int IDLE_COUNT = 1024;
+
+    private static final Map<Key, Entry> entries = new HashMap<>();
+    private static final LinkedHashMap<Key, Entry> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private static final Set<Ref> refs = new HashSet<>();
+    private static final ReferenceQueue<Slot> cleared = new ReferenceQueue<>();
+    private static long hits = 0, misses = 0, bytes = 0, idlebytes = 0;
+
+    private static class Key
+    {
+        final Object fnd;
+        final String text;
+        final Color col;
+
+        Key(Object fnd, String text, Color col)
+        {
+            this.fnd = fnd;
+            this.text = text;
+            this.col = col;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return (k.fnd == fnd) && k.text.equals(text) && Objects.equals(k.col, col);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (System.identityHashCode(fnd) * 31 + text.hashCode()) * 31 + Objects.hashCode(col);
+        }
+    }
+
+    private static class Entry
+    {
+        final Key key;
+        final TexI tex;
+        final long size;
+        int users = 0;
+
+        Entry(Key key, TexI tex)
+        {
+            this.key = key;
+            this.tex = tex;
+            this.size = 4L * tex.sz().x * tex.sz().y;
+        }
+    }
+
+    private static class Ref extends WeakReference<Slot>
+    {
+        Entry entry = null;
+
+        Ref(Slot slot)
+        {
+            super(slot, cleared);
+        }
+    }
+
+    /**
+     * One label texture held by an overlay. Setting a new label releases the
+     * previous one.
+     */
+    public static class Slot
+    {
+        private final Ref ref = new Ref(this);
+        private TexI tex = null;
+
+        /**
+         * Label rendered by the furnace in its own colour
+         */
+        public TexI set(Text.Furnace fnd, String text)
+        {
+            return set(fnd, text, null, () -> fnd.render(text).img);
+        }
+
+        /**
+         * Label whose image is made by the given renderer. The key must
+         * identify the image completely: two calls with equal keys are
+         * assumed to render the same image.
+         */
+        public TexI set(Object fnd, String text, Color col, Supplier<BufferedImage> render)
+        {
+            return tex = acquire(ref, new Key(fnd, text, col), render);
+        }
+
+        public TexI get()
+        {
+            return tex;
+        }
+
+        public void release()
+        {
+            synchronized (NLabelCache.class)
+            {
+                drop(ref);
+            }
+            tex = null;
+        }
+    }
+
+    private static synchronized TexI acquire(Ref ref, Key key, Supplier<BufferedImage> render)
+    {
+        reap();
+        if ((ref.entry != null) && ref.entry.key.equals(key))
+            return ref.entry.tex;
+        Entry ent = entries.get(key);
+        if (ent == null)
+        {
+            misses++;
+            ent = new Entry(key, new TexI(render.get()));
+            entries.put(key, ent);
+            bytes += ent.size;
+        }
+        else
+        {
+            hits++;
+        }
+        if (ent.users++ == 0)
+        {
+            if (idle.remove(key) != null)
+                idlebytes -= ent.size;
+        }
+        drop(ref);
+        ref.entry = ent;
+        refs.add(ref);
+        return ent.tex;
+    }
+
+    private static void drop(Ref ref)
+    {
+        Entry ent = ref.entry;
+        if (ent == null)
+            return;
+        ref.entry = null;
+        refs.remove(ref);
+        if (--ent.users == 0)
+        {
+            idle.put(ent.key, ent);
+            idlebytes += ent.size;
+            trim();
+        }
+    }
+
+    private static void trim()
+    {
+        for (Iterator<Entry> i = idle.values().iterator(); i.hasNext() && ((idlebytes > IDLE_BYTES) || (idle.size() > IDLE_COUNT)); )
+        {
+            Entry ent = i.next();
+            i.remove();
+            entries.remove(ent.key);
+            idlebytes -= ent.size;
+            bytes -= ent.size;
+            ent.tex.dispose();
+        }
+    }
+
+    private static void reap()
+    {
+        java.lang.ref.Reference<? extends Slot> r;
+        while ((r = cleared.poll()) != null)
+            drop((Ref) r);
+    }
+
+    public static synchronized String stats()
+    {
+        reap();
+        long req = hits + misses;
+        return String.format("%d tex (%d idle), %,d kB (%,d idle), %d%% hits",
+                entries.size(), idle.size(), bytes >> 10, idlebytes >> 10,
+                (req == 0) ? 0 : (int) ((hits * 100) / req));
+    }
+}
@@ -3,6 +3,7 @@ package nurgling.overlays;
 import haven.*;
 import haven.render.*;
 import nurgling.*;
+import nurgling.tools.NClassifier;
 import nurgling.widgets.nsettings.World;
 
 import java.awt.*;
@@ -263,8 +264,8 @@ public class NModelBox extends Sprite implements RenderTree.Node {
 
     @Override
     public boolean tick(double dt) {
-        boolean newShowState = ((Boolean) NConfig.get(NConfig.Key.showBB) ||
-                (!(Boolean) NConfig.get(NConfig.Key.hideNature) && NUtils.isNatureObject(gob.ngob.name)));
+        boolean newShowState = (NConfig.getBool(NConfig.Key.showBB) ||
+                (!NConfig.getBool(NConfig.Key.hideNature) && gob.ngob.is(NClassifier.Category.NATURE)));
 
         String mode = (String) NConfig.get(NConfig.Key.bbDisplayMode);
         if (mode == null) mode = "FILLED";
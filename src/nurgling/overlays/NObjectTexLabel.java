@@ -15,11 +15,19 @@ public class NObjectTexLabel extends Sprite implements RenderTree.Node, PView.Re
     public TexI label = null;
     protected TexI img = null;
     boolean forced = false;
+    /* Holds the label, or the image of overlays that draw a single one, in the shared label textures */
+    protected final NLabelCache.Slot slot = new NLabelCache.Slot();
     public NObjectTexLabel(Owner owner) {
         super(owner, null);
         pos = new Coord3f(0,0,5);
     }
 
+    @Override
+    public void dispose() {
+        slot.release();
+        super.dispose();
+    }
+
     @Override
     public void draw(GOut g, Pipe state) {
         if(NUtils.getGameUI()!=null) {
@@ -37,18 +37,24 @@ public class NTreeScaleOl extends NObjectTexLabel {
             scale = Math.round(100 * (ts.scale - 0.1) / 0.9);
         }
         this.img = qIcon;
-        BufferedImage retlabel =fnd.render(String.format("%d%%",scale)).img;
-        BufferedImage ret = TexI.mkbuf(new Coord(UI.scale(1)+img.sz().x+retlabel.getWidth(), Math.max(img.sz().y,retlabel.getHeight())));
-        Graphics g = ret.getGraphics();
-        g.drawImage(img.back, 0, ret.getHeight()/2-img.sz().y/2, null);
-        g.drawImage(retlabel,UI.scale(1)+img.sz().x,ret.getHeight()/2-retlabel.getHeight()/2,null);
-        g.dispose();
-        this.label = new TexI(ret);
+        String value = String.format("%d%%", scale);
+        this.label = slot.set(qIcon, value, null, () -> init(value));
         
         // Check Tree Finder on overlay creation (delayed to ensure GUI is ready)
         checkTreeFinderDelayed(scale);
     }
     
+    /* Growth icon with the percentage next to it */
+    private static BufferedImage init(String value) {
+        BufferedImage retlabel =fnd.render(value).img;
+        BufferedImage ret = TexI.mkbuf(new Coord(UI.scale(1)+qIcon.sz().x+retlabel.getWidth(), Math.max(qIcon.sz().y,retlabel.getHeight())));
+        Graphics g = ret.getGraphics();
+        g.drawImage(qIcon.back, 0, ret.getHeight()/2-qIcon.sz().y/2, null);
+        g.drawImage(retlabel,UI.scale(1)+qIcon.sz().x,ret.getHeight()/2-retlabel.getHeight()/2,null);
+        g.dispose();
+        return ret;
+    }
+
     private void checkTreeFinderDelayed(long growthPercent) {
         // Use delayed task to ensure GUI is fully initialized
         UI ui = UI.getInstance();
@@ -15,7 +15,7 @@ public class QualityOl extends NObjectTexLabel {
         super(target);
         gob = (Gob) target;
         pos = new Coord3f(0,0, 3);
-        this.img = new TexI(fnd.render(String.valueOf(val)).img);
+        this.img = slot.set(fnd, String.valueOf(val));
     }
 
 
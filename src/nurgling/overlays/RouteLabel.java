@@ -10,11 +10,10 @@ import nurgling.NUtils;
 import nurgling.routes.Route;
 import nurgling.routes.RoutePoint;
 
-import java.awt.image.BufferedImage;
-
 public class RouteLabel extends Sprite implements RenderTree.Node, PView.Render2D {
     private static final Coord3f Z_OFFSET = new Coord3f(0, 0, 0); // At ground level
     private TexI label;
+    private final NLabelCache.Slot text = new NLabelCache.Slot();
     public static final double floaty = UI.scale(5.0);
     Route route;
     public final Tex tex = Resource.loadtex("nurgling/hud/point");
@@ -64,8 +63,13 @@ public class RouteLabel extends Sprite implements RenderTree.Node, PView.Render2
 
     private void update() {
         // Create a simple icon or label (e.g. a dot or waypoint marker)
-        BufferedImage img = NStyle.openings.render(route.name).img;;
-        label = new TexI(img);
+        label = text.set(NStyle.openings, route.name);
+    }
+
+    @Override
+    public void dispose() {
+        text.release();
+        super.dispose();
     }
 
     @Override
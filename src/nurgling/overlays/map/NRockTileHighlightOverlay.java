@@ -162,6 +162,7 @@ public class NRockTileHighlightOverlay extends NOverlay {
 
         // Build boolean grid (same as makenol)
         boolean[][] highlightGrid = new boolean[mm.sz.x][mm.sz.y];
+        boolean[] selected = map.tileclass.select(selectedTileResources);
 
         for (int ty = 0; ty < mm.sz.y; ty++) {
             for (int tx = 0; tx < mm.sz.x; tx++) {
@@ -170,12 +171,8 @@ public class NRockTileHighlightOverlay extends NOverlay {
                 try {
                     int tileId = map.gettile(gc);
 
-                    if (tileId >= 0 && tileId < map.nsets.length) {
-                        Resource.Spec tileSpec = map.nsets[tileId];
-
-                        if (tileSpec != null && selectedTileResources.contains(tileSpec.name)) {
-                            highlightGrid[tx][ty] = true;
-                        }
+                    if (tileId >= 0 && tileId < selected.length && selected[tileId]) {
+                        highlightGrid[tx][ty] = true;
                     }
                 } catch (Exception e) {
                     // Skip
@@ -22,6 +22,12 @@ public class CellsArray {
         this.y_len = y_len;
     }
 
+    CellsArray(short[][] cells, int x_len, int y_len) {
+        this.cells = cells;
+        this.x_len = x_len;
+        this.y_len = y_len;
+    }
+
     public CellsArray(NHitBox hb, double angl, Coord2d rc) {
         NHitBoxD objToApproach = new NHitBoxD(hb.begin, hb.end, rc, angl);
         begin = Utils.toPfGrid(objToApproach.getCircumscribedUL());
@@ -0,0 +1,389 @@
+package nurgling.pf;
+
+import haven.*;
+import nurgling.NUtils;
+
+import java.util.*;
+
+/**
+ * Path planner for walking among moving gobs, after D* Lite. It keeps a map
+ * built once by the path finder, with the cells of moving gobs taken out, and
+ * searches it backwards from the approach points, so that the distances to
+ * them stay valid as the player walks.
+ * <p>
+ * On each plan the moving gobs are looked up again, and each covers the cells
+ * under its hitbox now and where its movement takes it over the next
+ * {@link #HORIZON} seconds, unless the player would be past that point by
+ * then. Only the cells that gobs stepped on or off since the last plan are
+ * repaired, instead of building the map and searching it again.
+ */
+public class DynamicPlanner
+{
+    /* How far ahead the movement of gobs is followed, in seconds */
+    private static final double HORIZON = 2.0;
+    private static final double STEP = 0.5;
+    /* Speed assumed for the player while standing still, in units per second */
+    private static final double WALK = 25;
+    private static final int INF = Integer.MAX_VALUE / 4;
+
+    private final NPFMap map;
+    private final int size;
+    private final long target;
+    private final short[] base;
+    private final short[] occ;
+    private final int[] g, rhs;
+    private final long[] qk1, qk2;
+    private final boolean[] queued;
+    private final PriorityQueue<Node> open = new PriorityQueue<>();
+    private Map<Long, Set<Integer>> covered = new HashMap<>();
+    private int start = -1;
+    private long km = 0;
+
+    private static class Node implements Comparable<Node>
+    {
+        final int idx;
+        final long k1, k2;
+
+        Node(int idx, long k1, long k2)
+        {
+            this.idx = idx;
+            this.k1 = k1;
+            this.k2 = k2;
+        }
+
+        @Override
+        public int compareTo(Node o)
+        {
+            int c = Long.compare(k1, o.k1);
+            return (c != 0) ? c : Long.compare(k2, o.k2);
+        }
+    }
+
+    /**
+     * @param map    map built by the path finder, with the approach points
+     *               marked; the planner works on a copy of it
+     * @param target id of the gob walked to, whose cells stay as they are
+     */
+    public DynamicPlanner(NPFMap map, long target)
+    {
+        this.map = map = map.copy();
+        this.size = map.size;
+        this.target = target;
+        int n = size * size;
+        base = new short[n];
+        occ = new short[n];
+        g = new int[n];
+        rhs = new int[n];
+        qk1 = new long[n];
+        qk2 = new long[n];
+        queued = new boolean[n];
+        Set<Long> moving = new HashSet<>();
+        synchronized (NUtils.getGameUI().ui.sess.glob.oc)
+        {
+            for (Gob gob : NUtils.getGameUI().ui.sess.glob.oc)
+            {
+                if (gob.id != target && gob.ngob != null && gob.ngob.isDynamic())
+                    moving.add(gob.id);
+            }
+        }
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                NPFMap.Cell c = map.cells[i][j];
+                /* Cells marked only for moving gobs are laid over the map on each plan */
+                if (c.val == 1 && !c.content.isEmpty() && moving.containsAll(c.content))
+                    c.val = 0;
+                c.content.removeAll(moving);
+                base[i * size + j] = c.val;
+                g[i * size + j] = rhs[i * size + j] = INF;
+            }
+        }
+        for (int i = 0; i < n; i++)
+        {
+            if (base[i] == 7)
+            {
+                rhs[i] = 0;
+                push(i);
+            }
+        }
+    }
+
+    /**
+     * Path from the player to the nearest approach point, the cell of the
+     * player first, or null if the player is off the map or there is no way
+     * through the gobs
+     */
+    public synchronized LinkedList<Graph.Vertex> plan()
+    {
+        Gob player = NUtils.player();
+        if (player == null)
+            return null;
+        Coord sc = Utils.toPfGrid(player.rc).sub(map.begin);
+        if (sc.x <= 0 || sc.y <= 0 || sc.x >= size - 1 || sc.y >= size - 1)
+            return null;
+        int s = sc.x * size + sc.y;
+        if (start >= 0)
+            km += h(start, s);
+        start = s;
+        /* A cell that changed only changes the steps of its neighbours into it or past its corner */
+        for (int c : occupy(player))
+            updateAround(c);
+        search();
+        if (g[start] >= INF)
+            return null;
+        LinkedList<Graph.Vertex> path = new LinkedList<>();
+        int cur = start;
+        path.add(vertex(cur));
+        for (int n = 0; base[cur] != 7; n++)
+        {
+            if (n > size * size)
+                return null;
+            int best = -1, bestcost = INF;
+            for (int di = -1; di <= 1; di++)
+            {
+                for (int dj = -1; dj <= 1; dj++)
+                {
+                    if (di == 0 && dj == 0)
+                        continue;
+                    int nb = cur + di * size + dj;
+                    int c = cost(cur, di, dj);
+                    if (c < INF && g[nb] < INF && c + g[nb] < bestcost)
+                    {
+                        best = nb;
+                        bestcost = c + g[nb];
+                    }
+                }
+            }
+            if (best < 0)
+                return null;
+            cur = best;
+            path.add(vertex(cur));
+        }
+        return path;
+    }
+
+    /**
+     * Copy of the map as of the last plan, with the cells of moving gobs
+     * marked, for callers that check lines against it
+     */
+    public synchronized NPFMap snapshot()
+    {
+        return map.copy();
+    }
+
+    /**
+     * Whether the point lies on the map inside its border
+     */
+    public boolean covers(Coord2d pos)
+    {
+        return map.covers(pos);
+    }
+
+    /* Lays the moving gobs over the map and returns the cells they stepped on or off */
+    private Set<Integer> occupy(Gob player)
+    {
+        Map<Long, Set<Integer>> now = new HashMap<>();
+        double pv = Math.max(player.getv(), WALK);
+        long transport = -1;
+        Following fl = player.getattr(Following.class);
+        if (fl != null)
+            transport = fl.tgt;
+        synchronized (NUtils.getGameUI().ui.sess.glob.oc)
+        {
+            for (Gob gob : NUtils.getGameUI().ui.sess.glob.oc)
+            {
+                if (gob.id == target || gob.id == player.id || gob.id == transport || gob.ngob == null || !gob.ngob.isDynamic() ||
+                        gob.ngob.hitBox == null || gob.getattr(Following.class) != null)
+                    continue;
+                Set<Integer> cells = new HashSet<>();
+                mark(cells, gob, gob.rc);
+                Moving m = gob.getattr(Moving.class);
+                if (m instanceof LinMove && ((LinMove) m).v.abs() > 0)
+                {
+                    LinMove lm = (LinMove) m;
+                    double left = Double.isNaN(lm.e) ? HORIZON : Math.max(0, lm.e - lm.t);
+                    for (double t = STEP; t <= Math.min(HORIZON, left + STEP); t += STEP)
+                    {
+                        Coord2d p = gob.rc.add(lm.v.mul(Math.min(t, left)));
+                        /* The player gets there before the gob does */
+                        if (p.dist(player.rc) < pv * (t - STEP))
+                            continue;
+                        mark(cells, gob, p);
+                    }
+                }
+                if (!cells.isEmpty())
+                    now.put(gob.id, cells);
+            }
+        }
+        Set<Integer> changed = new HashSet<>();
+        for (Map.Entry<Long, Set<Integer>> e : covered.entrySet())
+        {
+            Set<Integer> cur = now.getOrDefault(e.getKey(), Collections.emptySet());
+            for (int c : e.getValue())
+            {
+                if (!cur.contains(c))
+                {
+                    map.cells[c / size][c % size].content.remove(e.getKey());
+                    if (--occ[c] == 0)
+                        changed.add(c);
+                }
+            }
+        }
+        for (Map.Entry<Long, Set<Integer>> e : now.entrySet())
+        {
+            Set<Integer> old = covered.getOrDefault(e.getKey(), Collections.emptySet());
+            for (int c : e.getValue())
+            {
+                if (!old.contains(c))
+                {
+                    map.cells[c / size][c % size].content.add(e.getKey());
+                    if (occ[c]++ == 0)
+                        changed.add(c);
+                }
+            }
+        }
+        covered = now;
+        for (int c : changed)
+            map.cells[c / size][c % size].val = (occ[c] > 0) ? 1 : base[c];
+        return changed;
+    }
+
+    private void mark(Set<Integer> cells, Gob gob, Coord2d rc)
+    {
+        CellsArray ca = new CellsArray(gob.ngob.hitBox, gob.a, rc);
+        for (int i = 0; i < ca.x_len; i++)
+        {
+            for (int j = 0; j < ca.y_len; j++)
+            {
+                int ii = i + ca.begin.x - map.begin.x;
+                int jj = j + ca.begin.y - map.begin.y;
+                if (ca.cells[i][j] != 0 && ii > 0 && ii + 1 < size && jj > 0 && jj + 1 < size)
+                    cells.add(ii * size + jj);
+            }
+        }
+    }
+
+    private boolean inside(int i, int j)
+    {
+        return i >= 0 && j >= 0 && i < size && j < size;
+    }
+
+    private boolean free(int c)
+    {
+        return occ[c] == 0 && (base[c] == 0 || base[c] == 7);
+    }
+
+    /* Cost of the step from the cell by the offset, moving diagonally only between free cells, as Graph does */
+    private int cost(int c, int di, int dj)
+    {
+        int i = c / size + di, j = c % size + dj;
+        if (!inside(i, j) || !free(i * size + j))
+            return INF;
+        if (di != 0 && dj != 0)
+        {
+            if (!free(c + di * size) || !free(c + dj))
+                return INF;
+            return 141;
+        }
+        return 100;
+    }
+
+    /* Octile distance between cells, which never exceeds the cost of a path between them */
+    private int h(int a, int b)
+    {
+        int dx = Math.abs(a / size - b / size), dy = Math.abs(a % size - b % size);
+        return 100 * Math.max(dx, dy) + 41 * Math.min(dx, dy);
+    }
+
+    private void push(int c)
+    {
+        int m = Math.min(g[c], rhs[c]);
+        qk1[c] = m + ((start >= 0) ? h(start, c) : 0) + km;
+        qk2[c] = m;
+        queued[c] = true;
+        open.add(new Node(c, qk1[c], qk2[c]));
+    }
+
+    private void update(int c)
+    {
+        if (base[c] != 7)
+        {
+            int best = INF;
+            int ci = c / size, cj = c % size;
+            for (int di = -1; di <= 1; di++)
+            {
+                for (int dj = -1; dj <= 1; dj++)
+                {
+                    if ((di == 0 && dj == 0) || !inside(ci + di, cj + dj))
+                        continue;
+                    int nb = c + di * size + dj;
+                    int cost = cost(c, di, dj);
+                    if (cost < INF && g[nb] < INF)
+                        best = Math.min(best, cost + g[nb]);
+                }
+            }
+            rhs[c] = best;
+        }
+        if (g[c] != rhs[c])
+            push(c);
+        else
+            queued[c] = false;
+    }
+
+    private void updateAround(int c)
+    {
+        int ci = c / size, cj = c % size;
+        for (int di = -1; di <= 1; di++)
+            for (int dj = -1; dj <= 1; dj++)
+                if ((di != 0 || dj != 0) && inside(ci + di, cj + dj))
+                    update(c + di * size + dj);
+    }
+
+    private void search()
+    {
+        while (!open.isEmpty())
+        {
+            Node top = open.peek();
+            if (!queued[top.idx] || top.k1 != qk1[top.idx] || top.k2 != qk2[top.idx])
+            {
+                /* Superseded by a later push */
+                open.poll();
+                continue;
+            }
+            int ms = Math.min(g[start], rhs[start]);
+            long sk1 = ms + km;
+            if ((top.k1 > sk1 || top.k1 == sk1 && top.k2 >= ms) && rhs[start] == g[start])
+                break;
+            open.poll();
+            int u = top.idx;
+            queued[u] = false;
+            int m = Math.min(g[u], rhs[u]);
+            long k1 = m + h(start, u) + km;
+            if (top.k1 < k1 || top.k1 == k1 && top.k2 < m)
+            {
+                push(u);
+            }
+            else if (g[u] > rhs[u])
+            {
+                g[u] = rhs[u];
+                updateAround(u);
+            }
+            else
+            {
+                g[u] = INF;
+                update(u);
+                updateAround(u);
+            }
+        }
+    }
+
+    private Graph.Vertex vertex(int c)
+    {
+        int i = c / size, j = c % size;
+        Graph.Vertex v = new Graph.Vertex(map.cells[i][j].pos, map.cells[i][j].val);
+        v.i = i;
+        v.j = j;
+        return v;
+    }
+}
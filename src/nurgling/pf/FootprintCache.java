@@ -0,0 +1,117 @@
+package nurgling.pf;
+
+import haven.Coord;
+import haven.Coord2d;
+import haven.MCache;
+import nurgling.NHitBox;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared rasters of the footprints of standing gobs. The cells a hitbox
+ * covers depend only on its dimensions, its angle and where it stands within
+ * a path finder cell, so a footprint is rasterised once with the box put in
+ * the cell at the origin, and moved by whole cells for every gob with the
+ * same key. Fences, palisades and piles stand at the same few offsets, as
+ * the server places gobs on a fine fixed grid, so most footprints come out
+ * of the cache.
+ * <p>
+ * Only boxes turned by a multiple of a right angle are shared. Their corners
+ * and the cell bounds are then sums of the hitbox bounds, positions on the
+ * server grid and multiples of half a cell, all short binary fractions, so
+ * the raster moved by whole cells is exactly the one rasterised in place.
+ * Turned boxes carry rounded sines and cosines, which may tip a grazing cell
+ * either way, so they are rasterised in place. Moving gobs should not be
+ * looked up here, as each of their positions would take an entry.
+ * <p>
+ * The rasters handed out share their cells, which callers only read.
+ */
+public class FootprintCache
+{
+    private static final int MAX = 8192;
+    /* Least recently used footprints are dropped first */
+    private static final Map<Key, CellsArray> cache = Collections.synchronizedMap(new LinkedHashMap<Key, CellsArray>(256, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CellsArray> eldest)
+        {
+            return size() > MAX;
+        }
+    });
+
+    private static class Key
+    {
+        final double bx, by, ex, ey, a, ox, oy;
+
+        Key(NHitBox hb, double a, Coord2d off)
+        {
+            bx = hb.begin.x;
+            by = hb.begin.y;
+            ex = hb.end.x;
+            ey = hb.end.y;
+            this.a = a;
+            ox = off.x;
+            oy = off.y;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return Double.compare(bx, k.bx) == 0 && Double.compare(by, k.by) == 0 && Double.compare(ex, k.ex) == 0 && Double.compare(ey, k.ey) == 0 &&
+                    Double.compare(a, k.a) == 0 && Double.compare(ox, k.ox) == 0 && Double.compare(oy, k.oy) == 0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            long h = Double.doubleToLongBits(bx);
+            h = h * 31 + Double.doubleToLongBits(by);
+            h = h * 31 + Double.doubleToLongBits(ex);
+            h = h * 31 + Double.doubleToLongBits(ey);
+            h = h * 31 + Double.doubleToLongBits(a);
+            h = h * 31 + Double.doubleToLongBits(ox);
+            h = h * 31 + Double.doubleToLongBits(oy);
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /* Whether NHitBoxD puts a box turned by the angle as an axis aligned one */
+    private static boolean ortho(double angle)
+    {
+        double kPi = (2 * angle) / Math.PI;
+        return ((kPi < 0) ? ((kPi % 1.0) + 1.0) : (kPi % 1.0)) <= 0.0001;
+    }
+
+    /**
+     * Cells covered by the hitbox turned by the angle and put at rc, as
+     * {@link CellsArray#CellsArray(NHitBox, double, Coord2d)} rasterises them
+     */
+    public static CellsArray get(NHitBox hb, double angle, Coord2d rc)
+    {
+        if (!ortho(angle))
+            return new CellsArray(hb, angle, rc);
+        Coord cell = rc.floor(MCache.tilehsz);
+        Coord2d off = rc.sub(Utils.pfGridToWorld(cell));
+        Key key = new Key(hb, angle, off);
+        CellsArray fp = cache.get(key);
+        if (fp == null)
+        {
+            fp = new CellsArray(hb, angle, off);
+            cache.put(key, fp);
+        }
+        CellsArray ret = new CellsArray(fp.cells, fp.x_len, fp.y_len);
+        ret.begin = fp.begin.add(cell);
+        ret.end = fp.end.add(cell);
+        return ret;
+    }
+
+    public static int size()
+    {
+        return cache.size();
+    }
+}
@@ -0,0 +1,251 @@
+package nurgling.pf;
+
+import haven.Coord;
+import haven.Coord2d;
+import haven.Pair;
+import nurgling.NHitBox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds free places for objects in an area, over obstacles rasterised once
+ * into unit cells. Two summed-area tables answer most candidate positions in
+ * constant time: one counts cells touched by an obstacle's reach, so a
+ * position whose reach touches none of them is free; the other counts cells
+ * lying wholly inside an axis-aligned obstacle, so an axis-aligned footprint
+ * that covers one of them is taken. Only the remaining positions are tested
+ * exactly, and then only against the obstacles of the buckets they overlap.
+ * The results are the same as those of testing every obstacle.
+ * <p>
+ * The reach of a box is the bounding box of every point that
+ * {@link NHitBoxD#intersects} tests, which for turned boxes takes in edge
+ * check points that may lie past the corners.
+ * <p>
+ * Places handed out by {@link #place} count as obstacles for later queries,
+ * so one placer can lay out a whole row of objects.
+ */
+public class FreePlacer
+{
+    private static final int PAD = 16;
+    private static final int BUCKET = 8;
+    private static final double EPS = 1e-6;
+
+    final Pair<Coord2d, Coord2d> area;
+    final Coord2d org;
+    final int w, h;
+    final int[] touched, solid;
+    final int bw, bh;
+    final List<List<NHitBoxD>> buckets;
+    final List<NHitBoxD> placed = new ArrayList<>();
+    final List<Coord2d[]> reaches = new ArrayList<>();
+
+    public FreePlacer(Pair<Coord2d, Coord2d> area, List<NHitBoxD> obstacles)
+    {
+        this.area = area;
+        Coord o = area.a.floor().sub(PAD, PAD);
+        this.org = Coord2d.of(o.x, o.y);
+        Coord span = area.b.sub(org).floor().add(PAD + 1, PAD + 1);
+        w = Math.max(span.x, 1);
+        h = Math.max(span.y, 1);
+        bw = (w + BUCKET - 1) / BUCKET;
+        bh = (h + BUCKET - 1) / BUCKET;
+        buckets = new ArrayList<>(bw * bh);
+        for (int i = 0; i < bw * bh; i++)
+            buckets.add(new ArrayList<>());
+        int[] tcells = new int[w * h], scells = new int[w * h];
+        for (NHitBoxD ob : obstacles)
+        {
+            Coord2d[] r = reach(ob);
+            Coord2d rul = r[0].sub(org), rbr = r[1].sub(org);
+            int x0 = cx(Math.floor(rul.x - EPS)), x1 = cx(Math.floor(rbr.x + EPS));
+            int y0 = cy(Math.floor(rul.y - EPS)), y1 = cy(Math.floor(rbr.y + EPS));
+            for (int y = y0; y <= y1; y++)
+                for (int x = x0; x <= x1; x++)
+                    tcells[y * w + x] = 1;
+            for (int y = y0 / BUCKET; y <= y1 / BUCKET; y++)
+                for (int x = x0 / BUCKET; x <= x1 / BUCKET; x++)
+                    buckets.get(y * bw + x).add(ob);
+            if (ob.ortho)
+            {
+                Coord2d ul = ob.getCircumscribedUL().sub(org), br = ob.getCircumscribedBR().sub(org);
+                int sx0 = (int) Math.ceil(ul.x), sx1 = (int) Math.floor(br.x) - 1;
+                int sy0 = (int) Math.ceil(ul.y), sy1 = (int) Math.floor(br.y) - 1;
+                for (int y = Math.max(sy0, 0); y <= Math.min(sy1, h - 1); y++)
+                    for (int x = Math.max(sx0, 0); x <= Math.min(sx1, w - 1); x++)
+                        scells[y * w + x] = 1;
+            }
+        }
+        touched = sat(tcells);
+        solid = sat(scells);
+    }
+
+    private int cx(double x)
+    {
+        return (int) Math.max(0, Math.min(w - 1, x));
+    }
+
+    private int cy(double y)
+    {
+        return (int) Math.max(0, Math.min(h - 1, y));
+    }
+
+    private int[] sat(int[] cells)
+    {
+        int[] ret = new int[(w + 1) * (h + 1)];
+        for (int y = 0; y < h; y++)
+        {
+            int row = 0;
+            for (int x = 0; x < w; x++)
+            {
+                row += cells[y * w + x];
+                ret[(y + 1) * (w + 1) + x + 1] = ret[y * (w + 1) + x + 1] + row;
+            }
+        }
+        return ret;
+    }
+
+    /* Sum over cells [x0, x1] x [y0, y1], which must lie in the raster */
+    private int sum(int[] sat, int x0, int y0, int x1, int y1)
+    {
+        if (x1 < x0 || y1 < y0)
+            return 0;
+        return sat[(y1 + 1) * (w + 1) + x1 + 1] - sat[y0 * (w + 1) + x1 + 1] - sat[(y1 + 1) * (w + 1) + x0] + sat[y0 * (w + 1) + x0];
+    }
+
+    private boolean inside(double x0, double y0, double x1, double y1)
+    {
+        return x0 >= 0 && y0 >= 0 && x1 < w && y1 < h;
+    }
+
+    /**
+     * Bounding box of the corners, centre and check points of the box
+     */
+    static Coord2d[] reach(NHitBoxD box)
+    {
+        Coord2d ul = box.getCircumscribedUL(), br = box.getCircumscribedBR();
+        double x0 = Math.min(ul.x, box.rc.x), y0 = Math.min(ul.y, box.rc.y);
+        double x1 = Math.max(br.x, box.rc.x), y1 = Math.max(br.y, box.rc.y);
+        if (!box.ortho && box.checkPoints != null)
+        {
+            for (Coord2d p : box.checkPoints)
+            {
+                x0 = Math.min(x0, p.x);
+                y0 = Math.min(y0, p.y);
+                x1 = Math.max(x1, p.x);
+                y1 = Math.max(y1, p.y);
+            }
+        }
+        return new Coord2d[]{Coord2d.of(x0, y0), Coord2d.of(x1, y1)};
+    }
+
+    private static boolean overlap(Coord2d[] r, Coord2d ul, Coord2d br)
+    {
+        return r[0].x <= br.x + EPS && r[1].x >= ul.x - EPS && r[0].y <= br.y + EPS && r[1].y >= ul.y - EPS;
+    }
+
+    /**
+     * Whether the hitbox turned by the angle and put at rc collides with an
+     * obstacle or an earlier placement. [ul, br] is the reach of the placed
+     * hitbox and [bul, bbr] its bounding box. The box itself is only built
+     * when it has to be tested exactly.
+     */
+    private boolean collides(NHitBox hitBox, double angle, boolean ortho, Coord2d rc, Coord2d ul, Coord2d br, Coord2d bul, Coord2d bbr)
+    {
+        NHitBoxD box = null;
+        for (int i = 0; i < placed.size(); i++)
+        {
+            NHitBoxD p = placed.get(i);
+            if (overlap(reaches.get(i), ul, br))
+            {
+                if (box == null)
+                    box = new NHitBoxD(hitBox.begin, hitBox.end, rc, angle);
+                if (p.intersects(box, false))
+                    return true;
+            }
+        }
+        Coord2d rul = ul.sub(org), rbr = br.sub(org);
+        double fx0 = Math.floor(rul.x - EPS), fy0 = Math.floor(rul.y - EPS), fx1 = Math.floor(rbr.x + EPS), fy1 = Math.floor(rbr.y + EPS);
+        if (inside(fx0, fy0, fx1, fy1))
+        {
+            if (sum(touched, (int) fx0, (int) fy0, (int) fx1, (int) fy1) == 0)
+                return false;
+            if (ortho)
+            {
+                Coord2d sul = bul.sub(org), sbr = bbr.sub(org);
+                int sx0 = (int) Math.ceil(sul.x + EPS), sy0 = (int) Math.ceil(sul.y + EPS);
+                int sx1 = (int) Math.floor(sbr.x - EPS) - 1, sy1 = (int) Math.floor(sbr.y - EPS) - 1;
+                if (sx0 >= 0 && sy0 >= 0 && sx1 < w && sy1 < h && sum(solid, sx0, sy0, sx1, sy1) > 0)
+                    return true;
+            }
+        }
+        if (box == null)
+            box = new NHitBoxD(hitBox.begin, hitBox.end, rc, angle);
+        for (int y = cy(fy0) / BUCKET; y <= cy(fy1) / BUCKET; y++)
+        {
+            for (int x = cx(fx0) / BUCKET; x <= cx(fx1) / BUCKET; x++)
+            {
+                for (NHitBoxD ob : buckets.get(y * bw + x))
+                {
+                    if (ob.intersects(box, false))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First free position for the hitbox turned by the angle, scanning the
+     * area in unit steps column by column, or null if there is none
+     */
+    public Coord2d find(NHitBox hitBox, double angle)
+    {
+        NHitBoxD shape = new NHitBoxD(hitBox.begin, hitBox.end, Coord2d.of(0), angle);
+        Coord2d rotatedUL = shape.getCircumscribedUL();
+        Coord2d rotatedBR = shape.getCircumscribedBR();
+        Coord2d[] r = reach(shape);
+        Coord2d asz = area.b.sub(area.a);
+        if (asz.x < rotatedBR.x - rotatedUL.x || asz.y < rotatedBR.y - rotatedUL.y)
+            return null;
+        Coord inchMax = asz.floor();
+        Coord margin = rotatedBR.sub(rotatedUL).floor(2, 2);
+        for (int i = margin.x; i <= inchMax.x - margin.x; i++)
+        {
+            for (int j = margin.y; j <= inchMax.y - margin.y; j++)
+            {
+                Coord2d rc = area.a.add(i, j);
+                if (!collides(hitBox, angle, shape.ortho, rc, rc.add(r[0]), rc.add(r[1]), rc.add(rotatedUL), rc.add(rotatedBR)))
+                    return rc;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Like {@link #find}, and reserves the place found for later queries
+     */
+    public Coord2d place(NHitBox hitBox, double angle)
+    {
+        Coord2d ret = find(hitBox, angle);
+        if (ret != null)
+        {
+            NHitBoxD box = new NHitBoxD(hitBox.begin, hitBox.end, ret, angle);
+            placed.add(box);
+            reaches.add(reach(box));
+        }
+        return ret;
+    }
+
+    /**
+     * Places up to n objects of the same hitbox in one pass
+     */
+    public List<Coord2d> place(NHitBox hitBox, double angle, int n)
+    {
+        List<Coord2d> ret = new ArrayList<>();
+        Coord2d pos;
+        while (ret.size() < n && (pos = place(hitBox, angle)) != null)
+            ret.add(pos);
+        return ret;
+    }
+}
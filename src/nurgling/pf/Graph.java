@@ -9,6 +9,8 @@ import java.util.*;
 
 public class Graph implements Runnable
 {
+    /* Waypoints out of sight looked past before settling for the farthest one in sight */
+    private static final int LOOKAHEAD = 6;
 
     @Override
     public void run()
@@ -258,77 +260,69 @@ public class Graph implements Runnable
                 path.removeAll(for_remove);
             }
             if (!path.isEmpty()) {
-                LinkedList<Vertex> for_remove = new LinkedList<>();
-                int shift = 2;
-                for (int i = -1; i < path.size(); i++) {
-                    int di = 0;
-                    while (i + shift < path.size()) {
-                        Coord2d first = (i != -1) ? Utils.pfGridToWorld(path.get(i).pos) : NUtils.player().rc;
-                        Coord2d second = Utils.pfGridToWorld(path.get(i + shift).pos);
-                        Coord2d fsdir = second.sub(first);
-                        Coord2d center = fsdir.div(2).add(first);
-                        int hlen = (int) Math.ceil(fsdir.len() / 2);
-                        //TODO remake with beam box
-                        NHitBox hb = new NHitBox(new Coord(-hlen,-2 ), new Coord(hlen, 2));
-                        ArrayList<Coord> data;
-                        if ((data = map.checkCA(new CellsArray(hb, fsdir.curAngle(), center))).isEmpty()) {
-                            for_remove.add(path.get(i + shift - 1));
-                            shift++;
-                            di++;
+                /* String pulling: from each waypoint go straight to the farthest one in sight,
+                 * looking on past waypoints out of sight for a few more */
+                ArrayList<Vertex> pts = new ArrayList<>(path);
+                LinkedList<Vertex> pulled = new LinkedList<>();
+                Coord2d from = (player != null) ? player.rc : Utils.pfGridToWorld(pts.get(0).pos);
+                int i = -1;
+                while (i < pts.size() - 1) {
+                    int best = i + 1;
+                    int misses = 0;
+                    for (int k = i + 2; k < pts.size() && misses < LOOKAHEAD; k++) {
+                        if (inSight(map, from, Utils.pfGridToWorld(pts.get(k).pos))) {
+                            best = k;
+                            misses = 0;
                         } else {
-                            NHitBoxD hbd = new NHitBoxD(hb.begin, hb.end, center, fsdir.curAngle());
-                            boolean isFree = true;
-                            ArrayList<Coord> corners = new ArrayList<>();
-                            for(Coord2d c2d : hbd.c)
-                            {
-                                corners.add(Utils.toPfGrid(c2d).sub(map.begin));
-                            }
-                            for(Coord datac : data)
-                            {
-                                if(corners.contains(datac))
-                                {
-                                    for (long id : map.cells[datac.x][datac.y].content)
-                                    {
-                                        Gob g = Finder.findGob(id);
-                                        if(g!=null) {
-                                            if (hbd.intersects(new NHitBoxD(g.ngob.hitBox.begin, g.ngob.hitBox.end, g.rc, g.a),true)) {
-                                                isFree = false;
-                                                break;
-                                            }
-                                        }
-                                    }
-                                    if(!isFree)
-                                        break;
-                                }
-                                else
-                                {
-                                    isFree = false;
-                                    break;
-                                }
-                            }
-
-                            if(isFree)
-                            {
-                                for_remove.add(path.get(i + shift - 1));
-                                shift++;
-                                di++;
-                            }
-                            else {
-                                shift = 2;
-                                i += di;
-                                break;
-                            }
+                            misses++;
                         }
                     }
+                    pulled.add(pts.get(best));
+                    from = Utils.pfGridToWorld(pts.get(best).pos);
+                    i = best;
                 }
-                path.removeAll(for_remove);
-//                if (player != null && Utils.pfGridToWorld(path.get(0).pos).dist(player.rc) <= 1)
-//                    path.remove(0);
+                path.clear();
+                path.addAll(pulled);
             }
         return path;
     }
 
-    public class Vertex extends NPFMap.Cell
+    /**
+     * Whether the walker can go straight between the points: a beam between
+     * them crosses no closed cell, save for cells at its corners where it
+     * misses the hitboxes of the gobs in them
+     */
+    private static boolean inSight(NPFMap map, Coord2d first, Coord2d second)
+    {
+        Coord2d fsdir = second.sub(first);
+        Coord2d center = fsdir.div(2).add(first);
+        int hlen = (int) Math.ceil(fsdir.len() / 2);
+        //TODO remake with beam box
+        NHitBox hb = new NHitBox(new Coord(-hlen,-2 ), new Coord(hlen, 2));
+        ArrayList<Coord> data;
+        if ((data = map.checkCA(new CellsArray(hb, fsdir.curAngle(), center))).isEmpty())
+            return true;
+        NHitBoxD hbd = new NHitBoxD(hb.begin, hb.end, center, fsdir.curAngle());
+        ArrayList<Coord> corners = new ArrayList<>();
+        for(Coord2d c2d : hbd.c)
+        {
+            corners.add(Utils.toPfGrid(c2d).sub(map.begin));
+        }
+        for(Coord datac : data)
+        {
+            if(!corners.contains(datac))
+                return false;
+            for (long id : map.cells[datac.x][datac.y].content)
+            {
+                Gob g = Finder.findGob(id);
+                if(g!=null && hbd.intersects(new NHitBoxD(g.ngob.hitBox.begin, g.ngob.hitBox.end, g.rc, g.a),true))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    public static class Vertex extends NPFMap.Cell
     {
         double dist;
         int len = -1;
@@ -4,15 +4,27 @@ import haven.*;
 import haven.Window;
 import nurgling.*;
 import nurgling.tasks.GateDetector;
+import nurgling.tools.TileClass;
 
 import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 public class NPFMap
 {
     public boolean waterMode = false;
     public boolean gatesAlwaysClosed = false;
+    /* Build large maps in parallel stripes */
+    public boolean parallelBuild = false;
+    private static final int PARALLEL_SIZE = 64;
     public Cell[][] cells;
 
     public boolean lastMul = false;
@@ -253,6 +265,99 @@ public class NPFMap
         this.waterMode = waterMode;
     }
 
+    /**
+     * Map over given cell values, such as recorded ones, built without
+     * consulting the game; used by offline tools and benchmarks
+     */
+    public NPFMap(Coord begin, short[][] vals)
+    {
+        size = vals.length;
+        dsize = size / 2;
+        this.begin = begin;
+        this.end = begin.add(size - 1, size - 1);
+        cells = new Cell[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                cells[i][j] = new Cell(begin.add(i, j));
+                cells[i][j].val = vals[i][j];
+            }
+        }
+    }
+
+    private NPFMap(NPFMap from)
+    {
+        waterMode = from.waterMode;
+        gatesAlwaysClosed = from.gatesAlwaysClosed;
+        lastMul = from.lastMul;
+        begin = from.begin;
+        end = from.end;
+        dsize = from.dsize;
+        size = from.size;
+        currentTransport = from.currentTransport;
+        bad = from.bad;
+        cells = new Cell[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                Cell c = from.cells[i][j];
+                Cell n = cells[i][j] = new Cell(c.pos);
+                n.val = c.val;
+                n.fullVal = c.fullVal;
+                if (!c.content.isEmpty())
+                    n.content.addAll(c.content);
+            }
+        }
+    }
+
+    /**
+     * Copy of the map, for searches that mark cells of a map built once
+     */
+    public NPFMap copy()
+    {
+        return new NPFMap(this);
+    }
+
+    /**
+     * Whether the point lies on a cell of the map inside its border
+     */
+    public boolean covers(Coord2d pos)
+    {
+        Coord c = Utils.toPfGrid(pos).sub(begin);
+        return c.x > 0 && c.y > 0 && c.x < size - 1 && c.y < size - 1;
+    }
+
+    /**
+     * Writes the cell values as text: a header line with the origin and
+     * size, then one line of digits per column of cells
+     */
+    public void write(Path path) throws IOException
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(begin.x + " " + begin.y + " " + size + "\n");
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++)
+                    out.write(Character.forDigit(cells[i][j].val & 0xf, 16));
+                out.write('\n');
+            }
+        }
+    }
+
+    public static NPFMap read(Path path) throws IOException
+    {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String[] hdr = in.readLine().trim().split(" ");
+            int size = Integer.parseInt(hdr[2]);
+            short[][] vals = new short[size][size];
+            for (int i = 0; i < size; i++) {
+                String line = in.readLine();
+                if (line == null || line.length() < size)
+                    throw new IOException("Truncated path finder map: " + path);
+                for (int j = 0; j < size; j++)
+                    vals[i][j] = (short) Character.digit(line.charAt(j), 16);
+            }
+            return new NPFMap(new Coord(Integer.parseInt(hdr[0]), Integer.parseInt(hdr[1])), vals);
+        }
+    }
+
     public Coord getBegin()
     {
         return begin;
@@ -282,6 +387,11 @@ public class NPFMap
                 currentTransport = fl.tgt;
             }
         }
+        if(parallelBuild && size >= PARALLEL_SIZE)
+        {
+            buildParallel();
+            return;
+        }
         synchronized (NUtils.getGameUI().ui.sess.glob.oc)
         {
 
@@ -291,7 +401,20 @@ public class NPFMap
                     addGob(gob);
             }
         }
-        for (int i = 0; i < size; i += 1)
+        markTiles(NUtils.getGameUI().ui.sess.glob.map, 1, size - 1);
+    }
+
+    /* Marks the free cells of columns [i0, i1) that lie on tiles closed to the walker */
+    private void markTiles(MCache map, int i0, int i1)
+    {
+        if (i1 <= i0)
+            return;
+        /* Each tile is shared by the corners of several cells, so classes are looked up once per tile */
+        Coord tul = Utils.pfGridToWorld(begin.add(i0, 0)).sub(MCache.tileqsz).div(MCache.tilesz).floor();
+        Coord tbr = Utils.pfGridToWorld(begin.add(i1 - 1, size - 1)).add(MCache.tileqsz).div(MCache.tilesz).floor();
+        int tw = tbr.x - tul.x + 1;
+        short[] classes = new short[tw * (tbr.y - tul.y + 1)];
+        for (int i = i0; i < i1; i += 1)
         {
             for (int j = 0; j < size; j += 1)
             {
@@ -305,15 +428,23 @@ public class NPFMap
                     cand.add((Utils.pfGridToWorld(cells[i][j].pos).add(new Coord2d(MCache.tileqsz.x,MCache.tileqsz.y))).div(MCache.tilesz).floor());
 
                     for(Coord c : cand) {
-                        String name = NUtils.getGameUI().ui.sess.glob.map.tilesetname(NUtils.getGameUI().ui.sess.glob.map.gettile(c));
+                        int cls;
+                        int k = (c.y - tul.y) * tw + (c.x - tul.x);
+                        if (c.x < tul.x || c.y < tul.y || c.x > tbr.x || c.y > tbr.y) {
+                            cls = map.tileclass.at(c);
+                        } else {
+                            if (classes[k] == 0)
+                                classes[k] = (short) (map.tileclass.at(c) + 1);
+                            cls = classes[k] - 1;
+                        }
                         if(!waterMode) {
-                            if (name != null && (name.startsWith("gfx/tiles/cave") || name.startsWith("gfx/tiles/rocks") || name.equals("gfx/tiles/deep") || name.equals("gfx/tiles/odeep") || name.startsWith("gfx/tiles/nil"))) {
+                            if (TileClass.impassable(cls)) {
                                 cells[i][j].val = 2;
                             }
                         }
                         else
                         {
-                            if (name != null && !(name.startsWith("gfx/tiles/water") || name.startsWith("gfx/tiles/owater") || name.equals("gfx/tiles/deep") || name.equals("gfx/tiles/odeep"))) {
+                            if (!TileClass.navigable(cls)) {
                                 cells[i][j].val = 2;
                             }
                         }
@@ -323,6 +454,180 @@ public class NPFMap
         }
     }
 
+    /**
+     * Hitbox of a gob as it stood when the map was built. Gobs that move
+     * keep their geometry, to be rasterised off the object cache lock; the
+     * others carry the cells they cache.
+     */
+    private static class Shape
+    {
+        final long id;
+        final NHitBox hb;
+        final Coord2d rc;
+        final double a;
+        CellsArray ca;
+
+        Shape(long id, CellsArray ca)
+        {
+            this.id = id;
+            this.hb = null;
+            this.rc = null;
+            this.a = 0;
+            this.ca = ca;
+        }
+
+        Shape(long id, NHitBox hb, Coord2d rc, double a)
+        {
+            this.id = id;
+            this.hb = hb;
+            this.rc = rc;
+            this.a = a;
+        }
+    }
+
+    /* The gobs addGob would add, taken under the object cache lock */
+    private List<Shape> snapshot()
+    {
+        List<Shape> ret = new ArrayList<>();
+        Gob player = NUtils.player();
+        if (player == null)
+            return ret;
+        synchronized (NUtils.getGameUI().ui.sess.glob.oc)
+        {
+            for (Gob gob : NUtils.getGameUI().ui.sess.glob.oc)
+            {
+                if (gob.id == currentTransport || gob.id == player.id || gob.ngob == null || gob.ngob.hitBox == null || gob.getattr(Following.class) != null)
+                    continue;
+                if (gob.ngob.isDynamic() && !(gatesAlwaysClosed && isGate(gob)))
+                {
+                    ret.add(new Shape(gob.id, gob.ngob.hitBox, gob.rc, gob.a));
+                }
+                else
+                {
+                    CellsArray ca = getCa(gob);
+                    if (ca != null)
+                        ret.add(new Shape(gob.id, ca));
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Builds the map like {@link #build}, in parallel: the gobs are taken
+     * first, the hitboxes of moving ones are rasterised apart, and then each
+     * stripe of columns takes the gobs over it and the tiles under it.
+     * Stripes write only their own cells, so they need no locks and the
+     * cells end up as the sequential build leaves them.
+     */
+    private void buildParallel()
+    {
+        List<Shape> shapes = snapshot();
+        MCache map = NUtils.getGameUI().ui.sess.glob.map;
+        ForkJoinPool.commonPool().invoke(new Rasterise(shapes, 0, shapes.size()));
+        Stripe root = new Stripe(map, shapes, 1, size - 1);
+        ForkJoinPool.commonPool().invoke(root);
+        if (root.failed != null)
+            throw root.failed;
+    }
+
+    private static class Rasterise extends RecursiveAction
+    {
+        private static final int LEAF = 16;
+        final List<Shape> shapes;
+        final int from, to;
+
+        Rasterise(List<Shape> shapes, int from, int to)
+        {
+            this.shapes = shapes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= LEAF)
+            {
+                for (int k = from; k < to; k++)
+                {
+                    Shape s = shapes.get(k);
+                    if (s.ca == null)
+                        s.ca = new CellsArray(s.hb, s.a, s.rc);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Rasterise(shapes, from, mid), new Rasterise(shapes, mid, to));
+        }
+    }
+
+    private class Stripe extends RecursiveAction
+    {
+        private static final int LEAF = 16;
+        final MCache map;
+        final List<Shape> shapes;
+        final int i0, i1;
+        /* Tile lookups may find a grid not loaded yet; the first such failure is thrown from the build */
+        RuntimeException failed = null;
+
+        Stripe(MCache map, List<Shape> shapes, int i0, int i1)
+        {
+            this.map = map;
+            this.shapes = shapes;
+            this.i0 = i0;
+            this.i1 = i1;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (i1 - i0 <= LEAF)
+            {
+                try
+                {
+                    markGobs(shapes, i0, i1);
+                    markTiles(map, i0, i1);
+                }
+                catch (RuntimeException e)
+                {
+                    failed = e;
+                }
+                return;
+            }
+            int mid = (i0 + i1) >>> 1;
+            Stripe a = new Stripe(map, shapes, i0, mid), b = new Stripe(map, shapes, mid, i1);
+            invokeAll(a, b);
+            failed = (a.failed != null) ? a.failed : b.failed;
+        }
+    }
+
+    /* Marks the cells of columns [i0, i1) under the hitboxes, in the order addGob would */
+    private void markGobs(List<Shape> shapes, int i0, int i1)
+    {
+        for (Shape s : shapes)
+        {
+            CellsArray ca = s.ca;
+            int x0 = Math.max(i0, ca.begin.x - begin.x), x1 = Math.min(Math.min(i1, size - 1), ca.begin.x - begin.x + ca.x_len);
+            if (x0 >= x1)
+                continue;
+            for (int ii = x0; ii < x1; ii++)
+            {
+                int i = ii + begin.x - ca.begin.x;
+                for (int j = 0; j < ca.y_len; j++)
+                {
+                    int jj = j + ca.begin.y - begin.y;
+                    if (jj > 0 && (jj + 1) < size && ca.cells[i][j] != 0)
+                    {
+                        if (cells[ii][jj].val != 1)
+                            cells[ii][jj].val = ca.cells[i][j];
+                        cells[ii][jj].content.add(s.id);
+                    }
+                }
+            }
+        }
+    }
+
     public ArrayList<Coord> checkCA(CellsArray ca) {
         ArrayList<Coord> result = new ArrayList<>();
         if ((ca.begin.x >= begin.x && ca.begin.x <= end.x ||
@@ -413,6 +718,40 @@ public class NPFMap
 
             }, new Coord(UI.scale(100), UI.scale(100)));
             NUtils.getUI().bind(wnd, 7002);
+            if(NConfig.getBool(NConfig.Key.recordpfmap))
+                record(size, cells);
+        }
+    }
+
+    /* Most recorded maps kept; the oldest are deleted past it */
+    private static final int RECORDED = 100;
+
+    /**
+     * Keeps a copy of a debug-printed map in the pfmaps directory, where the
+     * path finder benchmarks pick recorded maps up from, when recording is
+     * turned on. Only the latest {@link #RECORDED} maps are kept.
+     */
+    private static void record(int size, Cell[][] cells)
+    {
+        try {
+            Path dir = haven.Utils.pj(HashDirCache.findbase(), "pfmaps");
+            Files.createDirectories(dir);
+            short[][] vals = new short[size][size];
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++)
+                    vals[i][j] = cells[i][j].val;
+            new NPFMap(cells[0][0].pos, vals).write(dir.resolve(System.currentTimeMillis() + ".pfmap"));
+            List<Path> maps = new ArrayList<>();
+            try (DirectoryStream<Path> ls = Files.newDirectoryStream(dir, "*.pfmap")) {
+                for (Path f : ls)
+                    maps.add(f);
+            }
+            /* Named by the time of recording, so the oldest sort first */
+            Collections.sort(maps);
+            for (int i = 0; i < maps.size() - RECORDED; i++)
+                Files.deleteIfExists(maps.get(i));
+        } catch (IOException e) {
+            System.err.println("Failed to record path finder map: " + e.getMessage());
         }
     }
 
@@ -0,0 +1,98 @@
+package nurgling.pf;
+
+import haven.*;
+import nurgling.NUtils;
+
+/**
+ * Path finder map of a fixed region, built once and handed out as copies to
+ * the searches of many legs. Before a copy is handed out, the gobs that
+ * could obstruct the region are summed up into a stamp; the map is only
+ * built again when the stamp differs from the one it was built with, that
+ * is when such a gob appeared, left, moved, turned or changed its state.
+ */
+public class SharedPFMap
+{
+    /* Reach of hitboxes of gobs standing outside the region */
+    private static final double MARGIN = 50;
+
+    final Coord2d a, b;
+    NPFMap base = null;
+    long stamp;
+    int builds = 0;
+
+    /**
+     * @param a, b corners of the region the searches start and end in
+     */
+    public SharedPFMap(Coord2d a, Coord2d b)
+    {
+        this.a = a;
+        this.b = b;
+    }
+
+    public SharedPFMap(Pair<Coord2d, Coord2d> region)
+    {
+        this(region.a, region.b);
+    }
+
+    /**
+     * Copy of the map, built again first if its obstacles changed, or null
+     * if the map does not cover both points
+     */
+    public synchronized NPFMap map(Coord2d from, Coord2d to)
+    {
+        if (NUtils.player() == null)
+            return null;
+        if (base == null || stamp() != stamp)
+        {
+            NPFMap map = new NPFMap(a, b, 1);
+            if (map.bad)
+                return null;
+            map.parallelBuild = true;
+            map.build();
+            base = map;
+            stamp = stamp();
+            builds++;
+        }
+        if (!base.covers(from) || !base.covers(to))
+            return null;
+        return base.copy();
+    }
+
+    /**
+     * Number of times the map was built
+     */
+    public synchronized int builds()
+    {
+        return builds;
+    }
+
+    private long stamp()
+    {
+        Gob player = NUtils.player();
+        long transport = -1;
+        Following fl;
+        if (player != null && (fl = player.getattr(Following.class)) != null)
+            transport = fl.tgt;
+        Coord2d ul = Utils.pfGridToWorld((base != null) ? base.begin : Utils.toPfGrid(a)).sub(MARGIN, MARGIN);
+        Coord2d br = Utils.pfGridToWorld((base != null) ? base.end : Utils.toPfGrid(b)).add(MARGIN, MARGIN);
+        long ret = 17;
+        synchronized (NUtils.getGameUI().ui.sess.glob.oc)
+        {
+            for (Gob gob : NUtils.getGameUI().ui.sess.glob.oc)
+            {
+                if (gob.ngob == null || gob.ngob.hitBox == null || gob.id == transport || (player != null && gob.id == player.id) || gob.getattr(Following.class) != null)
+                    continue;
+                if (gob.rc.x < ul.x || gob.rc.y < ul.y || gob.rc.x > br.x || gob.rc.y > br.y)
+                    continue;
+                long h = gob.id;
+                h = h * 31 + Double.hashCode(gob.rc.x);
+                h = h * 31 + Double.hashCode(gob.rc.y);
+                h = h * 31 + Double.hashCode(gob.a);
+                h = h * 31 + gob.ngob.getModelAttribute();
+                /* Order-independent, as the gobs are not kept in any order */
+                ret += h * 0x9e3779b97f4a7c15L ^ (h >>> 29);
+            }
+        }
+        return ret;
+    }
+}
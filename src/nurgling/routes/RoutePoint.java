@@ -115,12 +115,15 @@ public class RoutePoint {
     }
 
     public void addReachableAreas() throws InterruptedException {
-        for (NArea area: NUtils.getGameUI().map.glob.map.areas.values())
+        Coord2d myrc = toCoord2d(NUtils.getGameUI().map.glob.map);
+        if(myrc == null)
+            return;
+        /* Areas nearer than the cutoff below by their edges; the corners are never nearer */
+        for (NArea area: NUtils.getGameUI().map.glob.map.areaIndex.near(myrc, 250))
         {
             Pair<Coord2d,Coord2d> rcArea = area.getRCArea();
             if(rcArea!=null)
             {
-                Coord2d myrc = toCoord2d(NUtils.getGameUI().map.glob.map);
                 ArrayList<Gob> gobs = Finder.findGobs(area);
                 boolean isReachable = false;
 
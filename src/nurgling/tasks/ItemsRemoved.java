@@ -0,0 +1,43 @@
+package nurgling.tasks;
+
+import nurgling.NUtils;
+
+import java.util.Collection;
+
+/**
+ * Waits until all of the given item widgets are gone. Used to wait once for
+ * a batch of transfers instead of once per item; the frame budget grows
+ * with the size of the batch.
+ */
+public class ItemsRemoved extends NTask
+{
+    final Collection<Integer> ids;
+    int left;
+
+    public ItemsRemoved(Collection<Integer> ids)
+    {
+        this.ids = ids;
+        this.left = ids.size();
+        this.maxCounter = 200 + 20 * ids.size();
+    }
+
+    @Override
+    public boolean check()
+    {
+        left = 0;
+        for (int id : ids)
+        {
+            if (NUtils.getUI().getwidget(id) != null)
+                left++;
+        }
+        return left == 0;
+    }
+
+    /**
+     * Number of the items still present at the last check
+     */
+    public int left()
+    {
+        return left;
+    }
+}
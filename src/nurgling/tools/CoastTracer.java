@@ -0,0 +1,206 @@
+package nurgling.tools;
+
+import haven.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Traces the edge of a body of tiles of one class, such as a band of deep
+ * ocean, over the map grids that are loaded. The trace keeps a wall, a tile
+ * of any other class, on one hand, and ends where it runs into a grid that
+ * is not loaded yet, after {@link #LIMIT} tiles, or when it comes back to
+ * where it started.
+ * <p>
+ * The tiles of a trace are simplified into long straight legs, each of which
+ * only crosses tiles of the traced class, so that a walker can follow the
+ * coast with one movement per leg instead of one per tile.
+ */
+public class CoastTracer
+{
+    /** Most tiles traced at once */
+    public static final int LIMIT = 400;
+    /** Most tiles covered by one leg */
+    public static final int SEGMENT = 40;
+    /* Half width of the walker, in tiles, kept clear along a leg */
+    private static final double HALFWIDTH = 0.3;
+    private static final double STEP = 0.25;
+    /* Farthest a leg may stray from the tiles it stands for, in tiles */
+    private static final double TOLERANCE = 1.5;
+
+    public static class Trace
+    {
+        public final List<Coord> tiles = new ArrayList<>();
+        /**
+         * Direction of the last step, to carry on from the last tile with
+         */
+        public Coord heading;
+        public boolean closed = false;
+    }
+
+    final TileClass classes;
+    final int mask;
+    final int target;
+    final boolean right;
+
+    /**
+     * @param mask   bits of the tile class that are compared
+     * @param target value of the masked bits of the tiles to walk on
+     * @param right  whether the wall is kept on the right hand, as the map
+     *               is drawn
+     */
+    public CoastTracer(TileClass classes, int mask, int target, boolean right)
+    {
+        this.classes = classes;
+        this.mask = mask;
+        this.target = target;
+        this.right = right;
+    }
+
+    /**
+     * Whether the tile is of the traced class. Throws {@link Loading} if its
+     * grid is not loaded.
+     */
+    public boolean open(Coord tc)
+    {
+        return (classes.at(tc) & mask) == target;
+    }
+
+    /**
+     * Direction of the wall hand when heading in the given direction
+     */
+    public Coord side(Coord d)
+    {
+        return right ? Coord.of(-d.y, d.x) : Coord.of(d.y, -d.x);
+    }
+
+    /**
+     * Follows the wall from the given tile, heading in the given direction
+     */
+    public Trace trace(Coord start, Coord heading)
+    {
+        Trace ret = new Trace();
+        ret.heading = heading;
+        ret.tiles.add(start);
+        Coord p = start, d = heading;
+        try
+        {
+            for (int n = 0; n < LIMIT; n++)
+            {
+                Coord s = side(d);
+                Coord next = null;
+                for (Coord c : new Coord[]{s, d, s.inv(), d.inv()})
+                {
+                    if (open(p.add(c)))
+                    {
+                        next = c;
+                        break;
+                    }
+                }
+                if (next == null)
+                    break;
+                p = p.add(next);
+                d = next;
+                ret.heading = d;
+                if (p.equals(start) && d.equals(heading))
+                {
+                    ret.closed = true;
+                    break;
+                }
+                ret.tiles.add(p);
+            }
+        }
+        catch (Loading l)
+        {
+            /* The trace ends at the edge of the loaded grids */
+        }
+        return ret;
+    }
+
+    /**
+     * Turning points of the trace, tile centres in world coordinates, the
+     * first tile of the trace left out
+     */
+    public List<Coord2d> simplify(List<Coord> tiles)
+    {
+        List<Coord2d> ret = new ArrayList<>();
+        int anchor = 0;
+        for (int j = 1; j < tiles.size(); j++)
+        {
+            if (j - anchor > SEGMENT || !near(tiles, anchor, j) || !clear(tiles.get(anchor), tiles.get(j)))
+            {
+                if (j - 1 > anchor)
+                {
+                    anchor = j - 1;
+                    ret.add(centre(tiles.get(anchor)));
+                }
+                else
+                {
+                    /* Neighbouring tiles, which are always joined */
+                    anchor = j;
+                    ret.add(centre(tiles.get(anchor)));
+                }
+            }
+        }
+        if (anchor < tiles.size() - 1)
+            ret.add(centre(tiles.get(tiles.size() - 1)));
+        return ret;
+    }
+
+    /* Whether the tiles between two of the trace lie close to the line between them, so that a leg
+     * does not cut across a bay far from the coast */
+    private static boolean near(List<Coord> tiles, int from, int to)
+    {
+        Coord a = tiles.get(from), b = tiles.get(to);
+        double dx = b.x - a.x, dy = b.y - a.y;
+        double len = Math.sqrt(dx * dx + dy * dy);
+        if (len == 0)
+            return true;
+        for (int i = from + 1; i < to; i++)
+        {
+            Coord p = tiles.get(i);
+            if (Math.abs((p.x - a.x) * dy - (p.y - a.y) * dx) / len > TOLERANCE)
+                return false;
+        }
+        return true;
+    }
+
+    public static Coord2d centre(Coord tc)
+    {
+        return tc.mul(MCache.tilesz).add(MCache.tilehsz);
+    }
+
+    /**
+     * Whether the walker can go straight from the centre of one tile to the
+     * centre of the other over tiles of the traced class only
+     */
+    public boolean clear(Coord a, Coord b)
+    {
+        Coord2d pa = Coord2d.of(a.x + 0.5, a.y + 0.5);
+        Coord2d pb = Coord2d.of(b.x + 0.5, b.y + 0.5);
+        int n = (int) Math.ceil(pa.dist(pb) / STEP);
+        Coord last = null;
+        try
+        {
+            for (int i = 0; i <= n; i++)
+            {
+                double t = (n == 0) ? 0 : (double) i / n;
+                double x = pa.x + (pb.x - pa.x) * t, y = pa.y + (pb.y - pa.y) * t;
+                for (int k = 0; k < 4; k++)
+                {
+                    Coord tc = Coord.of((int) Math.floor(x + (((k & 1) == 0) ? -HALFWIDTH : HALFWIDTH)), (int) Math.floor(y + (((k & 2) == 0) ? -HALFWIDTH : HALFWIDTH)));
+                    if (tc.equals(last))
+                        continue;
+                    if (!open(tc))
+                        return false;
+                    last = tc;
+                }
+            }
+        }
+        catch (Loading l)
+        {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,215 @@
+package nurgling.tools;
+
+import haven.*;
+import nurgling.NUtils;
+import nurgling.pf.SharedPFMap;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Coverage plan of a field for the field actions. The field is swept in
+ * columns of windows, up one column and down the next, in the same order
+ * the actions have always walked it. The gobs of the field are taken once,
+ * when the plan is made, so that windows with nothing to do can be left out
+ * without looking at the field again for each of them, and all legs of the
+ * sweep find their paths on one shared path finder map.
+ */
+public class FieldPlan
+{
+    public static class Window
+    {
+        /**
+         * Tiles of the window, both corners included
+         */
+        public final Area area;
+        /**
+         * Whether the sweep goes towards larger x
+         */
+        public final boolean rev;
+        /**
+         * Whether the window's column is walked towards larger y
+         */
+        public final boolean revdir;
+        public final int column;
+
+        Window(Area area, boolean rev, boolean revdir, int column)
+        {
+            this.area = area;
+            this.rev = rev;
+            this.revdir = revdir;
+            this.column = column;
+        }
+    }
+
+    /**
+     * The field, its lower right corner excluded
+     */
+    public final Area field;
+    public final List<Window> windows;
+    public final SharedPFMap pfmap;
+    final String[][] tilesets;
+    final List<Gob>[][] gobs;
+
+    /**
+     * Plans a sweep of the field from the given corner tile in columns of
+     * the given width, with windows two tiles high
+     */
+    public FieldPlan(Area field, Coord start, int width)
+    {
+        this.field = field;
+        this.windows = sweep(field, start, width);
+        this.pfmap = new SharedPFMap(field.ul.sub(1, 1).mul(MCache.tilesz), field.br.add(1, 1).mul(MCache.tilesz));
+        Coord sz = field.sz();
+        tilesets = new String[sz.x][sz.y];
+        gobs = snapshot(field);
+        MCache map = NUtils.getGameUI().ui.sess.glob.map;
+        for (int i = 0; i < sz.x; i++)
+        {
+            for (int j = 0; j < sz.y; j++)
+            {
+                Resource res = map.tilesetr(map.gettile(field.ul.add(i, j)));
+                tilesets[i][j] = (res == null) ? null : res.name;
+            }
+        }
+    }
+
+    /**
+     * Nearest corner tile of the field to start a sweep from
+     */
+    public static Coord start(Area field, Coord2d from)
+    {
+        return (from.dist(field.br.mul(MCache.tilesz)) < from.dist(field.ul.mul(MCache.tilesz))) ? field.br.sub(1, 1) : field.ul;
+    }
+
+    /**
+     * Windows of a sweep of the field from the given corner tile
+     */
+    public static List<Window> sweep(Area field, Coord start, int width)
+    {
+        List<Window> ret = new ArrayList<>();
+        Coord pos = new Coord(start);
+        boolean rev = pos.equals(field.ul);
+        boolean revdir = rev;
+        int column = 0;
+        while (rev ? (pos.x <= field.br.x - 1) : (pos.x >= field.ul.x))
+        {
+            int ex = rev ? Math.min(pos.x + width - 1, field.br.x - 1) : Math.max(pos.x - width + 1, field.ul.x);
+            if (revdir)
+            {
+                while (pos.y <= field.br.y - 1)
+                {
+                    ret.add(new Window(new Area(pos, new Coord(ex, Math.min(pos.y + 1, field.br.y - 1)), true), rev, true, column));
+                    pos.y += 2;
+                }
+                pos.y = field.br.y - 1;
+            }
+            else
+            {
+                while (pos.y >= field.ul.y)
+                {
+                    ret.add(new Window(new Area(pos, new Coord(ex, Math.max(pos.y - 1, field.ul.y)), true), rev, false, column));
+                    pos.y -= 2;
+                }
+                pos.y = field.ul.y;
+            }
+            revdir = !revdir;
+            pos.x += rev ? width : -width;
+            column++;
+        }
+        return ret;
+    }
+
+    /* Gobs on each tile of the field, as Finder.findGobs(Coord) finds them */
+    @SuppressWarnings("unchecked")
+    private static List<Gob>[][] snapshot(Area field)
+    {
+        Coord sz = field.sz();
+        List<Gob>[][] ret = new List[sz.x][sz.y];
+        for (int i = 0; i < sz.x; i++)
+            for (int j = 0; j < sz.y; j++)
+                ret[i][j] = new ArrayList<>();
+        long plid = NUtils.playerID();
+        synchronized (NUtils.getGameUI().ui.sess.glob.oc)
+        {
+            for (Gob gob : NUtils.getGameUI().ui.sess.glob.oc)
+            {
+                if (gob instanceof OCache.Virtual || gob.attr.isEmpty() || gob.getClass().getName().contains("GlobEffector") || gob.id == plid)
+                    continue;
+                /* Tiles are closed squares, so a gob on an edge is on both sides of it */
+                Coord2d t = gob.rc.div(MCache.tilesz);
+                int x0 = (int) Math.floor(t.x), y0 = (int) Math.floor(t.y);
+                int x1 = (t.x == x0) ? x0 - 1 : x0, y1 = (t.y == y0) ? y0 - 1 : y0;
+                for (int x = x1; x <= x0; x++)
+                {
+                    for (int y = y1; y <= y0; y++)
+                    {
+                        if (x >= field.ul.x && y >= field.ul.y && x < field.br.x && y < field.br.y)
+                            ret[x - field.ul.x][y - field.ul.y].add(gob);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Leaves out the windows that do not pass the test
+     */
+    public void retain(Predicate<Window> test)
+    {
+        windows.removeIf(test.negate());
+    }
+
+    /**
+     * Whether a gob on a tile of the area passed the test when the plan was
+     * made
+     */
+    public boolean any(Area area, Predicate<Gob> test)
+    {
+        for (int x = Math.max(area.ul.x, field.ul.x); x <= Math.min(area.br.x, field.br.x - 1); x++)
+        {
+            for (int y = Math.max(area.ul.y, field.ul.y); y <= Math.min(area.br.y, field.br.y - 1); y++)
+            {
+                for (Gob gob : gobs[x - field.ul.x][y - field.ul.y])
+                {
+                    if (test.test(gob))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tiles of an area of the field as they were when the plan was made,
+     * like {@link Area#getTiles}: a tile is free if no gob but the ones of
+     * the given names stands on it
+     */
+    public Area.Tile[][] tiles(Area area, NAlias names)
+    {
+        Area.Tile[][] ret = new Area.Tile[area.br.x - area.ul.x + 1][area.br.y - area.ul.y + 1];
+        for (int i = 0; i < ret.length; i++)
+        {
+            for (int j = 0; j < ret[i].length; j++)
+            {
+                int x = area.ul.x + i - field.ul.x, y = area.ul.y + j - field.ul.y;
+                if (x < 0 || y < 0 || x >= gobs.length || y >= gobs[x].length)
+                    throw new IllegalArgumentException("Area " + area + " is not in the field " + field);
+                List<Gob> on = gobs[x][y];
+                boolean free = true;
+                for (Gob gob : on)
+                {
+                    if (gob.ngob != null && gob.ngob.name != null && !NParser.checkName(gob.ngob.name, names))
+                    {
+                        free = false;
+                        break;
+                    }
+                }
+                ret[i][j] = new Area.Tile(area.ul.add(i, j), tilesets[x][y], free);
+                ret[i][j].gobs = new ArrayList<>(on);
+            }
+        }
+        return ret;
+    }
+}
@@ -499,18 +499,18 @@ public class Finder
     }
     
     public static Coord2d getFreePlace(Pair<Coord2d,Coord2d> area, NHitBox hitBox, double angle) {
-        Coord2d pos = null;
-
+        return freePlacer(area).find(hitBox, angle);
+    }
 
+    /**
+     * Placer over the current obstacles of the area, for placing several
+     * objects in a row without collecting and rasterising the obstacles anew
+     * for each of them
+     */
+    public static FreePlacer freePlacer(Pair<Coord2d,Coord2d> area) {
         ArrayList<NHitBoxD> significantGobs = new ArrayList<> ();
         NHitBoxD chekerOfArea = new NHitBoxD(area.a, area.b);
 
-        // Check area size with rotated hitbox dimensions
-        NHitBoxD temporalGobBox = new NHitBoxD(hitBox.begin, hitBox.end, Coord2d.of(0), angle);
-        if(chekerOfArea.c[2].sub(chekerOfArea.c[0]).x < temporalGobBox.getCircumscribedBR().sub(temporalGobBox.getCircumscribedUL()).x ||
-                chekerOfArea.c[2].sub(chekerOfArea.c[0]).y < temporalGobBox.getCircumscribedBR().sub(temporalGobBox.getCircumscribedUL()).y )
-            return null;
-
         synchronized ( NUtils.getGameUI().ui.sess.glob.oc ) {
             for ( Gob gob : NUtils.getGameUI().ui.sess.glob.oc ) {
                 if (!(gob instanceof OCache.Virtual || gob.attr.isEmpty() || gob.getClass().getName().contains("GlobEffector"))) {
@@ -535,29 +535,7 @@ public class Finder
                 }
             }
         }
-
-        Coord inchMax = area.b.sub(area.a).floor();
-        
-        // Create a test box to get actual rotated dimensions for margin calculation
-        NHitBoxD tempBox = new NHitBoxD(hitBox.begin, hitBox.end, Coord2d.of(0), angle);
-        Coord2d rotatedUL = tempBox.getCircumscribedUL();
-        Coord2d rotatedBR = tempBox.getCircumscribedBR();
-        Coord margin = rotatedBR.sub(rotatedUL).floor(2, 2);
-        
-        for (int i = margin.x; i <= inchMax.x - margin.x; i++)
-        {
-            for (int j = margin.y; j <= inchMax.y - margin.y; j++)
-            {
-                boolean passed = true;
-                NHitBoxD testGobBox = new NHitBoxD(hitBox.begin, hitBox.end, area.a.add(i,j), angle);
-                for ( NHitBoxD significantHitbox : significantGobs )
-                    if(significantHitbox.intersects(testGobBox,false))
-                        passed = false;
-                if(passed)
-                    return Coord2d.of(testGobBox.rc.x, testGobBox.rc.y);
-            }
-        }
-        return pos;
+        return new FreePlacer(area, significantGobs);
     }
 
 
@@ -630,7 +608,7 @@ public class Finder
                             if(pattern.matcher(gob.ngob.name).matches()) {
                                 double new_dist;
                                 if (gob.id != NUtils.playerID() && (new_dist = gob.rc.dist(NUtils.player().rc)) < dist) {
-                                    if(!(Boolean)NConfig.get(NConfig.Key.q_visitor) || (!(NParser.checkName(gob.ngob.name, new NAlias("palisadebiggate","palisadegate"))) || gob.findol(Equed.class)==null)) {
+                                    if(!(Boolean)NConfig.get(NConfig.Key.q_visitor) || (!gob.ngob.is(NClassifier.Category.PALISADE_GATE) || gob.findol(Equed.class)==null)) {
                                         result.add(gob);
                                     }
                                 }
@@ -656,7 +634,7 @@ public class Finder
                             if(pattern.matcher(gob.ngob.name).matches()) {
                                 double new_dist;
                                 if (gob.id != NUtils.playerID() && (new_dist = gob.rc.dist(centerPoint)) < dist) {
-                                    if(!(Boolean)NConfig.get(NConfig.Key.q_visitor) || (!(NParser.checkName(gob.ngob.name, new NAlias("palisadebiggate","palisadegate"))) || gob.findol(Equed.class)==null)) {
+                                    if(!(Boolean)NConfig.get(NConfig.Key.q_visitor) || (!gob.ngob.is(NClassifier.Category.PALISADE_GATE) || gob.findol(Equed.class)==null)) {
                                         result.add(gob);
                                     }
                                 }
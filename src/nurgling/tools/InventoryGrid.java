@@ -0,0 +1,304 @@
+package nurgling.tools;
+
+import haven.Coord;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Occupancy of an inventory, kept up to date as items are added and removed
+ * instead of being rebuilt from the widget tree for every query. Each row is
+ * a bit mask of its cells, so that rectangle fits are tested a row of cells
+ * at a time, and the free and total cell counts are maintained as items
+ * come and go. Every change bumps a counter, which tells observers that the
+ * layout has changed without comparing it cell by cell.
+ * <p>
+ * Sizes of items to fit are given as (rows, columns), like the matrix
+ * searches below take them. Rows wider than 64 cells are not supported.
+ * <p>
+ * The static methods search occupancy matrices, as built by
+ * {@code NInventory.containerMatrix()}: rows by columns, zero for a free
+ * cell. Both are kept apart from the widget so that they can run without a
+ * UI.
+ */
+public class InventoryGrid
+{
+    public static final int MAXW = 64;
+
+    private Coord isz = Coord.z;
+    private boolean[] mask = null;
+    private long[] blocked = new long[0];
+    private long[] taken = new long[0];
+    private short[] users = new short[0];
+    private final Map<Object, Coord[]> items = new HashMap<>();
+    private int ntaken = 0, nidle = 0;
+    private int changes = 0;
+
+    /**
+     * Empties the grid and gives it a new size and mask of blocked cells
+     */
+    public synchronized void reset(Coord isz, boolean[] mask)
+    {
+        if (isz.x > MAXW)
+            throw new IllegalArgumentException("Inventory too wide: " + isz);
+        this.isz = isz;
+        this.mask = mask;
+        blocked = new long[isz.y];
+        taken = new long[isz.y];
+        users = new short[isz.x * isz.y];
+        items.clear();
+        ntaken = nidle = 0;
+        for (int y = 0; y < isz.y; y++) {
+            for (int x = 0; x < isz.x; x++) {
+                if (mask != null && mask[y * isz.x + x]) {
+                    blocked[y] |= 1L << x;
+                    nidle++;
+                }
+            }
+        }
+        changes++;
+    }
+
+    /**
+     * Independent copy, for planning placements without touching the
+     * inventory's own grid
+     */
+    public synchronized InventoryGrid copy()
+    {
+        InventoryGrid ret = new InventoryGrid();
+        ret.isz = isz;
+        ret.mask = mask;
+        ret.blocked = blocked.clone();
+        ret.taken = taken.clone();
+        ret.users = users.clone();
+        ret.items.putAll(items);
+        ret.ntaken = ntaken;
+        ret.nidle = nidle;
+        ret.changes = changes;
+        return ret;
+    }
+
+    /**
+     * Whether the grid was last reset to this size and mask object
+     */
+    public synchronized boolean describes(Coord isz, boolean[] mask)
+    {
+        return (this.isz == isz) && (this.mask == mask);
+    }
+
+    /**
+     * Marks the cells of an item as taken. The item is clipped to the grid;
+     * adding an item again moves it.
+     */
+    public synchronized void add(Object item, Coord ul, Coord sz)
+    {
+        Coord[] prev = items.remove(item);
+        if (prev != null)
+            cover(prev[0], prev[1], -1);
+        items.put(item, new Coord[]{ul, sz});
+        cover(ul, sz, 1);
+        changes++;
+    }
+
+    public synchronized void remove(Object item)
+    {
+        Coord[] prev = items.remove(item);
+        if (prev != null) {
+            cover(prev[0], prev[1], -1);
+            changes++;
+        }
+    }
+
+    private void cover(Coord ul, Coord sz, int d)
+    {
+        for (int y = Math.max(ul.y, 0); y < Math.min(ul.y + sz.y, isz.y); y++) {
+            for (int x = Math.max(ul.x, 0); x < Math.min(ul.x + sz.x, isz.x); x++) {
+                int i = y * isz.x + x;
+                boolean was = users[i] > 0;
+                users[i] += d;
+                boolean is = users[i] > 0;
+                if (was == is)
+                    continue;
+                long bit = 1L << x;
+                if (is) {
+                    taken[y] |= bit;
+                    ntaken++;
+                } else {
+                    taken[y] &= ~bit;
+                    ntaken--;
+                }
+                if ((blocked[y] & bit) != 0)
+                    nidle += is ? -1 : 1;
+            }
+        }
+    }
+
+    /**
+     * Counter of changes to the layout
+     */
+    public synchronized int changes()
+    {
+        return changes;
+    }
+
+    /**
+     * Number of cells neither taken nor blocked
+     */
+    public synchronized int free()
+    {
+        return isz.x * isz.y - ntaken - nidle;
+    }
+
+    /**
+     * Number of cells that are not blocked, or hold an item anyway
+     */
+    public synchronized int total()
+    {
+        return isz.x * isz.y - nidle;
+    }
+
+    public synchronized boolean isFree(Coord c)
+    {
+        return ((free(c.y) >>> c.x) & 1) != 0;
+    }
+
+    private long free(int y)
+    {
+        long all = (isz.x == 64) ? -1L : ((1L << isz.x) - 1);
+        return ~(taken[y] | blocked[y]) & all;
+    }
+
+    /* Bits of the cells from which w cells in a row are free */
+    private static long runs(long row, int w)
+    {
+        long ret = row;
+        for (int k = 1; (k < w) && (ret != 0); k++)
+            ret &= row >>> k;
+        return ret;
+    }
+
+    private static long fits(long[] rows, int y, Coord sz)
+    {
+        long ret = -1L;
+        for (int k = 0; (k < sz.x) && (ret != 0); k++)
+            ret &= runs(rows[y + k], sz.y);
+        return ret;
+    }
+
+    /**
+     * First free position, in row order, for an item of the given size
+     */
+    public synchronized Coord find(Coord sz)
+    {
+        if ((sz.x < 1) || (sz.y < 1) || (sz.y > MAXW))
+            return null;
+        long[] rows = new long[isz.y];
+        for (int y = 0; y < isz.y; y++)
+            rows[y] = free(y);
+        for (int y = 0; y + sz.x <= isz.y; y++) {
+            long fit = fits(rows, y, sz);
+            if (fit != 0)
+                return new Coord(Long.numberOfTrailingZeros(fit), y);
+        }
+        return null;
+    }
+
+    /**
+     * Number of items of the given size that fit when placed greedily in
+     * row order. The grid itself is left as it is.
+     */
+    public synchronized int count(Coord sz)
+    {
+        if ((sz.x < 1) || (sz.y < 1) || (sz.y > MAXW))
+            return 0;
+        long[] rows = new long[isz.y];
+        for (int y = 0; y < isz.y; y++)
+            rows[y] = free(y);
+        long span = (sz.y == 64) ? -1L : ((1L << sz.y) - 1);
+        int count = 0;
+        for (int y = 0; y + sz.x <= isz.y; y++) {
+            long fit = fits(rows, y, sz);
+            while (fit != 0) {
+                int x = Long.numberOfTrailingZeros(fit);
+                for (int k = 0; k < sz.x; k++)
+                    rows[y + k] &= ~(span << x);
+                /* Positions of this row up to the end of the item overlap it */
+                fit = (x + sz.y >= 64) ? 0 : (fit & -(1L << (x + sz.y)));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The occupancy as a matrix: rows by columns, 0 for free cells, 1 for
+     * taken and 2 for blocked ones
+     */
+    public synchronized short[][] matrix()
+    {
+        short[][] ret = new short[isz.y][isz.x];
+        for (int y = 0; y < isz.y; y++) {
+            for (int x = 0; x < isz.x; x++) {
+                long bit = 1L << x;
+                if ((taken[y] & bit) != 0)
+                    ret[y][x] = 1;
+                else if ((blocked[y] & bit) != 0)
+                    ret[y][x] = 2;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Number of items of the given size that fit into the matrix when placed
+     * greedily. The matrix is filled in as items are placed.
+     */
+    public static int calcNumberFreeCoord(short[][] inventory, Coord target_size) {
+        if (target_size.x < 1 || target_size.y < 1)
+            return 0;
+
+        int count = 0;
+        for (int i = 0; i <= inventory.length - target_size.x; i++)
+            for (int j = 0; j <= inventory[i].length - target_size.y; j++) {
+                boolean isFree = true;
+                for (int k = i; k < i + target_size.x; k++)
+                    for (int n = j; n < j + target_size.y; n++)
+                        if (inventory[k][n] != 0) {
+                            isFree = false;
+                            break;
+                        }
+
+                if (isFree) {
+                    count++;
+                    for (int k = i; k < i + target_size.x; k++)
+                        for (int n = j; n < j + target_size.y; n++)
+                            inventory[k][n] = 1;
+                }
+            }
+
+        return count;
+    }
+
+    /**
+     * First free position in the matrix for an item of the given size
+     */
+    public static Coord findFreeCoord(short[][] inventory, Coord target_size) {
+        if ((target_size.y < 1) || (target_size.x < 1) || (inventory.length == 0))
+            return null;
+        Coord isz = new Coord(inventory[0].length, inventory.length);
+        for (int i = 0; i <= isz.y - target_size.y; i++)
+            for (int j = 0; j <= isz.x - target_size.x; j++)
+                if (inventory[i][j] == 0) {
+                    boolean isFree = true;
+                    for (int k = i; k < i + target_size.x; k++)
+                        for (int n = j; n < j + target_size.y; n++)
+                            if (n >= isz.x || k >= isz.y || inventory[k][n] != 0) {
+                                isFree = false;
+                                break;
+                            }
+                    if (isFree)
+                        return new Coord(j, i);
+                }
+        return null;
+    }
+}
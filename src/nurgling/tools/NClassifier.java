@@ -0,0 +1,109 @@
+package nurgling.tools;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classifies resource names into categories once per name.
+ * Each category is defined by an alias; the categories a name falls into
+ * are computed on first use and cached as a bitmask, so hot-path checks
+ * such as "is this gob a piece of nature" become a map lookup and a bit
+ * test instead of a fresh alias match. Redefining a category drops the
+ * cache and bumps the generation, which invalidates the masks cached on
+ * gobs as well.
+ */
+public class NClassifier
+{
+    public enum Category
+    {
+        NATURE, GATE, PALISADE_GATE, CROP, ANIMAL, PLAYER, VEHICLE, WALL, MINESUPPORT;
+
+        public final long bit = 1L << ordinal();
+    }
+
+    private static final Map<Category, NAlias> definitions = new EnumMap<>(Category.class);
+    private static final Map<String, Long> masks = new ConcurrentHashMap<>();
+    private static volatile int generation = 0;
+
+    static
+    {
+        definitions.put(Category.NATURE, new NAlias(new ArrayList<>(Arrays.asList("gfx/terobjs/tree", "gfx/terobjs/bumlings", "gfx/terobjs/bushes", "gfx/terobjs/stonepillar")), new ArrayList<>(Arrays.asList("log", "oldtrunk"))));
+        definitions.put(Category.GATE, new NAlias("gate"));
+        definitions.put(Category.PALISADE_GATE, new NAlias("palisadebiggate", "palisadegate"));
+        definitions.put(Category.CROP, new NAlias("plants"));
+        definitions.put(Category.ANIMAL, new NAlias("kritter"));
+        definitions.put(Category.PLAYER, new NAlias("borka"));
+        definitions.put(Category.VEHICLE, new NAlias("vehicle"));
+        definitions.put(Category.WALL, new NAlias("wall", "trellis"));
+        definitions.put(Category.MINESUPPORT, new NAlias(new ArrayList<>(Arrays.asList("minebeam", "column", "towercap", "ladder", "minesupport")), new ArrayList<>(Arrays.asList("stump", "wrack", "log"))));
+    }
+
+    /**
+     * Bitmask of the categories the resource name belongs to
+     */
+    public static long mask(String name)
+    {
+        if (name == null)
+            return 0;
+        Long ret = masks.get(name);
+        if (ret == null)
+        {
+            int gen = generation;
+            ret = compute(name);
+            synchronized (definitions)
+            {
+                if (gen == generation)
+                    masks.put(name, ret);
+            }
+        }
+        return ret;
+    }
+
+    public static boolean is(String name, Category cat)
+    {
+        return (mask(name) & cat.bit) != 0;
+    }
+
+    private static long compute(String name)
+    {
+        long ret = 0;
+        synchronized (definitions)
+        {
+            for (Map.Entry<Category, NAlias> def : definitions.entrySet())
+            {
+                if (NParser.checkName(name, def.getValue()))
+                    ret |= def.getKey().bit;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Replaces the definition of a category and rebuilds the cache
+     */
+    public static void define(Category cat, NAlias alias)
+    {
+        synchronized (definitions)
+        {
+            definitions.put(cat, alias);
+            masks.clear();
+            generation++;
+        }
+    }
+
+    public static NAlias definition(Category cat)
+    {
+        synchronized (definitions)
+        {
+            return definitions.get(cat);
+        }
+    }
+
+    /**
+     * Changes whenever a category is redefined
+     */
+    public static int generation()
+    {
+        return generation;
+    }
+}
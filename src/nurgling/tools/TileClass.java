@@ -0,0 +1,186 @@
+package nurgling.tools;
+
+import haven.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Terrain classes of the tilesets of a map, looked up by tileset id. The
+ * class of a tileset is worked out from its resource name the first time
+ * its id is asked for, and kept until the map binds the id to another
+ * tileset, so that hot loops over tiles test bits of an array entry
+ * instead of matching tileset names.
+ * <p>
+ * A class fits in a byte: two bits of water depth and one bit for each of
+ * the other kinds of terrain. Ids the map knows nothing of are
+ * {@link #UNKNOWN}, which only the int lookups report.
+ */
+public class TileClass
+{
+    public static final int DEPTH = 0x03;
+    /** Shallow water, fresh or ocean */
+    public static final int SHALLOW = 0x01;
+    /** Deep water, fresh or ocean */
+    public static final int DEEP = 0x02;
+    /** Open sea */
+    public static final int DEEPER = 0x03;
+    public static final int OCEAN = 0x04;
+    public static final int CAVE = 0x08;
+    public static final int ROCK = 0x10;
+    public static final int PAVED = 0x20;
+    public static final int FOREST = 0x40;
+    public static final int NIL = 0x80;
+    public static final int UNKNOWN = 0x100;
+
+    private static final String[] forests = {"wald", "leaf", "dryweald", "oakwilds", "pinebarren", "rootbosk", "shadycopse", "sourtimber", "timberland", "grove", "lichenwold", "deeptangle"};
+
+    private static class Entry
+    {
+        final Resource.Spec spec;
+        final int mask;
+
+        Entry(Resource.Spec spec, int mask)
+        {
+            this.spec = spec;
+            this.mask = mask;
+        }
+    }
+
+    private final MCache map;
+    private volatile Entry[] entries = new Entry[0];
+
+    public TileClass(MCache map)
+    {
+        this.map = map;
+    }
+
+    /**
+     * Class of a tileset resource name
+     */
+    public static int classify(String name)
+    {
+        if (name == null)
+            return UNKNOWN;
+        if (!name.startsWith("gfx/tiles/"))
+            return 0;
+        String nm = name.substring("gfx/tiles/".length());
+        if (nm.startsWith("water") || nm.startsWith("owater"))
+            return SHALLOW | (nm.startsWith("o") ? OCEAN : 0);
+        if (nm.equals("deep"))
+            return DEEP;
+        if (nm.equals("odeep"))
+            return DEEP | OCEAN;
+        if (nm.equals("odeeper"))
+            return DEEPER | OCEAN;
+        if (nm.startsWith("cave"))
+            return CAVE;
+        if (nm.startsWith("rocks"))
+            return ROCK;
+        if (nm.startsWith("nil"))
+            return NIL;
+        if (nm.startsWith("paving"))
+            return PAVED;
+        for (String forest : forests)
+        {
+            if (nm.equals(forest))
+                return FOREST;
+        }
+        return 0;
+    }
+
+    /**
+     * Class of the tileset of the given id
+     */
+    public int mask(int id)
+    {
+        Resource.Spec[] nsets = map.nsets;
+        Resource.Spec spec = (id >= 0 && id < nsets.length) ? nsets[id] : null;
+        if (spec == null)
+            return UNKNOWN;
+        Entry[] entries = this.entries;
+        Entry e = (id < entries.length) ? entries[id] : null;
+        if (e == null || e.spec != spec)
+        {
+            e = new Entry(spec, classify(spec.name));
+            synchronized (this)
+            {
+                if (id >= this.entries.length)
+                    this.entries = Arrays.copyOf(this.entries, nsets.length);
+                this.entries[id] = e;
+            }
+        }
+        return e.mask;
+    }
+
+    /**
+     * Class of the tile at the given tile coordinate
+     */
+    public int at(Coord tc)
+    {
+        return mask(map.gettile(tc));
+    }
+
+    public boolean is(int id, int cls)
+    {
+        return (mask(id) & cls) != 0;
+    }
+
+    /**
+     * Classes of all tiles of a grid, in the order of its tiles
+     */
+    public byte[] raster(MCache.Grid grid)
+    {
+        return raster(grid, new byte[grid.tiles.length]);
+    }
+
+    public byte[] raster(MCache.Grid grid, byte[] buf)
+    {
+        int[] seen = new int[map.nsets.length];
+        for (int i = 0; i < grid.tiles.length; i++)
+        {
+            int id = grid.tiles[i];
+            if (id >= seen.length)
+                seen = Arrays.copyOf(seen, Math.max(seen.length, map.nsets.length));
+            /* Tilesets still loading are unknown, which a byte holds as no class */
+            if (id < 0 || id >= seen.length)
+            {
+                buf[i] = 0;
+                continue;
+            }
+            if (seen[id] == 0)
+                seen[id] = mask(id) | 0x200;
+            buf[i] = (byte) seen[id];
+        }
+        return buf;
+    }
+
+    /**
+     * Which tileset ids are bound to one of the given resource names
+     */
+    public boolean[] select(Collection<String> names)
+    {
+        Resource.Spec[] nsets = map.nsets;
+        boolean[] ret = new boolean[nsets.length];
+        for (int i = 0; i < nsets.length; i++)
+            ret[i] = (nsets[i] != null) && names.contains(nsets[i].name);
+        return ret;
+    }
+
+    /**
+     * Whether the path finder keeps walkers off tiles of the class
+     */
+    public static boolean impassable(int cls)
+    {
+        return ((cls & (CAVE | ROCK | NIL)) != 0) || ((cls & DEPTH) == DEEP);
+    }
+
+    /**
+     * Whether the path finder lets boats onto tiles of the class
+     */
+    public static boolean navigable(int cls)
+    {
+        int depth = cls & DEPTH;
+        return ((cls & UNKNOWN) != 0) || (depth == SHALLOW) || (depth == DEEP);
+    }
+}
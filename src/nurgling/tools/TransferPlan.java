@@ -0,0 +1,108 @@
+package nurgling.tools;
+
+import haven.Coord;
+import haven.UI;
+import haven.WItem;
+import haven.res.ui.stackinv.ItemStack;
+import nurgling.NGItem;
+import nurgling.NInventory;
+
+import java.util.*;
+
+/**
+ * Plan of item moves into a set of inventories, computed up front from the
+ * inventories' occupancy instead of asking for free space after every move.
+ * Items are taken in quality order and placed into the first target with
+ * room for them, on scratch copies of the targets' occupancy grids.
+ * <p>
+ * Only moves that need no merging are planned: items that sit in a stack,
+ * or that the target would stack with others, need the hand and are left
+ * for the one-by-one transfer.
+ */
+public class TransferPlan
+{
+    public static class Move
+    {
+        public final WItem item;
+        public final NInventory target;
+        public final Coord slot;
+
+        Move(WItem item, NInventory target, Coord slot)
+        {
+            this.item = item;
+            this.target = target;
+            this.slot = slot;
+        }
+    }
+
+    public final List<Move> moves = new ArrayList<>();
+    /**
+     * Items the plan does not move
+     */
+    public final List<WItem> left = new ArrayList<>();
+
+    private static Float quality(WItem item)
+    {
+        return ((NGItem) item.item).quality;
+    }
+
+    /**
+     * Items in the given quality order, items without quality last
+     */
+    public static void sort(List<WItem> items, NInventory.QualityType order)
+    {
+        if (order == null)
+            return;
+        items.sort((a, b) -> {
+            Float qa = quality(a), qb = quality(b);
+            if (qa == null || qb == null)
+                return (qa == null) ? ((qb == null) ? 0 : 1) : -1;
+            return (order == NInventory.QualityType.High) ? Float.compare(qb, qa) : Float.compare(qa, qb);
+        });
+    }
+
+    /**
+     * Plans moving up to limit of the items into the targets, preferring
+     * targets in the given order
+     */
+    public static TransferPlan of(Collection<WItem> items, List<NInventory> targets, NInventory.QualityType order, int limit)
+    {
+        TransferPlan ret = new TransferPlan();
+        List<WItem> cand = new ArrayList<>(items);
+        sort(cand, order);
+        Map<NInventory, InventoryGrid> grids = new LinkedHashMap<>();
+        for (NInventory target : targets)
+        {
+            InventoryGrid occ = target.occupancy();
+            if (occ != null)
+                grids.put(target, occ.copy());
+        }
+        for (WItem item : cand)
+        {
+            if (ret.moves.size() >= limit || !plan(ret, item, grids))
+                ret.left.add(item);
+        }
+        return ret;
+    }
+
+    private static boolean plan(TransferPlan plan, WItem item, Map<NInventory, InventoryGrid> grids)
+    {
+        String name = ((NGItem) item.item).name();
+        if (name == null || item.item.spr == null || item.parent instanceof ItemStack || !NGItem.validateItem(item))
+            return false;
+        Coord sz = item.item.spr.sz().div(UI.scale(32));
+        for (Map.Entry<NInventory, InventoryGrid> e : grids.entrySet())
+        {
+            if (StackSupporter.isStackable(e.getKey(), name))
+                continue;
+            Coord slot = e.getValue().find(sz.swapXY());
+            if (slot != null)
+            {
+                e.getValue().add(item, slot, sz);
+                plan.moves.add(new Move(item, e.getKey(), slot));
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1143,18 +1143,10 @@ public class NMiniMap extends MiniMap {
                         parentWidget = parentWidget.parent;
                     }
 
-                    java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsForSegment(sessloc.seg.id);
                     int threshold = UI.scale(10); // Screen pixels
+                    java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsInArea(sessloc.seg.id, screenTiles(c, threshold), markerSearchPattern);
 
                     for(nurgling.TreeLocation loc : treeLocations) {
-                        // Apply marker search pattern filter
-                        if(markerSearchPattern != null && !markerSearchPattern.trim().isEmpty()) {
-                            String treeName = loc.getTreeName();
-                            if(treeName == null || !treeName.toLowerCase().contains(markerSearchPattern.toLowerCase())) {
-                                continue; // Skip trees that don't match search
-                            }
-                        }
-
                         Coord screenPos = loc.getTileCoords().sub(dloc.tc).div(scalef()).add(hsz);
 
                         if(c.dist(screenPos) < threshold) {
@@ -1182,22 +1174,10 @@ public class NMiniMap extends MiniMap {
                         parentWidget = parentWidget.parent;
                     }
 
-                    java.util.List<nurgling.FishLocation> locations = gui.fishLocationService.getFishLocationsForSegment(sessloc.seg.id);
                     int threshold = UI.scale(10); // Screen pixels
+                    java.util.List<nurgling.FishLocation> locations = gui.fishLocationService.getFishLocationsInArea(sessloc.seg.id, screenTiles(c, threshold), markerSearchPattern);
 
                     for(nurgling.FishLocation loc : locations) {
-                        // Apply marker search pattern filter
-                        if(markerSearchPattern != null && !markerSearchPattern.trim().isEmpty()) {
-                            String fishName = loc.getFishName();
-                            if(fishName == null) {
-                                continue; // Skip fish with no name when searching
-                            }
-                            // Show only fish that contain the marker search pattern (case-insensitive)
-                            if(!fishName.toLowerCase().contains(markerSearchPattern.toLowerCase())) {
-                                continue; // Skip fish that don't match
-                            }
-                        }
-
                         // Convert segment-relative coordinates to screen coordinates (same as drawing)
                         Coord screenPos = loc.getTileCoords().sub(dloc.tc).div(scalef()).add(hsz);
 
@@ -1392,24 +1372,13 @@ public class NMiniMap extends MiniMap {
             parentWidget = parentWidget.parent;
         }
 
-        // Use sessloc.seg.id like waypoints and markers do
-        java.util.List<nurgling.FishLocation> fishLocations = gui.fishLocationService.getFishLocationsForSegment(sessloc.seg.id);
+        // Use sessloc.seg.id like waypoints and markers do; only the
+        // locations in view that match the search pattern are returned
+        java.util.List<nurgling.FishLocation> fishLocations = gui.fishLocationService.getFishLocationsInArea(sessloc.seg.id, screenTiles(), markerSearchPattern);
 
         Coord hsz = sz.div(2);
 
         for(nurgling.FishLocation fishLoc : fishLocations) {
-            // Apply marker search pattern filter to fish names
-            if(markerSearchPattern != null && !markerSearchPattern.trim().isEmpty()) {
-                String fishName = fishLoc.getFishName();
-                if(fishName == null) {
-                    continue; // Hide fish with no name when searching
-                }
-                // Show only fish that contain the marker search pattern (case-insensitive)
-                if(!fishName.toLowerCase().contains(markerSearchPattern.toLowerCase())) {
-                    continue; // Hide fish that don't match
-                }
-            }
-
             // Convert segment-relative coordinates to screen coordinates
             // Same approach as markers: mark.m.tc.sub(dloc.tc).div(scalef()).add(hsz)
             Coord screenPos = fishLoc.getTileCoords().sub(dloc.tc).div(scalef()).add(hsz);
@@ -1471,24 +1440,13 @@ public class NMiniMap extends MiniMap {
             parentWidget = parentWidget.parent;
         }
 
-        // Use sessloc.seg.id like waypoints and markers do
-        java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsForSegment(sessloc.seg.id);
+        // Use sessloc.seg.id like waypoints and markers do; only the
+        // locations in view that match the search pattern are returned
+        java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsInArea(sessloc.seg.id, screenTiles(), markerSearchPattern);
 
         Coord hsz = sz.div(2);
 
         for(nurgling.TreeLocation treeLoc : treeLocations) {
-            // Apply marker search pattern filter to tree names
-            if(markerSearchPattern != null && !markerSearchPattern.trim().isEmpty()) {
-                String treeName = treeLoc.getTreeName();
-                if(treeName == null) {
-                    continue; // Hide trees with no name when searching
-                }
-                // Show only trees that contain the marker search pattern (case-insensitive)
-                if(!treeName.toLowerCase().contains(markerSearchPattern.toLowerCase())) {
-                    continue; // Hide trees that don't match
-                }
-            }
-
             // Convert segment-relative coordinates to screen coordinates
             Coord screenPos = treeLoc.getTileCoords().sub(dloc.tc).div(scalef()).add(hsz);
 
@@ -1553,12 +1511,31 @@ public class NMiniMap extends MiniMap {
         }
     }
 
+    /**
+     * Tiles of the displayed segment under a screen rectangle, padded by a
+     * tile so icons straddling the edge are included.
+     */
+    private Area screenTiles(Coord ul, Coord br) {
+        Coord hsz = sz.div(2);
+        Coord tul = ul.sub(hsz).mul(scalef()).add(dloc.tc);
+        Coord tbr = br.sub(hsz).mul(scalef()).add(dloc.tc);
+        return Area.corn(tul.sub(1, 1), tbr.add(2, 2));
+    }
+
+    private Area screenTiles() {
+        return screenTiles(Coord.z, sz);
+    }
+
+    private Area screenTiles(Coord c, int radius) {
+        return screenTiles(c.sub(radius, radius), c.add(radius, radius));
+    }
+
     private nurgling.FishLocation fishLocationAt(Coord tc) {
         NGameUI gui = NUtils.getGameUI();
         if(gui == null || gui.fishLocationService == null || dloc == null) return null;
 
-        java.util.List<nurgling.FishLocation> locations = gui.fishLocationService.getFishLocationsForSegment(dloc.seg.id);
         int threshold = UI.scale(10); // Click radius
+        java.util.List<nurgling.FishLocation> locations = gui.fishLocationService.getFishLocationsInArea(dloc.seg.id, Area.corn(tc.sub(threshold, threshold), tc.add(threshold + 1, threshold + 1)), null);
 
         for(nurgling.FishLocation loc : locations) {
             if(loc.getTileCoords().dist(tc) < threshold) {
@@ -1709,8 +1686,8 @@ public class NMiniMap extends MiniMap {
             NGameUI gui = NUtils.getGameUI();
             if(gui != null && gui.treeLocationService != null) {
                 // Check for tree location at click position (in screen space)
-                java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsForSegment(sessloc.seg.id);
                 int threshold = UI.scale(10);
+                java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsInArea(sessloc.seg.id, screenTiles(ev.c, threshold), null);
                 Coord hsz = sz.div(2);
 
                 for(nurgling.TreeLocation loc : treeLocations) {
@@ -1745,8 +1722,8 @@ public class NMiniMap extends MiniMap {
             NGameUI gui = NUtils.getGameUI();
             if(gui != null && gui.fishLocationService != null) {
                 // Check for fish location at click position (in screen space)
-                java.util.List<nurgling.FishLocation> locations = gui.fishLocationService.getFishLocationsForSegment(sessloc.seg.id);
                 int threshold = UI.scale(10);
+                java.util.List<nurgling.FishLocation> locations = gui.fishLocationService.getFishLocationsInArea(sessloc.seg.id, screenTiles(ev.c, threshold), null);
                 Coord hsz = sz.div(2);
 
                 for(nurgling.FishLocation loc : locations) {
@@ -1800,10 +1777,12 @@ public class NMiniMap extends MiniMap {
             // Calculate dynamic alpha for pulsating effect
             int alpha = (int)(100 + 155 * Math.sin(Math.PI * ((System.currentTimeMillis() % 1000) / 1000.0)));
             
+            java.util.Set<DisplayGrid> drawn = new java.util.HashSet<>();
             for(Coord c : dgext) {
                 DisplayGrid disp = display[dgext.ri(c)];
                 if(disp == null)
                     continue;
+                drawn.add(disp);
                 
                 try {
                     Tex overlayImg = getTileHighlightOverlay(disp);
@@ -1823,47 +1802,56 @@ public class NMiniMap extends MiniMap {
                     // Ignore overlay rendering errors
                 }
             }
+            retainTileHighlights(drawn);
+        } else if(!tileHighlightCache.isEmpty()) {
+            retainTileHighlights(java.util.Collections.emptySet());
         }
     }
 
     /**
-     * Cache for tile highlight overlays with version tracking
+     * Tile highlight overlays of the display grids drawn lately, least
+     * recently drawn first
      */
-    private static class TileHighlightCache {
-        Tex img;
-        long seq;
-        MapFile.DataGrid grid;
-    }
-    
-    private final java.util.Map<DisplayGrid, TileHighlightCache> tileHighlightCache = new java.util.HashMap<>();
+    private static final int TILE_HIGHLIGHT_CACHE = 64;
+    private final java.util.Map<DisplayGrid, TileHighlight.GridOverlay> tileHighlightCache = new java.util.LinkedHashMap<DisplayGrid, TileHighlight.GridOverlay>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(java.util.Map.Entry<DisplayGrid, TileHighlight.GridOverlay> eldest) {
+            if(size() > TILE_HIGHLIGHT_CACHE) {
+                eldest.getValue().dispose();
+                return true;
+            }
+            return false;
+        }
+    };
 
     /**
      * Get tile highlight overlay for a display grid with caching
      */
     private Tex getTileHighlightOverlay(DisplayGrid disp) {
-        TileHighlightCache cache = tileHighlightCache.get(disp);
         MapFile.DataGrid grid = (MapFile.DataGrid) disp.gref.get();
-        
-        // Check if cache is valid
-        if(cache != null && cache.grid == grid && cache.seq == TileHighlight.seq) {
-            return cache.img;
+        TileHighlight.GridOverlay cache = tileHighlightCache.get(disp);
+        if(cache == null || cache.grid != grid) {
+            if(cache != null)
+                cache.dispose();
+            cache = new TileHighlight.GridOverlay(grid);
+            tileHighlightCache.put(disp, cache);
         }
-        
-        // Generate new overlay
         try {
-            java.awt.image.BufferedImage overlayBuf = TileHighlight.olrender(grid);
-            Tex overlayTex = new TexI(overlayBuf);
-            
-            // Update cache
-            cache = new TileHighlightCache();
-            cache.img = overlayTex;
-            cache.seq = TileHighlight.seq;
-            cache.grid = grid;
-            tileHighlightCache.put(disp, cache);
-            
-            return overlayTex;
+            return cache.get();
         } catch(Exception e) {
             return null;
         }
     }
+
+    /**
+     * Release the overlays of the display grids that were not drawn
+     */
+    private void retainTileHighlights(java.util.Set<DisplayGrid> drawn) {
+        for(java.util.Iterator<java.util.Map.Entry<DisplayGrid, TileHighlight.GridOverlay>> it = tileHighlightCache.entrySet().iterator(); it.hasNext();) {
+            java.util.Map.Entry<DisplayGrid, TileHighlight.GridOverlay> e = it.next();
+            if(!drawn.contains(e.getKey())) {
+                e.getValue().dispose();
+                it.remove();
+            }
+        }
+    }
 }
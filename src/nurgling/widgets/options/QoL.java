@@ -32,6 +32,7 @@ public class QoL extends Panel {
     private CheckBox shortWalls;
     private CheckBox decalsOnTop;
     private CheckBox printpfmap;
+    private CheckBox recordpfmap;
     private CheckBox uniformBiomeColors;
     private CheckBox showTerrainName;
     private CheckBox verboseCal;
@@ -211,6 +212,7 @@ public class QoL extends Panel {
         rightPrev = rightColumn.add(new Label("● Debug & Development"), rightPrev.pos("bl").adds(0, 15));
         rightPrev = debug = rightColumn.add(new CheckBox("DEBUG"), rightPrev.pos("bl").adds(0, 5));
         rightPrev = printpfmap = rightColumn.add(new CheckBox("Path Finder map in debug"), rightPrev.pos("bl").adds(0, 5));
+        rightPrev = recordpfmap = rightColumn.add(new CheckBox("Record printed Path Finder maps"), rightPrev.pos("bl").adds(0, 5));
 
         rightPrev = rightColumn.add(new Label("● Temporary Marks"), rightPrev.pos("bl").adds(0, 15));
         rightPrev = tempmark = rightColumn.add(new CheckBox("Save temporary marks"), rightPrev.pos("bl").adds(0, 5));
@@ -261,6 +263,7 @@ public class QoL extends Panel {
         lpassistent.a = getBool(NConfig.Key.lpassistent);
         debug.a = getBool(NConfig.Key.debug);
         printpfmap.a = getBool(NConfig.Key.printpfmap);
+        recordpfmap.a = getBool(NConfig.Key.recordpfmap);
         tempmark.a = getBool(NConfig.Key.tempmark);
         shortCupboards.a = getBool(NConfig.Key.shortCupboards);
         shortWalls.a = getBool(NConfig.Key.shortWalls);
@@ -391,6 +394,7 @@ public class QoL extends Panel {
         
         NConfig.set(NConfig.Key.debug, debug.a);
         NConfig.set(NConfig.Key.printpfmap, printpfmap.a);
+        NConfig.set(NConfig.Key.recordpfmap, recordpfmap.a);
         NConfig.set(NConfig.Key.tempmark, tempmark.a);
         
         // Save cupboard settings and rebuild cupboards if changed